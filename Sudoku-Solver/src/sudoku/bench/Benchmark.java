@@ -0,0 +1,728 @@
+package sudoku.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import sudoku.io.SudokuFileParser;
+import sudoku.solver.BackjumpingSudokuSolver;
+import sudoku.solver.Board;
+import sudoku.solver.BranchingStrategy;
+import sudoku.solver.CdclSolver;
+import sudoku.solver.DancingLinksSolver;
+import sudoku.solver.DomOverWeightedDegree;
+import sudoku.solver.EnforcedCell;
+import sudoku.solver.EnforcedFish;
+import sudoku.solver.EnforcedNumber;
+import sudoku.solver.EnforcedSubset;
+import sudoku.solver.InvalidSudokuException;
+import sudoku.solver.MinRemainingValues;
+import sudoku.solver.MinRemainingValuesDegree;
+import sudoku.solver.ParallelSudokuBoardSolver;
+import sudoku.solver.PortfolioSudokuSolver;
+import sudoku.solver.RestartingSudokuSolver;
+import sudoku.solver.Saturator;
+import sudoku.solver.Structure;
+import sudoku.solver.SudokuBoardSolver;
+import sudoku.solver.SudokuSolver;
+import sudoku.solver.TrailingSudokuSolver;
+import sudoku.solver.UnsolvableSudokuException;
+
+/**
+ * The benchmark class compares the solvers on sudoku files and checks that
+ * they agree on the amount of solutions. It is started with the name of a
+ * mode followed by the sudoku files or directories to use, which default to
+ * {@code sudokus} and {@code sudokus/stress}:
+ * <ul>
+ * <li>{@code agree} counts the solutions of every sudoku with every engine
+ * and configuration up to a limit, checks that the first solution of every
+ * engine solves the sudoku, and reports any disagreement by the exit
+ * status,</li>
+ * <li>{@code engines} times the engines of the shell,</li>
+ * <li>{@code branching} counts the branch points of the branching strategies
+ * and times them,</li>
+ * <li>{@code subset} counts the branch points with {@link EnforcedSubset}
+ * of every size and without it and times them,</li>
+ * <li>{@code fish} counts the branch points with {@link EnforcedFish} of
+ * every order and without it and times them,</li>
+ * <li>{@code signalling} times the saturators reporting contradictions by
+ * their result against the same saturators reporting them by exceptions,
+ * and</li>
+ * <li>{@code planes} times the search on the working board against the
+ * searches on bit planes.</li>
+ * </ul>
+ * All solvers use the saturators {@link EnforcedCell} and
+ * {@link EnforcedNumber} like the shell. A time is the median of several
+ * rounds of repeated runs after a warm-up, or the time of a single run if
+ * that already takes longer than a round. Only the default mode
+ * {@code agree} runs on the large sudokus in reasonable time with every
+ * engine, the others are best given a subset of the files.
+ */
+public final class Benchmark {
+
+    /**
+     * The amount of solutions after which counting stops.
+     */
+    private static final long COUNT_LIMIT = 1000;
+
+    /**
+     * The amount of solutions searched by the {@code planes} mode.
+     */
+    private static final long PLANES_LIMIT = 20;
+
+    /**
+     * The amount of rounds a task is timed in.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * The minimum duration of a round in nanoseconds.
+     */
+    private static final long ROUND_NANOS = 200_000_000L;
+
+    /**
+     * The paths searched for sudoku files if no paths are given.
+     */
+    private static final String[] DEFAULT_PATHS
+            = {"sudokus", "sudokus/stress"};
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Benchmark() {
+        throw new AssertionError("This class should not be instantiated.");
+    }
+
+    /**
+     * Runs the mode given as first argument on the sudoku files given by the
+     * other arguments. Exits with status {@code 1} if the engines disagree
+     * and with status {@code 2} if the arguments are invalid.
+     *
+     * @param args The mode followed by sudoku files or directories.
+     * @throws IOException If a sudoku file can not be read.
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = (args.length > 0) ? args[0] : "agree";
+        List<File> files = findFiles((args.length > 1)
+                ? Arrays.copyOfRange(args, 1, args.length) : DEFAULT_PATHS);
+
+        Map<String, Board> boards = new LinkedHashMap<String, Board>();
+        for (File file : files) {
+            try {
+                boards.put(file.getPath(),
+                        SudokuFileParser.parseToBoard(file));
+            } catch (ParseException | InvalidSudokuException
+                    | IllegalArgumentException e) {
+                System.out.println("Skipped " + file.getPath() + ": "
+                        + e.getMessage());
+            }
+        }
+
+        switch (mode) {
+        case "agree":
+            if (!checkAgreement(boards)) {
+                System.exit(1);
+            }
+            break;
+
+        case "engines":
+            compareEngines(boards);
+            break;
+
+        case "branching":
+            compareBranching(boards);
+            break;
+
+        case "subset":
+            compareSubsets(boards);
+            break;
+
+        case "fish":
+            compareFish(boards);
+            break;
+
+        case "signalling":
+            compareSignalling(boards);
+            break;
+
+        case "planes":
+            comparePlanes(boards);
+            break;
+
+        default:
+            System.err.println("Unknown mode \"" + mode + "\", expected "
+                    + "agree, engines, branching, subset, fish, signalling "
+                    + "or planes.");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Counts the solutions of every sudoku with every engine and
+     * configuration and prints the counts of every sudoku. The first solution
+     * of every engine is checked as well, as some engines only search it
+     * differently, like the restarts of the {@link RestartingSudokuSolver}
+     * and the race of the {@link PortfolioSudokuSolver}.
+     *
+     * @param boards The sudokus by their file names.
+     * @return {@code true} if all engines found the same amount of solutions
+     *         for every sudoku, and either all of them found a first solution
+     *         solving it or none of them.
+     */
+    private static boolean checkAgreement(Map<String, Board> boards) {
+        Map<String, Supplier<SudokuSolver>> solvers = createAllSolvers();
+        boolean agreed = true;
+
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Map<Long, List<String>> counts
+                    = new LinkedHashMap<Long, List<String>>();
+            for (Map.Entry<String, Supplier<SudokuSolver>> solver
+                    : solvers.entrySet()) {
+                long count = solver.getValue().get().countSolutions(
+                        entry.getValue(), COUNT_LIMIT);
+                counts.computeIfAbsent(count, c -> new ArrayList<String>())
+                        .add(solver.getKey());
+            }
+
+            if (counts.size() == 1) {
+                long count = counts.keySet().iterator().next();
+                System.out.println(entry.getKey() + ": " + count
+                        + ((count == COUNT_LIMIT) ? " or more" : "")
+                        + ((count == 1) ? " solution" : " solutions")
+                        + " with all " + solvers.size() + " solvers");
+            } else {
+                agreed = false;
+                System.out.println(entry.getKey() + ": engines disagree "
+                        + counts);
+            }
+
+            List<String> unsolved = new ArrayList<String>();
+            List<String> wrong = new ArrayList<String>();
+            for (Map.Entry<String, Supplier<SudokuSolver>> solver
+                    : solvers.entrySet()) {
+                Board first = solver.getValue().get().findFirstSolution(
+                        entry.getValue());
+                if (first == null) {
+                    unsolved.add(solver.getKey());
+                } else if (!solves(first, entry.getValue())) {
+                    wrong.add(solver.getKey());
+                }
+            }
+
+            if (!wrong.isEmpty() || (!unsolved.isEmpty()
+                    && (unsolved.size() < solvers.size()))) {
+                agreed = false;
+                System.out.println(entry.getKey() + ": first solutions "
+                        + "differ, wrong " + wrong + ", none " + unsolved);
+            }
+        }
+
+        System.out.println(agreed ? "All engines agree."
+                : "The engines disagree.");
+        return agreed;
+    }
+
+    /**
+     * Checks whether a board is a solution of a sudoku, which means that it
+     * is solved and keeps all set cells of the sudoku.
+     *
+     * @param solution The board to check.
+     * @param board The sudoku.
+     * @return {@code true} if {@code solution} solves {@code board}.
+     */
+    private static boolean solves(Board solution, Board board) {
+        if ((solution.getBoxRows() != board.getBoxRows())
+                || (solution.getBoxColumns() != board.getBoxColumns())
+                || !solution.isSolution()) {
+            return false;
+        }
+
+        Structure struct = Structure.ROW;
+        for (int row = 0; row < board.getNumbers(); row++) {
+            for (int col = 0; col < board.getNumbers(); col++) {
+                int number = board.getCell(struct, row, col);
+                if ((number != Board.UNSET_CELL)
+                        && (solution.getCell(struct, row, col) != number)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Times finding the first solution and counting the solutions with
+     * every engine of the shell.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void compareEngines(Map<String, Board> boards) {
+        Map<String, Supplier<SudokuSolver>> solvers
+                = new LinkedHashMap<String, Supplier<SudokuSolver>>();
+        solvers.put("backtracking", () -> configure(new SudokuBoardSolver()));
+        solvers.put("trail", () -> configure(new TrailingSudokuSolver()));
+        solvers.put("backjump",
+                () -> configure(new BackjumpingSudokuSolver()));
+        solvers.put("parallel",
+                () -> configure(new ParallelSudokuBoardSolver()));
+        solvers.put("dlx", () -> configure(new DancingLinksSolver()));
+        solvers.put("sat", () -> configure(new CdclSolver()));
+
+        printHeader("ms per run", solvers.keySet());
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            List<String> first = new ArrayList<String>();
+            List<String> count = new ArrayList<String>();
+            for (Supplier<SudokuSolver> supplier : solvers.values()) {
+                SudokuSolver solver = supplier.get();
+                first.add(formatMillis(measure(
+                        () -> solver.findFirstSolution(board))));
+                count.add(formatMillis(measure(
+                        () -> solver.countSolutions(board, COUNT_LIMIT))));
+            }
+            printRow(entry.getKey() + " first", first);
+            printRow(entry.getKey() + " count", count);
+        }
+    }
+
+    /**
+     * Counts the branch points of every branching strategy of the shell on
+     * the default engine and times them. The strategies are wrapped to count
+     * the branch points, so the default engine searches the working board
+     * with all of them.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void compareBranching(Map<String, Board> boards) {
+        Map<String, Supplier<BranchingStrategy>> strategies
+                = new LinkedHashMap<String, Supplier<BranchingStrategy>>();
+        strategies.put("mrv", MinRemainingValues::new);
+        strategies.put("degree", MinRemainingValuesDegree::new);
+        strategies.put("wdeg", DomOverWeightedDegree::new);
+
+        printHeader("branch points, ms per run", strategies.keySet());
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            List<String> first = new ArrayList<String>();
+            List<String> count = new ArrayList<String>();
+            for (Supplier<BranchingStrategy> strategy : strategies.values()) {
+                CountingStrategy counting
+                        = new CountingStrategy(strategy.get());
+                TrailingSudokuSolver solver
+                        = configure(new TrailingSudokuSolver());
+                solver.setBranchingStrategy(counting);
+
+                counting.branches = 0;
+                solver.findFirstSolution(board);
+                long firstBranches = counting.branches;
+                first.add(firstBranches + " " + formatMillis(measure(
+                        () -> solver.findFirstSolution(board))));
+
+                counting.branches = 0;
+                solver.countSolutions(board, COUNT_LIMIT);
+                long countBranches = counting.branches;
+                count.add(countBranches + " " + formatMillis(measure(
+                        () -> solver.countSolutions(board, COUNT_LIMIT))));
+            }
+            printRow(entry.getKey() + " first", first);
+            printRow(entry.getKey() + " count", count);
+        }
+    }
+
+    /**
+     * Counts the branch points of the default engine without
+     * {@link EnforcedSubset} and with it up to every size from 2 to 4, and
+     * times them.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void compareSubsets(Map<String, Board> boards) {
+        Map<String, Supplier<Saturator>> saturators
+                = new LinkedHashMap<String, Supplier<Saturator>>();
+        saturators.put("none", () -> null);
+        for (int size = 2; size <= 4; size++) {
+            int maxSize = size;
+            saturators.put("size " + size,
+                    () -> new EnforcedSubset(maxSize));
+        }
+        compareSaturators(boards, saturators);
+    }
+
+    /**
+     * Counts the branch points of the default engine without
+     * {@link EnforcedFish} and with it up to every order from 2 to 4, and
+     * times them.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void compareFish(Map<String, Board> boards) {
+        Map<String, Supplier<Saturator>> saturators
+                = new LinkedHashMap<String, Supplier<Saturator>>();
+        saturators.put("none", () -> null);
+        for (int order = 2; order <= 4; order++) {
+            int maxOrder = order;
+            saturators.put("order " + order,
+                    () -> new EnforcedFish(maxOrder));
+        }
+        compareSaturators(boards, saturators);
+    }
+
+    /**
+     * Counts the branch points of the default engine with an additional
+     * saturator of every given configuration and times them. The default
+     * branching strategy is wrapped to count the branch points, so the
+     * default engine searches the working board with all of them.
+     *
+     * @param boards The sudokus by their file names.
+     * @param saturators The suppliers of the additional saturators by the
+     *        names of their configurations, which supply {@code null} for no
+     *        additional saturator.
+     */
+    private static void compareSaturators(Map<String, Board> boards,
+            Map<String, Supplier<Saturator>> saturators) {
+        printHeader("branch points, ms per run", saturators.keySet());
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            List<String> first = new ArrayList<String>();
+            List<String> count = new ArrayList<String>();
+            for (Supplier<Saturator> saturator : saturators.values()) {
+                CountingStrategy counting
+                        = new CountingStrategy(new MinRemainingValues());
+                TrailingSudokuSolver solver
+                        = configure(new TrailingSudokuSolver());
+                solver.setBranchingStrategy(counting);
+                Saturator additional = saturator.get();
+                if (additional != null) {
+                    solver.addSaturator(additional);
+                }
+
+                counting.branches = 0;
+                solver.findFirstSolution(board);
+                long firstBranches = counting.branches;
+                first.add(firstBranches + " " + formatMillis(measure(
+                        () -> solver.findFirstSolution(board))));
+
+                counting.branches = 0;
+                solver.countSolutions(board, COUNT_LIMIT);
+                long countBranches = counting.branches;
+                count.add(countBranches + " " + formatMillis(measure(
+                        () -> solver.countSolutions(board, COUNT_LIMIT))));
+            }
+            printRow(entry.getKey() + " first", first);
+            printRow(entry.getKey() + " count", count);
+        }
+    }
+
+    /**
+     * Times the backtracking engine with the saturators of this package,
+     * which report contradictions by their result, against the same
+     * saturators hidden behind their public interface, which reports them by
+     * exceptions. The backtracking engine applies both of them to the whole
+     * board, so the difference is the cost of the exceptions.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void compareSignalling(Map<String, Board> boards) {
+        List<String> names = Arrays.asList("exceptions", "results", "ratio");
+        printHeader("ms per run", names);
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            SudokuBoardSolver throwing = new SudokuBoardSolver();
+            throwing.addSaturator(new ThrowingSaturator(new EnforcedCell()));
+            throwing.addSaturator(
+                    new ThrowingSaturator(new EnforcedNumber()));
+            SudokuBoardSolver signalling = configure(new SudokuBoardSolver());
+
+            double exceptions = measure(
+                    () -> throwing.findFirstSolution(board));
+            double results = measure(
+                    () -> signalling.findFirstSolution(board));
+            printRow(entry.getKey() + " first",
+                    Arrays.asList(formatMillis(exceptions),
+                            formatMillis(results),
+                            String.format("%.2f", exceptions / results)));
+        }
+    }
+
+    /**
+     * Times searching the first solutions of every sudoku on the working
+     * board of the default engine against searching them on the bit planes
+     * of a whole classic sudoku and on the bit planes with one word per row.
+     *
+     * @param boards The sudokus by their file names.
+     */
+    private static void comparePlanes(Map<String, Board> boards) {
+        Map<String, Supplier<SudokuSolver>> solvers
+                = new LinkedHashMap<String, Supplier<SudokuSolver>>();
+        solvers.put("board", () -> createTrailing(false, false));
+        solvers.put("classic", () -> createTrailing(true, false));
+        solvers.put("rows", () -> createTrailing(false, true));
+
+        printHeader("ms per run", solvers.keySet());
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            List<String> times = new ArrayList<String>();
+            for (Supplier<SudokuSolver> supplier : solvers.values()) {
+                SudokuSolver solver = supplier.get();
+                times.add(formatMillis(measure(
+                        () -> solver.countSolutions(board, PLANES_LIMIT))));
+            }
+            printRow(entry.getKey(), times);
+        }
+    }
+
+    /**
+     * Creates the engines and configurations compared by the {@code agree}
+     * mode.
+     *
+     * @return The suppliers of the solvers by their names.
+     */
+    private static Map<String, Supplier<SudokuSolver>> createAllSolvers() {
+        Map<String, Supplier<SudokuSolver>> solvers
+                = new LinkedHashMap<String, Supplier<SudokuSolver>>();
+        solvers.put("backtracking", () -> configure(new SudokuBoardSolver()));
+        solvers.put("trail", () -> configure(new TrailingSudokuSolver()));
+        solvers.put("trail board", () -> createTrailing(false, false));
+        solvers.put("trail rows", () -> createTrailing(false, true));
+        solvers.put("trail degree", () -> {
+            TrailingSudokuSolver solver
+                    = configure(new TrailingSudokuSolver());
+            solver.setBranchingStrategy(new MinRemainingValuesDegree());
+            return solver;
+        });
+        solvers.put("trail wdeg", () -> {
+            TrailingSudokuSolver solver
+                    = configure(new TrailingSudokuSolver());
+            solver.setBranchingStrategy(new DomOverWeightedDegree());
+            return solver;
+        });
+        solvers.put("trail units", () -> {
+            TrailingSudokuSolver solver
+                    = configure(new TrailingSudokuSolver());
+            solver.setUnitBranching(true);
+            return solver;
+        });
+        solvers.put("backjump",
+                () -> configure(new BackjumpingSudokuSolver()));
+        solvers.put("restart",
+                () -> configure(new RestartingSudokuSolver(1)));
+        solvers.put("parallel",
+                () -> configure(new ParallelSudokuBoardSolver()));
+        solvers.put("dlx", () -> configure(new DancingLinksSolver()));
+        solvers.put("sat", () -> configure(new CdclSolver()));
+        solvers.put("portfolio", () -> configure(
+                PortfolioSudokuSolver.createDefault(
+                        Runtime.getRuntime().availableProcessors())));
+        return solvers;
+    }
+
+    /**
+     * Creates the default engine with the given searches on bit planes.
+     *
+     * @param classic Whether classic sudokus may be searched on bit planes.
+     * @param wide Whether other sudokus may be searched on bit planes with
+     *        one word per row.
+     * @return The configured solver.
+     */
+    private static TrailingSudokuSolver createTrailing(boolean classic,
+            boolean wide) {
+        TrailingSudokuSolver solver = configure(new TrailingSudokuSolver());
+        solver.setClassicFastPath(classic);
+        solver.setWideFastPath(wide);
+        return solver;
+    }
+
+    /**
+     * Registers the saturators of the shell on a solver.
+     *
+     * @param <S> The type of the solver.
+     * @param solver The solver.
+     * @return The given solver.
+     */
+    private static <S extends SudokuSolver> S configure(S solver) {
+        solver.addSaturator(new EnforcedCell());
+        solver.addSaturator(new EnforcedNumber());
+        return solver;
+    }
+
+    /**
+     * Collects the sudoku files given directly or contained in the given
+     * directories, the latter in the order of their names.
+     *
+     * @param paths The paths of the files and directories.
+     * @return The sudoku files.
+     * @throws IOException If a path does not exist.
+     */
+    private static List<File> findFiles(String[] paths) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles(
+                        (dir, name) -> name.endsWith(".sud"));
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            } else if (file.isFile()) {
+                files.add(file);
+            } else {
+                throw new IOException("There is no file \"" + path + "\".");
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Measures the time of a task. After a warm-up, the task is repeated
+     * until a round took long enough, and the median of the average times
+     * of several rounds is taken.
+     *
+     * @param task The task.
+     * @return The time of a run of the task in nanoseconds.
+     */
+    private static double measure(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        long single = System.nanoTime() - start;
+        if (single >= ROUND_NANOS) {
+            return single; // Repeating it would take too long.
+        }
+
+        double[] rounds = new double[ROUNDS + 1];
+        for (int round = 0; round < rounds.length; round++) {
+            long runs = 0;
+            long elapsed;
+            start = System.nanoTime();
+            do {
+                task.run();
+                runs++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ROUND_NANOS);
+            rounds[round] = (double) elapsed / runs;
+        }
+
+        // The first round is a warm-up.
+        double[] timed = Arrays.copyOfRange(rounds, 1, rounds.length);
+        Arrays.sort(timed);
+        return timed[timed.length / 2];
+    }
+
+    /**
+     * Formats a time in milliseconds.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The formatted time.
+     */
+    private static String formatMillis(double nanos) {
+        return String.format("%.3f", nanos / 1_000_000);
+    }
+
+    /**
+     * Prints the header of a table.
+     *
+     * @param unit The unit of the values.
+     * @param columns The names of the columns.
+     */
+    private static void printHeader(String unit, Iterable<String> columns) {
+        List<String> names = new ArrayList<String>();
+        columns.forEach(names::add);
+        printRow(unit, names);
+    }
+
+    /**
+     * Prints a row of a table.
+     *
+     * @param name The name of the row.
+     * @param values The values of the columns.
+     */
+    private static void printRow(String name, List<String> values) {
+        StringBuilder row = new StringBuilder(String.format("%-36s", name));
+        for (String value : values) {
+            row.append(String.format(" %14s", value));
+        }
+        System.out.println(row);
+    }
+
+    /**
+     * A branching strategy counting the branch points of another one.
+     */
+    private static final class CountingStrategy implements BranchingStrategy {
+
+        private final BranchingStrategy strategy;
+
+        /**
+         * The amount of branch points so far.
+         */
+        private long branches;
+
+        /**
+         * Creates a new strategy counting the branch points of the given one.
+         *
+         * @param strategy The strategy choosing the cells.
+         */
+        CountingStrategy(BranchingStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int selectCell(Board board) {
+            branches++;
+            return strategy.selectCell(board);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void recordFailure(Board board, int index) {
+            strategy.recordFailure(board, index);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void reset() {
+            strategy.reset();
+        }
+
+    }
+
+    /**
+     * A saturator which hides another one behind the public interface, so
+     * that the solvers only see the contradictions it reports by throwing
+     * an exception.
+     */
+    private static final class ThrowingSaturator implements Saturator {
+
+        private final Saturator saturator;
+
+        /**
+         * Creates a new saturator hiding the given one.
+         *
+         * @param saturator The hidden saturator.
+         */
+        ThrowingSaturator(Saturator saturator) {
+            this.saturator = saturator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean saturate(Board board)
+                throws UnsolvableSudokuException {
+            return saturator.saturate(board);
+        }
+
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * This package provides a benchmark, which compares the solvers on sudoku
+ * files and checks that all of them agree on the solutions.
+ */
+package sudoku.bench;
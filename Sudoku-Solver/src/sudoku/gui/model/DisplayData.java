@@ -1,13 +1,14 @@
 package sudoku.gui.model;
 
+import sudoku.solver.BitMaskBoard;
 import sudoku.solver.Board;
 import sudoku.solver.EnforcedCell;
 import sudoku.solver.EnforcedNumber;
 import sudoku.solver.InvalidSudokuException;
+import sudoku.solver.PortfolioSudokuSolver;
 import sudoku.solver.Structure;
-import sudoku.solver.SudokuBoard;
-import sudoku.solver.SudokuBoardSolver;
 import sudoku.solver.SudokuSolver;
+import sudoku.solver.TrailingSudokuSolver;
 import sudoku.solver.UnsolvableSudokuException;
 import sudoku.util.Observable;
 
@@ -39,7 +40,7 @@ public class DisplayData extends Observable {
     /**
      * The solver that is used to solve the sudoku board.
      */
-    private final SudokuSolver solver;
+    private SudokuSolver solver;
     
     /**
      * The amount of rows in a box.
@@ -84,7 +85,26 @@ public class DisplayData extends Observable {
         }
         
         history = new SudokuHistory(this);
-        solver = new SudokuBoardSolver();
+        setSolverThreads(1);
+    }
+
+    /**
+     * Sets the amount of threads used to solve the sudoku board. With a
+     * single thread, the board is solved by a {@link TrailingSudokuSolver}.
+     * With more threads, the default {@link PortfolioSudokuSolver} races
+     * differently configured searches against each other, which may suggest
+     * different values if the sudoku has multiple solutions.
+     * 
+     * @param threads The amount of threads, which must be greater than 0.
+     */
+    public void setSolverThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException(
+                    "The amount of threads must be greater than 0.");
+        }
+        
+        solver = (threads == 1) ? new TrailingSudokuSolver()
+                : PortfolioSudokuSolver.createDefault(threads);
         solver.addSaturator(new EnforcedNumber());
         solver.addSaturator(new EnforcedCell());
     }
@@ -257,7 +277,7 @@ public class DisplayData extends Observable {
      *                                generated.
      */
     private Board generateIntelligentBoard() throws InvalidSudokuException {
-        Board result = new SudokuBoard(boxRows, boxCols);
+        Board result = new BitMaskBoard(boxRows, boxCols);
         
         for (int major = 0; major < numbers; major++) {
             for (int minor = 0; minor < numbers; minor++) {
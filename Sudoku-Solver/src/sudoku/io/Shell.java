@@ -5,16 +5,26 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
 import java.text.ParseException;
-import java.util.List;
-import java.util.stream.Collectors;
 
+import sudoku.solver.BackjumpingSudokuSolver;
 import sudoku.solver.Board;
+import sudoku.solver.BranchingStrategy;
+import sudoku.solver.CdclSolver;
+import sudoku.solver.DancingLinksSolver;
+import sudoku.solver.DomOverWeightedDegree;
 import sudoku.solver.EnforcedCell;
 import sudoku.solver.EnforcedNumber;
 import sudoku.solver.InvalidSudokuException;
+import sudoku.solver.MinRemainingValues;
+import sudoku.solver.MinRemainingValuesDegree;
+import sudoku.solver.ParallelSudokuBoardSolver;
+import sudoku.solver.PortfolioSudokuSolver;
 import sudoku.solver.SudokuBoardSolver;
 import sudoku.solver.SudokuSolver;
+import sudoku.solver.SymmetryReduction;
+import sudoku.solver.TrailingSudokuSolver;
 
 /**
  * The shell class handles the interaction between the user and the data model
@@ -22,8 +32,23 @@ import sudoku.solver.SudokuSolver;
  */
 public final class Shell {
     
+    /**
+     * The name of the engine that is used if no other one was selected.
+     */
+    private static final String DEFAULT_ENGINE = "trail";
+    
+    /**
+     * The name of the branching strategy that is used if no other one was
+     * selected.
+     */
+    private static final String DEFAULT_BRANCHING = "mrv";
+    
     private static Board currentBoard;
     private static SudokuSolver currentSolver;
+    private static String currentBranching = DEFAULT_BRANCHING;
+    private static boolean currentUnitBranching = false;
+    private static int currentPortfolioThreads
+            = Runtime.getRuntime().availableProcessors();
     
     /** 
      * Private constructor to prevent instantiation. 
@@ -40,7 +65,7 @@ public final class Shell {
      * @throws IOException If an I/O error occurs.
      */
     public static void main(String[] args) throws IOException {
-        setupSolver();
+        setupSolver(DEFAULT_ENGINE);
         
         BufferedReader stdin 
                 = new BufferedReader(new InputStreamReader(System.in));
@@ -108,7 +133,19 @@ public final class Shell {
             break;
             
         case "all":
-            printAllSolutions();
+            printAllSolutions(tokenizedInput);
+            break;
+            
+        case "count":
+            printSolutionCount(tokenizedInput);
+            break;
+            
+        case "engine":
+            selectEngine(tokenizedInput);
+            break;
+            
+        case "branch":
+            selectBranching(tokenizedInput);
             break;
             
         case "help":
@@ -134,25 +171,97 @@ public final class Shell {
 
     /**
      * Prints all possible solutions of the currently loaded board with one
-     * solution per line.
+     * solution per line. Every solution is printed as soon as it is found, so
+     * the solutions do not have to be kept in memory. If the parameter of the
+     * input is {@code symmetric}, only one representative of the solutions
+     * which only differ by a symmetry is printed.
+     * 
+     * @param tokenizedInput The complete tokenized user input.
      */
-    private static void printAllSolutions() {
+    private static void printAllSolutions(String[] tokenizedInput) {
+        if ((tokenizedInput.length >= 2) 
+                && !tokenizedInput[1].equalsIgnoreCase("symmetric")) {
+            printError("Unknown option \"" + tokenizedInput[1] + "\"");
+        } else if (tokenizedInput.length >= 2) {
+            printRepresentatives();
+        } else if (requireLoadedBoard()) {
+            long[] amount = new long[1];
+            currentSolver.findAllSolutions(currentBoard, solution -> {
+                System.out.println(solution);
+                amount[0]++;
+            });
+            
+            if (amount[0] == 0) {
+                printError("This board is unsolvable.");
+            }
+        }
+    }
+
+    /**
+     * Prints one representative of every set of solutions of the currently
+     * loaded board which only differ by a symmetry, and how many solutions
+     * each of them stands for.
+     */
+    private static void printRepresentatives() {
         if (requireLoadedBoard()) {
-            List<Board> solutions 
-                = currentSolver.findAllSolutions(currentBoard);
+            SymmetryReduction reduction = new SymmetryReduction(currentSolver);
+            long[] amount = new long[1];
+            reduction.findRepresentatives(currentBoard, representative -> {
+                System.out.println(representative);
+                amount[0]++;
+            });
             
-            if (solutions.isEmpty()) {
+            if (amount[0] == 0) {
                 printError("This board is unsolvable.");
             } else {
-            
-                // Sort all sudokus and join their string representation.
-                String output = solutions.stream()
-                                         .sorted()
-                                         .map(Board::toString)
-                                         .collect(Collectors.joining("\n"));
-                
-                System.out.println(output);
+                BigInteger orbitSize = reduction.getOrbitSize(currentBoard);
+                System.out.println("Each of them stands for " + orbitSize
+                        + (orbitSize.equals(BigInteger.ONE)
+                                ? " solution." : " solutions."));
+            }
+        }
+    }
+
+    /**
+     * Counts the solutions of the currently loaded board without creating
+     * them and prints the amount. An optional parameter of the input limits
+     * the amount of solutions to count. If the parameter is
+     * {@code symmetric}, all solutions are counted by only counting one
+     * representative of the solutions which only differ by a symmetry.
+     * 
+     * @param tokenizedInput The complete tokenized user input.
+     */
+    private static void printSolutionCount(String[] tokenizedInput) {
+        long limit = Long.MAX_VALUE;
+        if ((tokenizedInput.length >= 2) 
+                && tokenizedInput[1].equalsIgnoreCase("symmetric")) {
+            if (requireLoadedBoard()) {
+                BigInteger amount = new SymmetryReduction(currentSolver)
+                        .countSolutions(currentBoard);
+                System.out.println(amount + (amount.equals(BigInteger.ONE)
+                        ? " solution" : " solutions"));
+            }
+            return;
+        } else if (tokenizedInput.length >= 2) {
+            try {
+                limit = Long.parseLong(tokenizedInput[1]);
+            } catch (NumberFormatException e) {
+                limit = 0;
+            }
+            if (limit < 1) {
+                printError("Invalid limit \"" + tokenizedInput[1] + "\"");
+                return;
+            }
+        }
+        
+        if (requireLoadedBoard()) {
+            long amount = currentSolver.countSolutions(currentBoard, limit);
+            String output 
+                    = amount + ((amount == 1) ? " solution" : " solutions");
+            if (amount == limit) {
+                output = "At least " + output;
             }
+            System.out.println(output);
         }
     }
 
@@ -178,13 +287,166 @@ public final class Shell {
     }
     
     /**
-     * Instantiates a new Solver and registers the {@link EnforcedCell} and
-     * {@link EnforcedNumber} saturators on it.
+     * Selects the engine with the name given in the parameter of the input.
+     * The {@code portfolio} engine takes the amount of threads as optional
+     * second parameter, which is kept until another amount is given.
+     * 
+     * @param tokenizedInput The complete tokenized user input.
      */
-    private static void setupSolver() {
-        currentSolver = new SudokuBoardSolver();
+    private static void selectEngine(String[] tokenizedInput) {
+        if (tokenizedInput.length < 2) {
+            printError("No engine specified.");
+            return;
+        }
+        
+        String engine = tokenizedInput[1].toLowerCase();
+        if ((tokenizedInput.length >= 3) && engine.equals("portfolio")) {
+            int threads;
+            try {
+                threads = Integer.parseInt(tokenizedInput[2]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                printError("Invalid amount of threads \"" + tokenizedInput[2]
+                        + "\"");
+                return;
+            }
+            currentPortfolioThreads = threads;
+        }
+        
+        if (!setupSolver(engine)) {
+            printError("Unknown engine \"" + tokenizedInput[1] + "\"");
+        }
+    }
+    
+    /**
+     * Selects the branching strategy with the name given in the parameter of
+     * the input. If the optional second parameter is {@code units}, numbers
+     * in units are considered as branches as well. The selection is kept when
+     * another engine is selected.
+     * 
+     * @param tokenizedInput The complete tokenized user input.
+     */
+    private static void selectBranching(String[] tokenizedInput) {
+        if (tokenizedInput.length < 2) {
+            printError("No branching strategy specified.");
+            return;
+        }
+        
+        String name = tokenizedInput[1].toLowerCase();
+        boolean units = (tokenizedInput.length >= 3)
+                && tokenizedInput[2].equalsIgnoreCase("units");
+        if (createBranchingStrategy(name) == null) {
+            printError("Unknown branching strategy \"" + tokenizedInput[1]
+                    + "\"");
+        } else if ((tokenizedInput.length >= 3) && !units) {
+            printError("Unknown branching option \"" + tokenizedInput[2]
+                    + "\"");
+        } else {
+            currentBranching = name;
+            currentUnitBranching = units;
+            applyBranching();
+        }
+    }
+    
+    /**
+     * Creates a new instance of the branching strategy with the given name.
+     * The available strategies are {@code mrv} for
+     * {@link MinRemainingValues}, {@code degree} for
+     * {@link MinRemainingValuesDegree} and {@code wdeg} for
+     * {@link DomOverWeightedDegree}.
+     * 
+     * @param name The name of the strategy.
+     * @return The new strategy, or {@code null} if there is no strategy with
+     *         the given name.
+     */
+    private static BranchingStrategy createBranchingStrategy(String name) {
+        switch (name) {
+        case "mrv":
+            return new MinRemainingValues();
+            
+        case "degree":
+            return new MinRemainingValuesDegree();
+            
+        case "wdeg":
+            return new DomOverWeightedDegree();
+            
+        default:
+            return null;
+        }
+    }
+    
+    /**
+     * Sets the currently selected branching strategy and whether units are
+     * branched on on the current solver. Does nothing for engines which do
+     * not branch on cells.
+     */
+    private static void applyBranching() {
+        if (currentSolver instanceof SudokuBoardSolver) {
+            SudokuBoardSolver solver = (SudokuBoardSolver) currentSolver;
+            solver.setBranchingStrategy(
+                    createBranchingStrategy(currentBranching));
+            solver.setUnitBranching(currentUnitBranching);
+        }
+    }
+    
+    /**
+     * Instantiates a new solver of the given engine and registers the
+     * {@link EnforcedCell} and {@link EnforcedNumber} saturators on it. The
+     * available engines are {@code backtracking} for the
+     * {@link SudokuBoardSolver}, {@code trail} for the
+     * {@link TrailingSudokuSolver}, {@code backjump} for the
+     * {@link BackjumpingSudokuSolver}, {@code parallel} for the
+     * {@link ParallelSudokuBoardSolver}, {@code dlx} for the
+     * {@link DancingLinksSolver}, {@code sat} for the {@link CdclSolver} and
+     * {@code portfolio} for the default {@link PortfolioSudokuSolver} with
+     * the selected amount of threads. The selected branching strategy is set
+     * on the new solver.
+     * 
+     * @param engine The name of the engine.
+     * @return {@code false} if there is no engine with the given name. The
+     *         current solver is kept in this case.
+     */
+    private static boolean setupSolver(String engine) {
+        switch (engine) {
+        case "backtracking":
+            currentSolver = new SudokuBoardSolver();
+            break;
+            
+        case "trail":
+            currentSolver = new TrailingSudokuSolver();
+            break;
+            
+        case "backjump":
+            currentSolver = new BackjumpingSudokuSolver();
+            break;
+            
+        case "parallel":
+            currentSolver = new ParallelSudokuBoardSolver();
+            break;
+            
+        case "dlx":
+            currentSolver = new DancingLinksSolver();
+            break;
+            
+        case "sat":
+            currentSolver = new CdclSolver();
+            break;
+            
+        case "portfolio":
+            currentSolver = PortfolioSudokuSolver.createDefault(
+                    currentPortfolioThreads);
+            break;
+            
+        default:
+            return false;
+        }
+        
         currentSolver.addSaturator(new EnforcedCell());
         currentSolver.addSaturator(new EnforcedNumber());
+        applyBranching();
+        return true;
     }
     
     /**
@@ -277,14 +539,52 @@ public final class Shell {
                 + "first    Computes and prints the first found solution of the"
                 + " sudoku if it is solvable.\n"
                 
-                + "all      Generates all possible sudokus and prints them "
-                + "(one sudoku per line) in ascending order.\n"
+                + "all [symmetric]  Generates all possible sudokus and "
+                + "prints them (one sudoku per line) in the order they are "
+                + "found. With \"symmetric\", only one of the solutions "
+                + "which differ by exchanging numbers that are not set or "
+                + "by permuting rows and columns without set cells is "
+                + "printed. These are still searched one by one, which "
+                + "is fast for a blank sudoku with 2x3 boxes, but not "
+                + "feasible for 2x4 boxes or larger ones.\n"
+                
+                + "count [<limit>|symmetric]  Counts the solutions of the "
+                + "sudoku without printing them. The counting stops at the "
+                + "optional limit. With \"symmetric\", only one of the "
+                + "solutions which differ like above is searched, which "
+                + "makes counting blank sudokus a lot faster. Blank "
+                + "sudokus with boxes of two rows or columns and up to 8 "
+                + "numbers are counted without searching, which takes "
+                + "less than a second for 2x4 boxes.\n"
                 
                 + "saturate Prints the sudoku with all strategies applied if "
                 + "they do not lead to an unsolvable sudoku. Since this will "
                 + "not do any backtracking, the provided sudoku can, but does "
                 + "not have to be fully solved.\n"
                 
+                + "engine <name>    Selects the engine used to solve "
+                + "sudokus, which is one of \"backtracking\", \"trail\" "
+                + "(default), \"backjump\" (skips decisions not responsible "
+                + "for a dead end, for hard or unsolvable sudokus), "
+                + "\"parallel\" (multithreaded backtracking), "
+                + "\"dlx\" (Dancing Links), \"sat\" (clause learning, for "
+                + "large or hard sudokus) and \"portfolio [<threads>]\" "
+                + "(races differently configured searches on the given "
+                + "amount of threads, by default one per processor). All "
+                + "engines find the same solutions, but the portfolio may "
+                + "print a different first one.\n"
+                
+                + "branch <name> [units]    Selects how the cell to branch "
+                + "on is chosen, which is one of \"mrv\" (default, fewest "
+                + "possibilities), \"degree\" (fewest possibilities, then "
+                + "most unset neighbours) and \"wdeg\" (fewest possibilities "
+                + "relative to the failures of the cell's rows, columns and "
+                + "boxes). With \"units\", a number with fewer possible "
+                + "positions in a row, column or box than the chosen cell "
+                + "has possibilities is placed in each of them instead. The "
+                + "solutions may be found in a different order. The \"dlx\", "
+                + "\"sat\" and \"portfolio\" engines are not affected.\n"
+                
                 + "print    Prints the currently loaded sudoku.\n"
                 
                 + "help     Shows this help text.\n"
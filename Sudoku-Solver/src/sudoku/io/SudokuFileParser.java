@@ -8,10 +8,10 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.Optional;
 
+import sudoku.solver.BitMaskBoard;
 import sudoku.solver.Board;
 import sudoku.solver.InvalidSudokuException;
 import sudoku.solver.Structure;
-import sudoku.solver.SudokuBoard;
 
 /**
  * This class provides the functionality to read a sudoku-file and generate a
@@ -78,7 +78,7 @@ public final class SudokuFileParser {
             Optional<Integer> rows = parseInt(dimensions[0]);
             Optional<Integer> cols = parseInt(dimensions[1]);
             if (rows.isPresent() && cols.isPresent()) {
-                return new SudokuBoard(rows.get(), cols.get());
+                return new BitMaskBoard(rows.get(), cols.get());
             }
         }
         
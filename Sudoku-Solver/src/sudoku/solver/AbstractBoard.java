@@ -0,0 +1,383 @@
+package sudoku.solver;
+
+/**
+ * A skeletal implementation of the {@link Board} interface, which provides the
+ * comparison and the string representations of a board based on
+ * {@link Board#getCell(Structure, int, int)}, as well as the array of all
+ * possibilities of a cell. Implementations only have to care about how the
+ * cells and their possibilities are stored.
+ */
+abstract class AbstractBoard implements Board {
+
+    /**
+     * {@inheritDoc}
+     * The array is filled by iterating over the possibilities using
+     * {@link #getNextPossibility(Structure, int, int, int)}.
+     */
+    @Override
+    public int[] getPossibilities(Structure struct, int major, int minor) {
+        if (getCell(struct, major, minor) != Board.UNSET_CELL) {
+            return null;
+        }
+
+        int[] possibilities
+                = new int[getPossibilityCount(struct, major, minor)];
+        int number = getNextPossibility(struct, major, minor, 0);
+        for (int i = 0; i < possibilities.length; i++) {
+            possibilities[i] = number;
+            number = getNextPossibility(struct, major, minor, number);
+        }
+        return possibilities;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Implementations have to provide this without calling
+     * {@link #getPossibilities(Structure, int, int)}, which is based on it.
+     */
+    @Override
+    public abstract int getPossibilityCount(Structure struct, int major,
+            int minor);
+
+    /**
+     * {@inheritDoc}
+     * Implementations have to provide this without calling
+     * {@link #getPossibilities(Structure, int, int)}, which is based on it.
+     */
+    @Override
+    public abstract int getNextPossibility(Structure struct, int major,
+            int minor, int number);
+
+    /**
+     * Gets the shared geometry of the board, which must match the
+     * box-dimensions of the board.
+     *
+     * @return The geometry of the board.
+     */
+    abstract Geometry getGeometry();
+
+    /**
+     * Gets the possible values of a cell as bit mask like
+     * {@link #getPossibilityMask(Structure, int, int)}, but addressed by the
+     * absolute index of the cell.
+     *
+     * @param index The absolute index of the cell.
+     * @return The mask of the possible values, or {@code 0} if the cell is
+     *         already set.
+     */
+    long getPossibilityMask(int index) {
+        Geometry geometry = getGeometry();
+        return getPossibilityMask(Structure.ROW, geometry.getRow(index),
+                geometry.getColumn(index));
+    }
+
+    /**
+     * Sets a cell like {@link #setCell(Structure, int, int, int)}, but
+     * reports an unsolvable sudoku by the result instead of an exception, so
+     * that solvers do not pay for creating exceptions in dead branches. The
+     * board may be changed partially if the result is {@code false}.
+     *
+     * @param index The absolute index of the cell.
+     * @param number The number to set, which must be in the range of the
+     *        board.
+     * @return {@code false} if the number is not possible in the cell or
+     *         setting it leaves another cell without possibilities.
+     * @throws IllegalStateException Trying to overwrite a fixed cell.
+     */
+    boolean trySetCell(int index, int number) {
+        Geometry geometry = getGeometry();
+        try {
+            setCell(Structure.ROW, geometry.getRow(index),
+                    geometry.getColumn(index), number);
+        } catch (InvalidSudokuException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a possibility like
+     * {@link #removePossibility(Structure, int, int, int)}, but reports an
+     * unsolvable sudoku by the result instead of an exception.
+     *
+     * @param index The absolute index of the cell.
+     * @param number The number to remove.
+     * @return {@code false} if the cell has no possibilities left.
+     * @see #trySetCell(int, int)
+     */
+    boolean tryRemovePossibility(int index, int number) {
+        Geometry geometry = getGeometry();
+        try {
+            removePossibility(Structure.ROW, geometry.getRow(index),
+                    geometry.getColumn(index), number);
+        } catch (InvalidSudokuException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets a cell of any board without throwing an exception if the sudoku
+     * turns out to be unsolvable.
+     *
+     * @param board The board.
+     * @param index The absolute index of the cell.
+     * @param number The number to set.
+     * @return {@code false} if the board is unsolvable afterwards.
+     * @see #trySetCell(int, int)
+     */
+    static boolean trySetCell(Board board, int index, int number) {
+        if (board instanceof AbstractBoard) {
+            return ((AbstractBoard) board).trySetCell(index, number);
+        }
+        try {
+            board.setCell(Structure.ROW, index / board.getNumbers(),
+                    index % board.getNumbers(), number);
+        } catch (InvalidSudokuException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a possibility of a cell of any board without throwing an
+     * exception if the sudoku turns out to be unsolvable.
+     *
+     * @param board The board.
+     * @param index The absolute index of the cell.
+     * @param number The number to remove.
+     * @return {@code false} if the cell has no possibilities left.
+     * @see #tryRemovePossibility(int, int)
+     */
+    static boolean tryRemovePossibility(Board board, int index, int number) {
+        if (board instanceof AbstractBoard) {
+            return ((AbstractBoard) board).tryRemovePossibility(index, number);
+        }
+        try {
+            board.removePossibility(Structure.ROW, index / board.getNumbers(),
+                    index % board.getNumbers(), number);
+        } catch (InvalidSudokuException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the amount of possible values of a cell like
+     * {@link #getPossibilityCount(Structure, int, int)}, but addressed by the
+     * absolute index of the cell.
+     *
+     * @param index The absolute index of the cell.
+     * @return The amount of possible values, or {@code 0} if the cell is
+     *         already set.
+     */
+    int getPossibilityCount(int index) {
+        Geometry geometry = getGeometry();
+        return getPossibilityCount(Structure.ROW, geometry.getRow(index),
+                geometry.getColumn(index));
+    }
+
+    /**
+     * Gets the lowest amount of possible values of all unset cells. Unless the
+     * board maintains the amounts of its cells, all cells are looked at.
+     *
+     * @return The minimum amount of possible values of an unset cell, or
+     *         {@code 0} if all cells are set.
+     */
+    int getMinPossibilityCount() {
+        int min = 0;
+        for (int index = 0; index < getGeometry().getCellCount(); index++) {
+            int count = getPossibilityCount(index);
+            if ((count > 0) && ((min == 0) || (count < min))) {
+                min = count;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Finds the next unset cell in row-major order which has exactly the
+     * given amount of possible values. Unless the board maintains the cells
+     * of every amount, the cells are looked at one by one.
+     *
+     * @param count The amount of possible values, at least {@code 1}.
+     * @param from The absolute index of the first cell to look at.
+     * @return The absolute index of the found cell, or {@code -1} if there is
+     *         no such cell at or after {@code from}.
+     */
+    int getNextCellWithCount(int count, int from) {
+        for (int index = from; index < getGeometry().getCellCount(); index++) {
+            if (getPossibilityCount(index) == count) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the board keeps the masks returned by
+     * {@link #getPositionMask(int, int)} up to date, so that reading them
+     * does not require to look at the cells of the unit.
+     *
+     * @return {@code true} if the position masks are maintained by the board.
+     */
+    boolean hasPositionMasks() {
+        return false;
+    }
+
+    /**
+     * Gets the unset cells of a unit which can still be set to a number as
+     * bit mask, where the bit of a cell is its minor coordinate in the unit.
+     * This is the transposed view of the possibility masks of the cells of
+     * the unit, so it is computed from them unless the board maintains it.
+     *
+     * @param unit The unit.
+     * @param number The number.
+     * @return The mask of the possible positions of the number in the unit.
+     * @throws UnsupportedOperationException The board has more than 64
+     *         numbers.
+     * @see #hasPositionMasks()
+     */
+    long getPositionMask(int unit, int number) {
+        int[] cells = getGeometry().getCells(unit);
+        long bit = 1L << (number - 1);
+        long positions = 0;
+        for (int minor = 0; minor < cells.length; minor++) {
+            if ((getPossibilityMask(cells[minor]) & bit) != 0) {
+                positions |= 1L << minor;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Gets the amount of possibilities removed from the cells of this board
+     * so far, including the possibilities removed by setting cells. The
+     * counter is not reverted when the board is, so the difference between
+     * two readings tells how much work happened in between.
+     *
+     * @return The amount of removed possibilities.
+     */
+    abstract long getEliminationCount();
+
+    /**
+     * Gets a board with the cells and possibilities of the given board which
+     * provides the methods of this class. Boards of other implementations
+     * are copied, so the result must not be changed.
+     *
+     * @param board The board.
+     * @return The board itself or a copy of it.
+     */
+    static AbstractBoard of(Board board) {
+        if (board instanceof AbstractBoard) {
+            return (AbstractBoard) board;
+        }
+        return BitMaskBoard.copyOf(board);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Because the boards are read as numbers, if a board contains less numbers
+     * than the other, it is treated as smaller.
+     */
+    @Override
+    public int compareTo(Board other) {
+        int numbers = getNumbers();
+
+        // Compare the size first.
+        if (numbers > other.getNumbers()) {
+            return 1;
+        } else if (numbers < other.getNumbers()) {
+            return -1;
+        }
+
+        Structure struct = Structure.ROW;
+        for (int structNr = 0; structNr < numbers; structNr++) {
+            for (int cellNr = 0; cellNr < numbers; cellNr++) {
+                int a = getCell(struct, structNr, cellNr);
+                int b = other.getCell(struct, structNr, cellNr);
+                if (a != b) {
+                    if ((a == Board.UNSET_CELL)
+                            || ((b != Board.UNSET_CELL) && (a > b))) {
+                        return 1;
+                    } else {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * This creates a shallow copy of the board, so implementations have to
+     * deep copy their internal data structures afterwards.
+     */
+    @Override
+    public AbstractBoard clone() {
+        try {
+            return (AbstractBoard) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Unset cells are represented by a dot. Leading whitespace is added so that
+     * every cells string representation has the same length and the columns are
+     * aligned properly.
+     */
+    @Override
+    public String prettyPrint() {
+        return printHelper(" ", "\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Unset cells are represented by a dot. Leading whitespace is added so that
+     * every cells string representation has the same length and different
+     * sudokus can be compared better.
+     */
+    @Override
+    public String toString() {
+        return printHelper(" ", " ");
+    }
+
+    /**
+     * Returns a string representation of the sudoku. This method concatenates
+     * the string representation of each cell in a row with the column separator
+     * and each row with the row separator. A cell is represented by its value
+     * if it is set, and by a dot if not.
+     *
+     * @param colSeparator The delimiter between each column.
+     * @param rowSeparator The delimiter between each row.
+     * @return The string representation.
+     */
+    private String printHelper(String colSeparator, String rowSeparator) {
+        StringBuilder result = new StringBuilder();
+        int numbers = getNumbers();
+        String format = "%" + (int) (Math.log10(numbers) + 1) + "s";
+
+        for (int row = 0; row < numbers; row++) {
+            for (int col = 0; col < numbers; col++) {
+
+                // Create the string representation with equal length.
+                int value = getCell(Structure.ROW, row, col);
+                String cell = (value == Board.UNSET_CELL)
+                        ? "." : Integer.toString(value);
+                result.append(String.format(format, cell));
+
+                // If necessary, append the row or column delimiter.
+                if (col < numbers - 1) {
+                    result.append(colSeparator);
+                } else if (row < numbers - 1) {
+                    result.append(rowSeparator);
+                }
+            }
+        }
+        return result.toString();
+    }
+
+}
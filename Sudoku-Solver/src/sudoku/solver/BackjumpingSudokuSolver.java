@@ -0,0 +1,171 @@
+package sudoku.solver;
+
+import java.util.function.Consumer;
+
+/**
+ * A BackjumpingSudokuSolver searches on a single board like the
+ * {@link TrailingSudokuSolver}, but it does not simply try the next
+ * alternative after a dead end. A {@link ConflictAnalyzer} tracks which
+ * decisions every removed possibility depends on, so when a branch point ran
+ * out of alternatives, the search jumps back to the latest decision which is
+ * responsible for it. The branch points in between are skipped, as their
+ * other alternatives would fail for the same reason. The decisions
+ * responsible for a dead end are kept as nogood for the rest of the search,
+ * so that the board is pruned as soon as they hold together again.
+ * <p>
+ * Jumps are only taken out of parts of the search tree without any
+ * solution, so the solutions are found in the same order as by the
+ * {@link SudokuBoardSolver}, unless the branching strategy learns from the
+ * failures, which are fewer. The saturators registered beyond
+ * {@link EnforcedCell} and {@link EnforcedNumber} still prune the board, but
+ * their changes are assumed to depend on all decisions made so far, so they
+ * make the jumps shorter. Sudokus with 64 or more numbers are solved without
+ * jumping. Like the {@link TrailingSudokuSolver}, the search stops early if
+ * the current thread is interrupted.
+ */
+public class BackjumpingSudokuSolver extends SudokuBoardSolver {
+
+    /**
+     * Tries to solve a given sudoku using backtracking on a single working
+     * board, which jumps back over the decisions not responsible for a dead
+     * end. The saturators are used to speed up the process of sorting out
+     * unsolvable boards.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    @Override
+    long solve(Board board, long limit, Consumer<? super Board> action) {
+        if (board.getNumbers() >= Long.SIZE) {
+            return super.solve(board, limit, action);
+        }
+
+        long solutions = 0;
+        BitMaskBoard workingBoard = BitMaskBoard.copyOf(board);
+        PropagationQueue queue
+                = createPropagationQueue(workingBoard.getGeometry());
+        ConflictAnalyzer analyzer
+                = new ConflictAnalyzer(workingBoard.getGeometry());
+        workingBoard.startTrail();
+        workingBoard.startCountBuckets();
+        if (readsPositionMasks() || isUnitBranching()) {
+            workingBoard.startPositionMasks();
+        }
+        workingBoard.setPropagationQueue(queue);
+        queue.addAll(); // Nothing of the initial board is saturated yet.
+
+        /*
+         * The branch points on the current path like in the
+         * TrailingSudokuSolver. The alternative of the branch point at the
+         * index level - 1 is the decision of the level. The branch points
+         * below the depth of the last solution found are left one by one,
+         * as the decisions responsible for their failed alternatives do not
+         * exclude their solutions.
+         */
+        int numbers = board.getNumbers();
+        int cellCount = numbers * numbers;
+        int[] branches = new int[cellCount];
+        int[] branchMarks = new int[cellCount];
+        int[] branchAlternatives = new int[cellCount];
+        int depth = 0;
+        int solvedDepth = 0;
+
+        boolean consistent = saturateIncrementally(workingBoard, queue);
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return solutions; // The search was cancelled.
+            } else if (consistent) {
+                if (workingBoard.isSolution()) {
+                    solutions++;
+                    if (action != null) {
+                        action.accept(workingBoard.clone());
+                    }
+                    if (solutions == limit) {
+                        return solutions;
+                    }
+                    solvedDepth = depth;
+                } else {
+                    branches[depth] = selectBranch(workingBoard);
+                    branchMarks[depth] = workingBoard.getTrailMark();
+                    branchAlternatives[depth] = NO_ALTERNATIVE;
+                    depth++;
+                    analyzer.startBranchPoint(workingBoard, depth,
+                            branches[depth - 1]);
+                }
+            }
+
+            // Try the next alternative of the innermost branch point left.
+            consistent = false;
+            while (!consistent) {
+                if (depth == 0) {
+                    return solutions;
+                }
+
+                workingBoard.rollback(branchMarks[depth - 1]);
+                int alternative = nextAlternative(workingBoard,
+                        branches[depth - 1], branchAlternatives[depth - 1]);
+
+                if (alternative == NO_ALTERNATIVE) {
+                    if (depth <= solvedDepth) {
+                        depth--; // Backtrack to keep the solutions.
+                        solvedDepth = depth;
+                    } else {
+                        depth = analyzer.backjump(depth, branchAlternatives);
+                    }
+                } else {
+                    branchAlternatives[depth - 1] = alternative;
+                    int index = alternative / numbers;
+                    consistent = assign(workingBoard, queue, analyzer, depth,
+                            alternative);
+                    if (!consistent) {
+                        recordBranchFailure(workingBoard, index);
+                        depth = analyzer.analyzeFailure(depth);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes a decision on the working board and saturates it afterwards,
+     * including the nogoods. The reasons of all changes are recorded.
+     *
+     * @param board The working board.
+     * @param queue The queue receiving the changes of the working board.
+     * @param analyzer The analyzer recording the reasons of the changes.
+     * @param level The level of the decision.
+     * @param decision The decision, encoded as {@code cell * numbers + number
+     *        - 1}.
+     * @return {@code false} if the board turned out to be unsolvable.
+     */
+    private boolean assign(BitMaskBoard board, PropagationQueue queue,
+            ConflictAnalyzer analyzer, int level, int decision) {
+        int numbers = board.getNumbers();
+        int mark = board.getTrailMark();
+        boolean consistent = board.trySetCell(decision / numbers,
+                decision % numbers + 1)
+                && saturateIncrementally(board, queue);
+        analyzer.record(board, mark, level, decision);
+
+        while (consistent) {
+            mark = board.getTrailMark();
+            SaturationResult result = analyzer.propagateNogoods(board);
+            if (result != SaturationResult.CHANGED) {
+                consistent = (result == SaturationResult.UNCHANGED);
+                break;
+            }
+            consistent = saturateIncrementally(board, queue);
+            analyzer.record(board, mark, level,
+                    ConflictAnalyzer.NO_DECISION);
+        }
+
+        if (!consistent) {
+            queue.clear(); // The changes are reverted by the next rollback.
+        }
+        return consistent;
+    }
+
+}
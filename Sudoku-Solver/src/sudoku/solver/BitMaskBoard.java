@@ -0,0 +1,864 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * A BitMaskBoard is an intelligent board which stores the possibilities of all
+ * cells as bit masks in one flat primitive array.
+ * <p>
+ * Every cell occupies the same amount of consecutive {@code long} words. The
+ * bit {@code number - 1} is set if the cell can still be set to
+ * {@code number}, and the bit directly after the highest number marks the cell
+ * as fixed. Sudokus with up to 63 numbers therefore only need a single word
+ * per cell, larger sudokus use multiple words per cell.
+ * <p>
+ * As the whole board is one array, cloning a board does not create any other
+ * objects than the copy of this array. Alternatively, all changes of a board
+ * can be recorded on a {@link Trail}, so that they can be reverted without
+ * cloning the board at all, and all changed cells can be collected in a
+ * {@link PropagationQueue}, so that they can be saturated incrementally.
+ * <p>
+ * Boards with up to 64 numbers can additionally maintain the transposed view
+ * of the possibilities: the possible positions of every number in every unit,
+ * which are kept in sync with the cells on every change. Every board can also
+ * sort its unset cells into buckets by their amount of possibilities, so that
+ * the cells with the fewest possibilities are found without looking at all
+ * cells. The amount of unset cells is counted all the time, so checking
+ * whether a board is solved does not look at the cells either.
+ */
+public class BitMaskBoard extends AbstractBoard {
+
+    /**
+     * The binary logarithm of the amount of bits per word of the board array.
+     * The bit position inside of a word does not need to be masked, as shifts
+     * of {@code long} values only use the lowest six bits of the distance.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * The position used in the trail for changes of the last set cell.
+     */
+    private static final int LAST_CELL_SET_POSITION = -1;
+
+    private final Geometry geometry;
+    private final int numbers;
+
+    /**
+     * The amount of words each cell occupies in the board array.
+     */
+    private final int wordsPerCell;
+
+    /**
+     * The relative index of the word containing the fixed flag of a cell.
+     */
+    private final int fixedWord;
+
+    /**
+     * The mask of the fixed flag inside of the {@link #fixedWord}.
+     */
+    private final long fixedBit;
+
+    private long[] board;
+    private int lastCellSetIndex;
+
+    /**
+     * The amount of cells which are not fixed yet.
+     */
+    private int unsetCells;
+
+    /**
+     * The trail recording all changes of this board, or {@code null} if the
+     * changes are not recorded.
+     */
+    private Trail trail;
+
+    /**
+     * The queue receiving all changed cells of this board, or {@code null} if
+     * the changes are not propagated.
+     */
+    private PropagationQueue queue;
+
+    /**
+     * The possible positions of every number in every unit as bit masks of
+     * minor coordinates, at the index {@code unit * numbers + number - 1}, or
+     * {@code null} if they are not maintained.
+     */
+    private long[] positions;
+
+    /**
+     * The unset cells with every amount of possibilities as bit sets over the
+     * cell indices, where the set of the amount {@code count} starts at
+     * {@code count * cellWords}, or {@code null} if they are not maintained.
+     */
+    private long[] buckets;
+
+    /**
+     * The amount of cells in every bucket.
+     */
+    private int[] bucketSizes;
+
+    /**
+     * The amount of words of a bit set over all cells.
+     */
+    private final int cellWords;
+
+    /**
+     * The amount of possibilities removed so far.
+     */
+    private long eliminationCount;
+
+    /**
+     * Creates a new BitMaskBoard with the given box-dimensions. Initially no
+     * cells are fixed and every value between {@code 1} and {@code boxRows
+     * * boxCols} is possible for every cell.
+     *
+     * @param boxRows The amount of rows per box.
+     * @param boxCols The amount of columns per box.
+     */
+    public BitMaskBoard(int boxRows, int boxCols) {
+        geometry = Geometry.of(boxRows, boxCols);
+        numbers = geometry.getNumbers();
+        wordsPerCell = (numbers >>> WORD_SHIFT) + 1;
+        fixedWord = numbers >>> WORD_SHIFT;
+        fixedBit = 1L << numbers;
+        cellWords = ((numbers * numbers - 1) >>> WORD_SHIFT) + 1;
+
+        // Every number is possible in every cell.
+        long[] initialCell = new long[wordsPerCell];
+        for (int word = 0; word < fixedWord; word++) {
+            initialCell[word] = -1L;
+        }
+        initialCell[fixedWord] = fixedBit - 1;
+
+        int boardElements = numbers * numbers;
+        board = new long[boardElements * wordsPerCell];
+        for (int i = 0; i < boardElements; i++) {
+            System.arraycopy(initialCell, 0, board, i * wordsPerCell,
+                    wordsPerCell);
+        }
+        unsetCells = boardElements;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Setting a cells content to a number removes this number from the
+     * possible values in all other cells sharing a structure with the specified
+     * cell.
+     * <p>
+     * A sudoku is seen as unsolvable if and only if a structure contains a
+     * duplicate or a cell that can not be set to any number without causing a
+     * duplicate. It does not check if every structure can contain all numbers.
+     *
+     * @throws IllegalStateException Trying to overwrite a fixed cell.
+     */
+    @Override
+    public void setCell(Structure struct, int major, int minor, int number)
+            throws InvalidSudokuException {
+        int index = geometry.getIndex(struct, major, minor);
+
+        if (isFixed(index)) {
+            throw new IllegalStateException("This cell is already fixed.");
+        } else if (number == Board.UNSET_CELL) {
+            return;
+        } else if ((number < 1) || (number > numbers)) {
+            throw new IllegalArgumentException(
+                    "This sudoku only allows numbers between 1 and " + numbers);
+        } else if (!isPossible(index, number)) {
+            throw new InvalidSudokuException(
+                    "This cell cannot be set to " + number);
+        } else if (!trySetCell(index, number)) {
+            throw new InvalidSudokuException("The sudoku contains a "
+                    + "cell with no possibilities left");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean trySetCell(int index, int number) {
+        if (isFixed(index)) {
+            throw new IllegalStateException("This cell is already fixed.");
+        } else if (!isPossible(index, number)) {
+            return false;
+        }
+
+        // Clear all bits except the bit of the number and set the fixed flag.
+        eliminationCount += countPossibilities(index) - 1;
+        int offset = index * wordsPerCell;
+        int numberWord = (number - 1) >>> WORD_SHIFT;
+        for (int word = 0; word < wordsPerCell; word++) {
+            long bits = (word == numberWord) ? 1L << (number - 1) : 0;
+            if (word == fixedWord) {
+                bits |= fixedBit;
+            }
+            write(offset + word, bits);
+        }
+        if (trail != null) {
+            trail.record(LAST_CELL_SET_POSITION, lastCellSetIndex);
+        }
+        lastCellSetIndex = index;
+
+        // Remove the number from all cells sharing a structure with this cell.
+        for (int peer : geometry.getPeers(index)) {
+            if (!tryRemovePossibility(peer, number)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Does nothing if the cell is already set to a fixed value.
+     */
+    @Override
+    public void removePossibility(Structure struct, int major, int minor,
+            int number) throws InvalidSudokuException {
+        if (!tryRemovePossibility(geometry.getIndex(struct, major, minor),
+                number)) {
+            throw new InvalidSudokuException("The sudoku contains a "
+                    + "cell with no possibilities left");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Does nothing if the cell is already set to a fixed value.
+     */
+    @Override
+    boolean tryRemovePossibility(int index, int number) {
+        int position = index * wordsPerCell + ((number - 1) >>> WORD_SHIFT);
+        long bit = 1L << (number - 1);
+
+        if (!isFixed(index) && ((board[position] & bit) != 0)) {
+            write(position, board[position] & ~bit);
+            eliminationCount++;
+            return countPossibilities(index) != 0;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * A board is correctly solved if and only if every cells content was set
+     * successfully.
+     */
+    @Override
+    public boolean isSolution() {
+        return unsetCells == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPossibilityCount(Structure struct, int major, int minor) {
+        return getPossibilityCount(geometry.getIndex(struct, major, minor));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int getPossibilityCount(int index) {
+        return isFixed(index) ? 0 : countPossibilities(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNextPossibility(Structure struct, int major, int minor,
+            int number) {
+        int index = geometry.getIndex(struct, major, minor);
+        if (isFixed(index) || (number >= numbers)) {
+            return Board.UNSET_CELL;
+        }
+
+        /*
+         * The bit of the next number is at the position of the current number,
+         * as the numbers are stored 0-indexed. All lower bits of its word are
+         * masked out, and the fixed flag is never set for an unset cell.
+         */
+        int offset = index * wordsPerCell;
+        int word = number >>> WORD_SHIFT;
+        long bits = board[offset + word] & (-1L << number);
+        while (bits == 0) {
+            word++;
+            if (word == wordsPerCell) {
+                return Board.UNSET_CELL;
+            }
+            bits = board[offset + word];
+        }
+        return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits) + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPossibilityMask(Structure struct, int major, int minor) {
+        return getPossibilityMask(geometry.getIndex(struct, major, minor));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    long getPossibilityMask(int index) {
+        if (numbers > Long.SIZE) {
+            throw new UnsupportedOperationException(
+                    "Only boards with up to " + Long.SIZE + " numbers have a "
+                    + "possibility mask.");
+        }
+        return isFixed(index) ? 0 : board[index * wordsPerCell];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBoxRows() {
+        return geometry.getBoxRows();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBoxColumns() {
+        return geometry.getBoxColumns();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumbers() {
+        return numbers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getLastCellSet() {
+        return new int[] {
+                geometry.getStructNr(lastCellSetIndex, Structure.ROW),
+                geometry.getStructNr(lastCellSetIndex, Structure.COL) };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCell(Structure struct, int major, int minor) {
+        int index = geometry.getIndex(struct, major, minor);
+
+        if (isFixed(index)) {
+            return getFixedCell(index);
+        } else {
+            return Board.UNSET_CELL;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The board array, the position masks and the buckets are copied as a
+     * whole, so the clone is completely independent of this board.
+     */
+    @Override
+    public BitMaskBoard clone() {
+        BitMaskBoard copy = (BitMaskBoard) super.clone();
+
+        copy.board = new long[board.length];
+        System.arraycopy(board, 0, copy.board, 0, board.length);
+        if (positions != null) {
+            copy.positions = positions.clone();
+        }
+        if (buckets != null) {
+            copy.buckets = buckets.clone();
+            copy.bucketSizes = bucketSizes.clone();
+        }
+        copy.trail = null;
+        copy.queue = null;
+        return copy;
+    }
+
+    /**
+     * Creates a BitMaskBoard with the same cells and possibilities as the
+     * given board. If the given board is a BitMaskBoard, it is cloned.
+     *
+     * @param other The board to copy.
+     * @return The copy of the board.
+     */
+    static BitMaskBoard copyOf(Board other) {
+        if (other instanceof BitMaskBoard) {
+            return ((BitMaskBoard) other).clone();
+        }
+
+        BitMaskBoard copy = new BitMaskBoard(other.getBoxRows(),
+                other.getBoxColumns());
+        Structure struct = Structure.ROW;
+
+        // Start without any possibilities and copy them cell by cell.
+        Arrays.fill(copy.board, 0);
+        for (int row = 0; row < copy.numbers; row++) {
+            for (int col = 0; col < copy.numbers; col++) {
+                int offset = (row * copy.numbers + col) * copy.wordsPerCell;
+                int number = other.getCell(struct, row, col);
+                if (number != Board.UNSET_CELL) {
+                    copy.board[offset + ((number - 1) >>> WORD_SHIFT)]
+                            = 1L << (number - 1);
+                    copy.board[offset + copy.fixedWord] |= copy.fixedBit;
+                    copy.unsetCells--;
+                } else {
+                    number = other.getNextPossibility(struct, row, col, 0);
+                    while (number != Board.UNSET_CELL) {
+                        copy.board[offset + ((number - 1) >>> WORD_SHIFT)]
+                                |= 1L << (number - 1);
+                        number = other.getNextPossibility(struct, row, col,
+                                number);
+                    }
+                }
+            }
+        }
+
+        int[] lastCellSet = other.getLastCellSet();
+        if (lastCellSet != null) {
+            copy.lastCellSetIndex = lastCellSet[0] * copy.numbers
+                    + lastCellSet[1];
+        }
+        return copy;
+    }
+
+    /**
+     * Creates a solved BitMaskBoard with the given numbers in its cells. The
+     * numbers are not checked, so they must form a solution.
+     *
+     * @param boxRows The amount of rows per box.
+     * @param boxCols The amount of columns per box.
+     * @param numbers The number of every cell in row-major order.
+     * @param lastCellSet The row-major index of the cell which was set last.
+     * @return The solved board.
+     */
+    static BitMaskBoard ofSolution(int boxRows, int boxCols, int[] numbers,
+            int lastCellSet) {
+        BitMaskBoard solution = new BitMaskBoard(boxRows, boxCols);
+        Arrays.fill(solution.board, 0);
+        for (int index = 0; index < numbers.length; index++) {
+            int offset = index * solution.wordsPerCell;
+            int number = numbers[index];
+            solution.board[offset + ((number - 1) >>> WORD_SHIFT)]
+                    = 1L << (number - 1);
+            solution.board[offset + solution.fixedWord] |= solution.fixedBit;
+        }
+        solution.unsetCells = 0;
+        solution.lastCellSetIndex = lastCellSet;
+        return solution;
+    }
+
+    /**
+     * Starts recording all following changes of this board, so that they can
+     * be reverted with {@link #rollback(int)}. Does nothing if the changes
+     * are already recorded.
+     */
+    void startTrail() {
+        if (trail == null) {
+            trail = new Trail();
+        }
+    }
+
+    /**
+     * Gets a mark of the current state of the board. The board can later be
+     * reverted to this state by passing the mark to {@link #rollback(int)}.
+     *
+     * @return The mark of the current state.
+     * @throws IllegalStateException The changes of this board are not
+     *         recorded.
+     */
+    int getTrailMark() {
+        if (trail == null) {
+            throw new IllegalStateException("The trail was not started.");
+        }
+        return trail.size();
+    }
+
+    /**
+     * Reverts all changes made after the given mark was taken.
+     *
+     * @param mark The mark of the state to revert to.
+     * @see #getTrailMark()
+     */
+    void rollback(int mark) {
+        while (trail.size() > mark) {
+            int position = trail.lastPosition();
+            if (position == LAST_CELL_SET_POSITION) {
+                lastCellSetIndex = (int) trail.lastValue();
+            } else {
+                replace(position, trail.lastValue());
+            }
+            trail.pop();
+        }
+    }
+
+    /**
+     * Gets the changes of the cells made after the given mark was taken, in
+     * the order they were made. A change is described by the cell and its
+     * word before and after the change, where the bit {@code number - 1} is
+     * set for every possible number and the bit {@code numbers} marks the
+     * cell as fixed. The arrays receiving the changes must be large enough to
+     * hold all of them.
+     *
+     * @param mark The mark of the state before the changes.
+     * @param cells Receives the absolute index of the cell of every change.
+     * @param oldWords Receives the word of the cell before every change.
+     * @param newWords Receives the word of the cell after every change.
+     * @param state Receives the words of all cells in the state of the mark.
+     * @return The amount of changes.
+     * @throws UnsupportedOperationException The board has more than 63
+     *         numbers, so a cell occupies multiple words.
+     * @see #getTrailMark()
+     */
+    int getChanges(int mark, int[] cells, long[] oldWords, long[] newWords,
+            long[] state) {
+        if (wordsPerCell > 1) {
+            throw new UnsupportedOperationException("Only boards with less "
+                    + "than " + Long.SIZE + " numbers have a word per cell.");
+        }
+
+        int count = 0;
+        for (int entry = mark; entry < trail.size(); entry++) {
+            if (trail.getPosition(entry) != LAST_CELL_SET_POSITION) {
+                count++;
+            }
+        }
+
+        // Revert the changes on the copy from the latest to the earliest.
+        System.arraycopy(board, 0, state, 0, board.length);
+        int change = count;
+        for (int entry = trail.size() - 1; entry >= mark; entry--) {
+            int position = trail.getPosition(entry);
+            if (position != LAST_CELL_SET_POSITION) {
+                change--;
+                cells[change] = position;
+                newWords[change] = state[position];
+                oldWords[change] = trail.getValue(entry);
+                state[position] = oldWords[change];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets the queue which receives every cell of this board changed
+     * afterwards. Reverting changes with {@link #rollback(int)} does not add
+     * any cells.
+     *
+     * @param queue The queue to add the changed cells to, or {@code null} to
+     *        stop adding them.
+     */
+    void setPropagationQueue(PropagationQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * Starts maintaining the possible positions of every number in every
+     * unit, so that {@link #getPositionMask(int, int)} does not have to look
+     * at the cells anymore. Does nothing if they are already maintained or if
+     * the board has more than 64 numbers.
+     */
+    void startPositionMasks() {
+        if ((positions != null) || (numbers > Long.SIZE)) {
+            return;
+        }
+
+        positions = new long[geometry.getUnitCount() * numbers];
+        for (int index = 0; index < geometry.getCellCount(); index++) {
+            updatePositions(index, 0, getPossibilityMask(index));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean hasPositionMasks() {
+        return positions != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The masks are read directly if they are maintained.
+     *
+     * @see #startPositionMasks()
+     */
+    @Override
+    long getPositionMask(int unit, int number) {
+        if (positions == null) {
+            return super.getPositionMask(unit, number);
+        }
+        return positions[unit * numbers + number - 1];
+    }
+
+    /**
+     * Starts sorting the unset cells into buckets by their amount of
+     * possibilities, so that {@link #getMinPossibilityCount()} and
+     * {@link #getNextCellWithCount(int, int)} do not have to look at every
+     * cell anymore. Does nothing if the buckets are already maintained.
+     */
+    void startCountBuckets() {
+        if (buckets != null) {
+            return;
+        }
+
+        buckets = new long[(numbers + 1) * cellWords];
+        bucketSizes = new int[numbers + 1];
+        for (int index = 0; index < geometry.getCellCount(); index++) {
+            moveToBucket(index, 0, getPossibilityCount(index));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The lowest non-empty bucket is looked up if the buckets are maintained.
+     *
+     * @see #startCountBuckets()
+     */
+    @Override
+    int getMinPossibilityCount() {
+        if (buckets == null) {
+            return super.getMinPossibilityCount();
+        }
+
+        for (int count = 1; count <= numbers; count++) {
+            if (bucketSizes[count] > 0) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the bucket of the amount is searched if the buckets are
+     * maintained.
+     *
+     * @see #startCountBuckets()
+     */
+    @Override
+    int getNextCellWithCount(int count, int from) {
+        if (buckets == null) {
+            return super.getNextCellWithCount(count, from);
+        }
+
+        int cellCount = geometry.getCellCount();
+        if (from >= cellCount) {
+            return -1;
+        }
+
+        int offset = count * cellWords;
+        int word = from >>> WORD_SHIFT;
+        long bits = buckets[offset + word] & (-1L << from);
+        while (bits == 0) {
+            word++;
+            if (word == cellWords) {
+                return -1;
+            }
+            bits = buckets[offset + word];
+        }
+        return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    long getEliminationCount() {
+        return eliminationCount;
+    }
+
+    /**
+     * Overwrites a word of the board array, records its previous value if
+     * the changes are recorded, updates everything maintained about the cells
+     * and adds the cell of the word to the propagation queue if there is one.
+     *
+     * @param position The position of the word in the board array.
+     * @param value The new value of the word.
+     */
+    private void write(int position, long value) {
+        if (trail != null) {
+            trail.record(position, board[position]);
+        }
+        replace(position, value);
+        if (queue != null) {
+            queue.cellChanged(position / wordsPerCell);
+        }
+    }
+
+    /**
+     * Overwrites a word of the board array and updates the amount of unset
+     * cells, the position masks and the buckets if they are maintained. A
+     * cell consisting of multiple words is read before and after the change
+     * instead, as only a single one of its words changes.
+     *
+     * @param position The position of the word in the board array.
+     * @param value The new value of the word.
+     */
+    private void replace(int position, long value) {
+        int index = position / wordsPerCell;
+        long oldWord = board[position];
+        if ((position - index * wordsPerCell == fixedWord)
+                && (((oldWord ^ value) & fixedBit) != 0)) {
+            unsetCells += ((value & fixedBit) != 0) ? -1 : 1;
+        }
+        if ((positions == null) && (buckets == null)) {
+            board[position] = value;
+            return;
+        }
+
+        long oldMask;
+        long newMask;
+        int oldCount;
+        int newCount;
+        if (wordsPerCell == 1) {
+            oldMask = ((oldWord & fixedBit) != 0) ? 0 : oldWord;
+            newMask = ((value & fixedBit) != 0) ? 0 : value;
+            board[position] = value;
+            oldCount = Long.bitCount(oldMask);
+            newCount = Long.bitCount(newMask);
+        } else {
+            oldMask = (positions != null) ? getPossibilityMask(index) : 0;
+            oldCount = getPossibilityCount(index);
+            board[position] = value;
+            newMask = (positions != null) ? getPossibilityMask(index) : 0;
+            newCount = getPossibilityCount(index);
+        }
+
+        if (positions != null) {
+            updatePositions(index, oldMask, newMask);
+        }
+        if (buckets != null) {
+            moveToBucket(index, oldCount, newCount);
+        }
+    }
+
+    /**
+     * Updates the position masks of the numbers whose possibility changed in
+     * a cell. Fixed cells are not a possible position of any number.
+     *
+     * @param index The absolute index of the cell.
+     * @param oldMask The previous possibility mask of the cell, which is
+     *        {@code 0} for a fixed cell.
+     * @param newMask The new possibility mask of the cell.
+     */
+    private void updatePositions(int index, long oldMask, long newMask) {
+        long changed = oldMask ^ newMask;
+        if (changed == 0) {
+            return;
+        }
+
+        int[] units = geometry.getUnits(index);
+        int[] minors = geometry.getMinors(index);
+        for (int i = 0; i < units.length; i++) {
+            int offset = units[i] * numbers;
+            long bit = 1L << minors[i];
+            for (long bits = changed; bits != 0; bits &= bits - 1) {
+                positions[offset + Long.numberOfTrailingZeros(bits)] ^= bit;
+            }
+        }
+    }
+
+    /**
+     * Moves a cell from the bucket of its previous amount of possibilities to
+     * the bucket of its new amount. Set cells and cells without any
+     * possibilities are not in any bucket.
+     *
+     * @param index The absolute index of the cell.
+     * @param oldCount The previous amount of possibilities of the cell.
+     * @param newCount The new amount of possibilities of the cell.
+     */
+    private void moveToBucket(int index, int oldCount, int newCount) {
+        if (oldCount == newCount) {
+            return;
+        }
+
+        int word = index >>> WORD_SHIFT;
+        long bit = 1L << index;
+        if (oldCount > 0) {
+            buckets[oldCount * cellWords + word] &= ~bit;
+            bucketSizes[oldCount]--;
+        }
+        if (newCount > 0) {
+            buckets[newCount * cellWords + word] |= bit;
+            bucketSizes[newCount]++;
+        }
+    }
+
+    /**
+     * Checks whether the cell with the given index is fixed.
+     *
+     * @param index The absolute index of the cell.
+     * @return {@code true} if the cell is fixed.
+     */
+    private boolean isFixed(int index) {
+        return (board[index * wordsPerCell + fixedWord] & fixedBit) != 0;
+    }
+
+    /**
+     * Checks whether the given number is still possible in the cell with the
+     * given index.
+     *
+     * @param index The absolute index of the cell.
+     * @param number The number to check.
+     * @return {@code true} if the bit of the number is set.
+     */
+    private boolean isPossible(int index, int number) {
+        long word = board[index * wordsPerCell + ((number - 1) >>> WORD_SHIFT)];
+        return (word & (1L << (number - 1))) != 0;
+    }
+
+    /**
+     * Counts the possibilities of the cell with the given index. The fixed
+     * flag is not counted.
+     *
+     * @param index The absolute index of the cell.
+     * @return The amount of set possibility bits.
+     */
+    private int countPossibilities(int index) {
+        int offset = index * wordsPerCell;
+        int count = 0;
+        for (int word = 0; word < wordsPerCell; word++) {
+            count += Long.bitCount(board[offset + word]);
+        }
+        return isFixed(index) ? count - 1 : count;
+    }
+
+    /**
+     * Returns the content of a fixed cell with the given index by returning the
+     * first (and only) possibility of the cell.
+     *
+     * @param index The absolute index of the fixed cell.
+     * @return The value of the cell.
+     */
+    private int getFixedCell(int index) {
+        assert isFixed(index);
+        int offset = index * wordsPerCell;
+        int word = 0;
+        while (board[offset + word] == 0) {
+            word++;
+        }
+        return (word << WORD_SHIFT)
+                + Long.numberOfTrailingZeros(board[offset + word]) + 1;
+    }
+}
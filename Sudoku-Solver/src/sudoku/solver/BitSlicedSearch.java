@@ -0,0 +1,672 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A BitSlicedSearch solves classic sudokus with boxes of 3 by 3 cells by
+ * backtracking, working on bit planes instead of the cells of a board.
+ * <p>
+ * Every number has a plane of 81 bits, one per cell in row-major order,
+ * which is stored in two {@code long} words: the cells 0 to 63 in the low
+ * word and the cells 64 to 80 in the high word. One plane holds the unset
+ * cells the number can still be placed in, another one the cells it was
+ * placed in. Every rule of the saturators is therefore applied to all cells
+ * at once with a few bitwise operations: setting a cell clears it in every
+ * plane and its peers in the plane of its number, the unset cells with a
+ * single possibility are found by adding up the planes bitwise, and a unit
+ * is checked by masking the plane of a number with the unit.
+ * <p>
+ * The search applies the same rules as the saturators it replaces and
+ * chooses the same cells and numbers as a {@link TrailingSudokuSolver} with
+ * these saturators and the {@link MinRemainingValues} heuristic, so both
+ * find the same solutions in the same order. The whole state of a search
+ * step is a small array of words, which is copied for every branch instead
+ * of recording changes. A search must not be used by multiple threads at the
+ * same time.
+ * <p>
+ * Every pass of a rule over the board is added to the statistics of its
+ * saturator as one call, and the passes of a sample of the propagations are
+ * timed, like the calls of the saturators are while working on a board.
+ */
+final class BitSlicedSearch {
+
+    private static final int NUMBERS = 9;
+    private static final int CELLS = NUMBERS * NUMBERS;
+
+    /**
+     * The positions of the parts of a state. The planes of the possible
+     * positions of the number {@code n} start at {@code 2 * (n - 1)}, the
+     * planes of its placed positions at {@link #PLACED} {@code + 2 * (n - 1)}
+     * and the unset cells at {@link #UNSET}, each consisting of a low and a
+     * high word. The cell which was set last is stored at {@link #LAST}.
+     */
+    private static final int PLACED = 2 * NUMBERS;
+    private static final int UNSET = 2 * PLACED;
+    private static final int LAST = UNSET + 2;
+    private static final int STATE_SIZE = LAST + 1;
+
+    /**
+     * The cells of every unit, the peers of every cell and the segments of
+     * every intersection of a box with a row or column, as low and high word
+     * each. A segment consists of the intersection itself, the rest of the
+     * row or column and the rest of the box.
+     */
+    private static final long[] UNITS;
+    private static final long[] PEERS;
+    private static final long[] SEGMENTS;
+    private static final int SEGMENT_SIZE = 6;
+
+    /**
+     * Only every {@value}th pass of a rule is timed, as reading the clock
+     * takes longer than most passes.
+     */
+    private static final int SAMPLE_INTERVAL = 64;
+
+    /**
+     * Returned by {@link #startPass()} if the pass is not timed.
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    static {
+        Geometry geometry = Geometry.of(3, 3);
+        UNITS = new long[2 * geometry.getUnitCount()];
+        for (int unit = 0; unit < geometry.getUnitCount(); unit++) {
+            for (int cell : geometry.getCells(unit)) {
+                UNITS[2 * unit + (cell >>> 6)] |= 1L << cell;
+            }
+        }
+        PEERS = new long[2 * CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            for (int peer : geometry.getPeers(cell)) {
+                PEERS[2 * cell + (peer >>> 6)] |= 1L << peer;
+            }
+        }
+
+        // Every box intersects three rows and three columns.
+        int boxes = geometry.getUnit(Structure.BOX, 0);
+        SEGMENTS = new long[2 * NUMBERS * 3 * SEGMENT_SIZE];
+        int segment = 0;
+        for (int box = boxes; box < boxes + NUMBERS; box++) {
+            int[] boxCells = geometry.getCells(box);
+            for (Structure line : new Structure[] {Structure.ROW,
+                    Structure.COL}) {
+                for (int i = 0; i < 3; i++) {
+                    int first = boxCells[(line == Structure.ROW) ? 3 * i : i];
+                    int unit = geometry.getUnits(first)[line.ordinal()];
+                    for (int word = 0; word < 2; word++) {
+                        long both = UNITS[2 * unit + word]
+                                & UNITS[2 * box + word];
+                        SEGMENTS[segment + word] = both;
+                        SEGMENTS[segment + 2 + word]
+                                = UNITS[2 * unit + word] & ~both;
+                        SEGMENTS[segment + 4 + word]
+                                = UNITS[2 * box + word] & ~both;
+                    }
+                    segment += SEGMENT_SIZE;
+                }
+            }
+        }
+    }
+
+    /**
+     * The counters of the rules which are applied, or {@code null} for the
+     * rules which are not.
+     */
+    private final RuleCounter enforcedCells;
+    private final RuleCounter enforcedNumbers;
+    private final RuleCounter enforcedIntersections;
+    private final RuleCounter[] counters;
+
+    /**
+     * The amount of possibilities removed so far, and the amount of passes
+     * of the rules started so far to time a sample of them.
+     */
+    private long eliminations;
+    private long passes;
+
+    /**
+     * The states of all search steps on the current path. The state at a
+     * depth is the one of the root with the cells of the branches up to this
+     * depth set and saturated. As every branch sets a cell, there can not be
+     * more than one state per cell and the root.
+     */
+    private final long[] states = new long[(CELLS + 1) * STATE_SIZE];
+
+    /**
+     * The cell branched on and the numbers of the branch not tried yet, as
+     * bit mask with the bit {@code n - 1} for the number {@code n}, for every
+     * depth.
+     */
+    private final int[] branchCells = new int[CELLS];
+    private final int[] branchNumbers = new int[CELLS];
+
+    /**
+     * The amounts of possibilities of all cells as four bit planes, where
+     * the low and high word of the bit {@code b} are at {@code 2 * b} and
+     * {@code 2 * b + 1}.
+     */
+    private final long[] counts = new long[8];
+
+    /**
+     * Creates a new search applying the rules of the given saturators.
+     *
+     * @param enforcedCells The statistics of the {@link EnforcedCell}
+     *        saturator, or {@code null} if its rule is not applied.
+     * @param enforcedNumbers The statistics of the {@link EnforcedNumber}
+     *        saturator, or {@code null} if its rule is not applied.
+     * @param enforcedIntersections The statistics of the
+     *        {@link EnforcedIntersection} saturator, or {@code null} if its
+     *        rule is not applied.
+     */
+    BitSlicedSearch(SaturatorStatistics enforcedCells,
+            SaturatorStatistics enforcedNumbers,
+            SaturatorStatistics enforcedIntersections) {
+        this.enforcedCells = createCounter(enforcedCells);
+        this.enforcedNumbers = createCounter(enforcedNumbers);
+        this.enforcedIntersections = createCounter(enforcedIntersections);
+        counters = new RuleCounter[] {this.enforcedCells,
+                this.enforcedNumbers, this.enforcedIntersections};
+    }
+
+    /**
+     * Creates the counter of a rule.
+     *
+     * @param statistics The statistics of the saturator of the rule, or
+     *        {@code null} if the rule is not applied.
+     * @return The counter, or {@code null} if the rule is not applied.
+     */
+    private static RuleCounter createCounter(SaturatorStatistics statistics) {
+        return (statistics == null) ? null : new RuleCounter(statistics);
+    }
+
+    /**
+     * Checks whether a board can be searched, which is the case if it has
+     * boxes of 3 by 3 cells.
+     *
+     * @param board The board to check.
+     * @return {@code true} if the board is a classic sudoku.
+     */
+    static boolean supports(Board board) {
+        return (board.getBoxRows() == 3) && (board.getBoxColumns() == 3);
+    }
+
+    /**
+     * Searches the solutions of a classic sudoku. The search stops early if
+     * the current thread is interrupted, passing on only the solutions found
+     * so far.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @param reservation Asked before every solution is counted, or
+     *        {@code null} if all solutions count. The search stops without
+     *        counting the solution as soon as it returns {@code false}.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     * @throws IllegalArgumentException If the board does not have boxes of 3
+     *         by 3 cells.
+     */
+    long solve(Board board, long limit, Consumer<? super Board> action,
+            BooleanSupplier reservation) {
+        if (!supports(board)) {
+            throw new IllegalArgumentException(
+                    "Only sudokus with boxes of 3 by 3 cells are supported.");
+        }
+
+        try {
+            return search(board, limit, action, reservation);
+        } finally {
+            for (RuleCounter counter : counters) {
+                if (counter != null) {
+                    counter.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the solutions of a classic sudoku.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @param reservation Asked before every solution is counted, or
+     *        {@code null} if all solutions count. The search stops without
+     *        counting the solution as soon as it returns {@code false}.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    private long search(Board board, long limit,
+            Consumer<? super Board> action, BooleanSupplier reservation) {
+        long solutions = 0;
+        int depth = 0;
+        boolean consistent = load(board) && propagate(0);
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return solutions; // The search was cancelled.
+            } else if (consistent) {
+                int state = depth * STATE_SIZE;
+                if ((states[state + UNSET] | states[state + UNSET + 1]) == 0) {
+                    if ((reservation != null)
+                            && !reservation.getAsBoolean()) {
+                        return solutions;
+                    }
+                    solutions++;
+                    if (action != null) {
+                        action.accept(createSolution(state));
+                    }
+                    if (solutions == limit) {
+                        return solutions;
+                    }
+                } else {
+                    int cell = selectCell(state);
+                    branchCells[depth] = cell;
+                    branchNumbers[depth] = getPossibilities(state, cell);
+                    depth++;
+                }
+            }
+
+            // Try the next number of the innermost branch left.
+            consistent = false;
+            while (!consistent) {
+                if (depth == 0) {
+                    return solutions;
+                }
+
+                int numbers = branchNumbers[depth - 1];
+                if (numbers == 0) {
+                    depth--; // All numbers were tried, backtrack further.
+                } else {
+                    branchNumbers[depth - 1] = numbers & (numbers - 1);
+                    int state = depth * STATE_SIZE;
+                    System.arraycopy(states, state - STATE_SIZE, states,
+                            state, STATE_SIZE);
+                    consistent = place(state, branchCells[depth - 1],
+                            Integer.numberOfTrailingZeros(numbers) + 1)
+                            && propagate(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the possibilities and set cells of a board into the state of the
+     * root.
+     *
+     * @param board The board to load.
+     * @return {@code false} if a number is set twice in a unit.
+     */
+    private boolean load(Board board) {
+        Arrays.fill(states, 0, STATE_SIZE, 0);
+        int[] lastCellSet = board.getLastCellSet();
+        if (lastCellSet != null) {
+            states[LAST] = lastCellSet[0] * NUMBERS + lastCellSet[1];
+        }
+        Structure struct = Structure.ROW;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int word = cell >>> 6;
+            long bit = 1L << cell;
+            int number = board.getCell(struct, cell / NUMBERS,
+                    cell % NUMBERS);
+            if (number != Board.UNSET_CELL) {
+                states[PLACED + 2 * (number - 1) + word] |= bit;
+            } else {
+                long possibilities = board.getPossibilityMask(struct,
+                        cell / NUMBERS, cell % NUMBERS);
+                for (long bits = possibilities; bits != 0;
+                        bits &= bits - 1) {
+                    states[2 * Long.numberOfTrailingZeros(bits) + word]
+                            |= bit;
+                }
+                states[UNSET + word] |= bit;
+            }
+        }
+
+        // The peers of the set cells can not contain their numbers.
+        for (int plane = 0; plane < PLACED; plane += 2) {
+            for (int word = 0; word < 2; word++) {
+                for (long bits = states[PLACED + plane + word]; bits != 0;
+                        bits &= bits - 1) {
+                    int peers = 2 * ((word << 6)
+                            + Long.numberOfTrailingZeros(bits));
+                    if (((states[PLACED + plane] & PEERS[peers])
+                            | (states[PLACED + plane + 1]
+                                    & PEERS[peers + 1])) != 0) {
+                        return false;
+                    }
+                    states[plane] &= ~PEERS[peers];
+                    states[plane + 1] &= ~PEERS[peers + 1];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets a cell to a number, which removes the cell from all planes of
+     * possible positions and the number from the peers of the cell.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param cell The cell to set.
+     * @param number The number to set the cell to.
+     * @return {@code false} if the number is not possible in the cell.
+     */
+    private boolean place(int state, int cell, int number) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        int plane = state + 2 * (number - 1);
+        if ((states[plane + word] & bit) == 0) {
+            return false;
+        }
+
+        // Shifts only use the lowest six bits of the cell.
+        long removed = -1; // The number itself stays in the cell.
+        for (int other = state + word; other < state + PLACED; other += 2) {
+            removed += (states[other] >>> cell) & 1;
+            states[other] &= ~bit;
+        }
+        removed += Long.bitCount(states[plane] & PEERS[2 * cell])
+                + Long.bitCount(states[plane + 1] & PEERS[2 * cell + 1]);
+        eliminations += removed;
+        states[plane] &= ~PEERS[2 * cell];
+        states[plane + 1] &= ~PEERS[2 * cell + 1];
+        states[plane + PLACED + word] |= bit;
+        states[state + UNSET + word] &= ~bit;
+        states[state + LAST] = cell;
+        return true;
+    }
+
+    /**
+     * Applies the rules of the saturators to a state until none of them
+     * changes it anymore. Unset cells without possibilities and numbers
+     * without any position in a unit they are not placed in are detected
+     * whether the rules are applied or not.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return {@code false} if the state turned out to be unsolvable.
+     */
+    private boolean propagate(int state) {
+        while (true) {
+
+            // Add up the planes to find the cells with one or no possibility.
+            long onceLow = 0;
+            long onceHigh = 0;
+            long twiceLow = 0;
+            long twiceHigh = 0;
+            for (int plane = state; plane < state + PLACED; plane += 2) {
+                twiceLow |= onceLow & states[plane];
+                onceLow |= states[plane];
+                twiceHigh |= onceHigh & states[plane + 1];
+                onceHigh |= states[plane + 1];
+            }
+            if (((states[state + UNSET] & ~onceLow)
+                    | (states[state + UNSET + 1] & ~onceHigh)) != 0) {
+                return false;
+            }
+
+            long singlesLow = onceLow & ~twiceLow;
+            long singlesHigh = onceHigh & ~twiceHigh;
+            if (enforcedCells != null) {
+                long start = startPass();
+                long removed = eliminations;
+                boolean modified = (singlesLow | singlesHigh) != 0;
+                boolean solvable = !modified
+                        || placeSingles(state, singlesLow, singlesHigh);
+                enforcedCells.count(modified, eliminations - removed,
+                        endPass(start));
+                if (!solvable) {
+                    return false;
+                } else if (modified) {
+                    continue;
+                }
+            }
+
+            long start = (enforcedNumbers != null) ? startPass() : NOT_TIMED;
+            long removed = eliminations;
+            SaturationResult result = placeHiddenSingles(state);
+            if (enforcedNumbers != null) {
+                enforcedNumbers.count(result == SaturationResult.CHANGED,
+                        eliminations - removed, endPass(start));
+            }
+            if (result == SaturationResult.UNSOLVABLE) {
+                return false;
+            } else if (result == SaturationResult.CHANGED) {
+                continue;
+            }
+
+            if (enforcedIntersections == null) {
+                return true;
+            }
+            start = startPass();
+            removed = eliminations;
+            boolean modified = removeIntersections(state);
+            enforcedIntersections.count(modified, eliminations - removed,
+                    endPass(start));
+            if (!modified) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Starts a pass of a rule, which is timed if it belongs to the sample.
+     *
+     * @return The time the pass started in nanoseconds, or
+     *         {@link #NOT_TIMED} if it is not timed.
+     */
+    private long startPass() {
+        return (passes++ % SAMPLE_INTERVAL == 0) ? System.nanoTime()
+                : NOT_TIMED;
+    }
+
+    /**
+     * Ends a pass of a rule.
+     *
+     * @param start The value returned by {@link #startPass()} for the pass.
+     * @return The time of the pass in nanoseconds, or a negative value if it
+     *         is not timed.
+     */
+    private static long endPass(long start) {
+        return (start == NOT_TIMED) ? -1 : Math.max(System.nanoTime() - start,
+                0);
+    }
+
+    /**
+     * Sets all given cells to their single possibility.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param low The low word of the cells with a single possibility.
+     * @param high The high word of the cells with a single possibility.
+     * @return {@code false} if the state turned out to be unsolvable.
+     */
+    private boolean placeSingles(int state, long low, long high) {
+        for (int number = 1; number <= NUMBERS; number++) {
+            int plane = state + 2 * (number - 1);
+            long cellsLow = low & states[plane];
+            long cellsHigh = high & states[plane + 1];
+
+            /*
+             * Setting one of the cells may remove the number from another
+             * one, which then has no possibility left and fails to be set.
+             */
+            for (long bits = cellsLow; bits != 0; bits &= bits - 1) {
+                if (!place(state, Long.numberOfTrailingZeros(bits), number)) {
+                    return false;
+                }
+            }
+            for (long bits = cellsHigh; bits != 0; bits &= bits - 1) {
+                if (!place(state, Long.SIZE + Long.numberOfTrailingZeros(bits),
+                        number)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks every unit for numbers without any position, and sets the
+     * numbers with a single position in a unit if the rule of
+     * {@link EnforcedNumber} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return Whether the state was changed or turned out to be unsolvable.
+     */
+    private SaturationResult placeHiddenSingles(int state) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        for (int number = 1; number <= NUMBERS; number++) {
+            int plane = state + 2 * (number - 1);
+            for (int unit = 0; unit < UNITS.length; unit += 2) {
+                long low = states[plane] & UNITS[unit];
+                long high = states[plane + 1] & UNITS[unit + 1];
+                if ((low | high) == 0) {
+                    if (((states[plane + PLACED] & UNITS[unit])
+                            | (states[plane + PLACED + 1] & UNITS[unit + 1]))
+                            == 0) {
+                        return SaturationResult.UNSOLVABLE;
+                    }
+                } else if ((enforcedNumbers != null)
+                        && ((low & (low - 1)) == 0)
+                        && ((high & (high - 1)) == 0)
+                        && ((low == 0) || (high == 0))) {
+                    int cell = (low != 0) ? Long.numberOfTrailingZeros(low)
+                            : Long.SIZE + Long.numberOfTrailingZeros(high);
+                    place(state, cell, number);
+                    result = SaturationResult.CHANGED;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes every number which can only be placed in one segment of a box,
+     * row or column from the rest of the crossing structure.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return {@code true} if a possibility was removed.
+     */
+    private boolean removeIntersections(int state) {
+        boolean changed = false;
+        for (int plane = state; plane < state + PLACED; plane += 2) {
+            for (int segment = 0; segment < SEGMENTS.length;
+                    segment += SEGMENT_SIZE) {
+                long low = states[plane];
+                long high = states[plane + 1];
+                if (((low & SEGMENTS[segment])
+                        | (high & SEGMENTS[segment + 1])) == 0) {
+                    continue;
+                }
+
+                /*
+                 * If the number is missing in the rest of the line, it is
+                 * removed from the rest of the box (claiming), and the other
+                 * way round (pointing).
+                 */
+                for (int rest = 2; rest <= 4; rest += 2) {
+                    int other = 6 - rest;
+                    if (((low & SEGMENTS[segment + rest])
+                            | (high & SEGMENTS[segment + rest + 1])) == 0
+                            && (((low & SEGMENTS[segment + other])
+                            | (high & SEGMENTS[segment + other + 1])) != 0)) {
+                        eliminations += Long.bitCount(
+                                low & SEGMENTS[segment + other])
+                                + Long.bitCount(
+                                        high & SEGMENTS[segment + other + 1]);
+                        low &= ~SEGMENTS[segment + other];
+                        high &= ~SEGMENTS[segment + other + 1];
+                        changed = true;
+                    }
+                }
+                states[plane] = low;
+                states[plane + 1] = high;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Chooses the unset cell with the fewest possibilities, and the first one
+     * in row-major order of those, just like {@link MinRemainingValues}.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return The chosen cell.
+     */
+    private int selectCell(int state) {
+
+        // Add up the planes bitwise to count the possibilities of all cells.
+        Arrays.fill(counts, 0);
+        for (int plane = state; plane < state + PLACED; plane += 2) {
+            for (int word = 0; word < 2; word++) {
+                long carry = states[plane + word];
+                for (int bit = word; (bit < counts.length) && (carry != 0);
+                        bit += 2) {
+                    long sum = counts[bit] ^ carry;
+                    carry &= counts[bit];
+                    counts[bit] = sum;
+                }
+            }
+        }
+
+        for (int amount = 1; amount <= NUMBERS; amount++) {
+            long low = states[state + UNSET];
+            long high = states[state + UNSET + 1];
+            for (int bit = 0; bit < 4; bit++) {
+                boolean set = (amount & (1 << bit)) != 0;
+                low &= set ? counts[2 * bit] : ~counts[2 * bit];
+                high &= set ? counts[2 * bit + 1] : ~counts[2 * bit + 1];
+            }
+            if (low != 0) {
+                return Long.numberOfTrailingZeros(low);
+            } else if (high != 0) {
+                return Long.SIZE + Long.numberOfTrailingZeros(high);
+            }
+        }
+        throw new IllegalStateException("No cell with possibilities left.");
+    }
+
+    /**
+     * Gets the possibilities of a cell.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param cell The cell.
+     * @return The possibilities as bit mask, with the bit {@code n - 1} set
+     *         if the number {@code n} is possible.
+     */
+    private int getPossibilities(int state, int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        int possibilities = 0;
+        for (int number = 0; number < NUMBERS; number++) {
+            if ((states[state + 2 * number + word] & bit) != 0) {
+                possibilities |= 1 << number;
+            }
+        }
+        return possibilities;
+    }
+
+    /**
+     * Creates the board of a solved state.
+     *
+     * @param state The position of the solved state in {@link #states}.
+     * @return The solved board.
+     */
+    private Board createSolution(int state) {
+        int[] numbers = new int[CELLS];
+        for (int number = 1; number <= NUMBERS; number++) {
+            int plane = state + PLACED + 2 * (number - 1);
+            for (int word = 0; word < 2; word++) {
+                for (long bits = states[plane + word]; bits != 0;
+                        bits &= bits - 1) {
+                    numbers[(word << 6) + Long.numberOfTrailingZeros(bits)]
+                            = number;
+                }
+            }
+        }
+        return BitMaskBoard.ofSolution(3, 3, numbers,
+                (int) states[state + LAST]);
+    }
+
+}
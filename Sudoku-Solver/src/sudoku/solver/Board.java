@@ -93,6 +93,12 @@ public interface Board extends Cloneable, Comparable<Board> {
      * {@code null} is returned. The returned array may be changed without
      * having any effect on the board.
      * 
+     * As a new array is created on every call, frequently called code should
+     * rather use {@link #getPossibilityCount(Structure, int, int)} and
+     * {@link #getNextPossibility(Structure, int, int, int)}. Their default
+     * implementations are based on this method, so boards should override
+     * them to avoid the array.
+     * 
      * @param struct The coordinate type of the cell.
      * @param major The major coordinate component of the cell.
      * @param minor The minor coordinate component of the cell.
@@ -101,6 +107,89 @@ public interface Board extends Cloneable, Comparable<Board> {
      */
     int[] getPossibilities(Structure struct, int major, int minor);
 
+    /**
+     * Gets the amount of possible values of a cell. This is the length of the
+     * array returned by {@link #getPossibilities(Structure, int, int)}, but
+     * does not create any objects. If the cell is already set, {@code 0} is
+     * returned.
+     * 
+     * @param struct The coordinate type of the cell.
+     * @param major The major coordinate component of the cell.
+     * @param minor The minor coordinate component of the cell.
+     * @return The amount of left possible values for a cell, or {@code 0} if
+     *         the cell is already set.
+     */
+    default int getPossibilityCount(Structure struct, int major, int minor) {
+        int[] possibilities = getPossibilities(struct, major, minor);
+        return (possibilities == null) ? 0 : possibilities.length;
+    }
+
+    /**
+     * Gets the smallest possible value of a cell which is greater than the
+     * given number. This allows to iterate over all possible values of a cell
+     * without creating any objects:
+     * 
+     * <pre>
+     * int number = board.getNextPossibility(struct, major, minor, 0);
+     * while (number != Board.UNSET_CELL) {
+     *     ...
+     *     number = board.getNextPossibility(struct, major, minor, number);
+     * }
+     * </pre>
+     * 
+     * @param struct The coordinate type of the cell.
+     * @param major The major coordinate component of the cell.
+     * @param minor The minor coordinate component of the cell.
+     * @param number The number after which the search starts. Use {@code 0}
+     *        to get the smallest possible value.
+     * @return The next possible value of the cell, or {@link #UNSET_CELL} if
+     *         there is none or the cell is already set.
+     */
+    default int getNextPossibility(Structure struct, int major, int minor,
+            int number) {
+        int[] possibilities = getPossibilities(struct, major, minor);
+        int next = UNSET_CELL;
+        if (possibilities != null) {
+            for (int possibility : possibilities) {
+                if ((possibility > number)
+                        && ((next == UNSET_CELL) || (possibility < next))) {
+                    next = possibility;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Gets all possible values of a cell as bit mask, where the bit
+     * {@code number - 1} is set if the cell can still be set to
+     * {@code number}. If the cell is already set, {@code 0} is returned.
+     * 
+     * @param struct The coordinate type of the cell.
+     * @param major The major coordinate component of the cell.
+     * @param minor The minor coordinate component of the cell.
+     * @return The bit mask of the left possible values for a cell, or
+     *         {@code 0} if the cell is already set.
+     * @throws UnsupportedOperationException The board allows more numbers
+     *         than a {@code long} has bits.
+     */
+    default long getPossibilityMask(Structure struct, int major, int minor) {
+        if (getNumbers() > Long.SIZE) {
+            throw new UnsupportedOperationException(
+                    "Only boards with up to " + Long.SIZE + " numbers have a "
+                    + "possibility mask.");
+        }
+
+        int[] possibilities = getPossibilities(struct, major, minor);
+        long mask = 0;
+        if (possibilities != null) {
+            for (int possibility : possibilities) {
+                mask |= 1L << (possibility - 1);
+            }
+        }
+        return mask;
+    }
+
     /**
      * Removes a certain number from the possibilities of a cell.
      * 
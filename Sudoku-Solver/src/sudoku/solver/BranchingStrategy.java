@@ -0,0 +1,40 @@
+package sudoku.solver;
+
+/**
+ * A BranchingStrategy decides which cell a backtracking solver branches on
+ * when the saturators can not modify a board anymore. The solver tries all
+ * possible values of the chosen cell one after another.
+ * <p>
+ * Cells are given by their absolute index {@code row * numbers + column}.
+ * A strategy may learn from the branches which turned out to be unsolvable,
+ * and may be used by multiple threads at the same time.
+ *
+ * @see SudokuBoardSolver#setBranchingStrategy(BranchingStrategy)
+ */
+public interface BranchingStrategy {
+
+    /**
+     * Chooses the unset cell to branch on.
+     *
+     * @param board The saturated board. Must not be solved yet and will not
+     *        be changed.
+     * @return The absolute index of the chosen cell.
+     */
+    int selectCell(Board board);
+
+    /**
+     * Informs the strategy that assigning a value to a cell chosen by it made
+     * the board unsolvable.
+     *
+     * @param board The board the cell was chosen on. Its state is undefined.
+     * @param index The absolute index of the chosen cell.
+     */
+    void recordFailure(Board board, int index);
+
+    /**
+     * Forgets everything learned from previous failures, as the solver starts
+     * working on a new sudoku.
+     */
+    void reset();
+
+}
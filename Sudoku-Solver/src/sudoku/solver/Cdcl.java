@@ -0,0 +1,895 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * A conflict driven clause learning (CDCL) solver for boolean formulas in
+ * conjunctive normal form.
+ * <p>
+ * The variables are numbered from {@code 0}. A literal of the variable
+ * {@code v} is {@code 2 * v} if the variable is true and {@code 2 * v + 1}
+ * if it is false, so the negation of a literal is {@code literal ^ 1}.
+ * Clauses of two literals are stored as the implications of the negation of
+ * each literal, longer clauses are watched by two of their literals. A
+ * clause is only looked at when one of its watched literals becomes false.
+ * <p>
+ * The search assigns variables by decisions and unit propagation. When a
+ * clause becomes false, the solver learns the clause at the first unique
+ * implication point, which is added to the formula and tells how far the
+ * search can jump back. The next variable to decide is the one with the
+ * highest activity, which is increased whenever the variable takes part in
+ * a conflict and decays over time (VSIDS). A variable is decided to the
+ * value it had the last time, and to true the first time, as this decides
+ * more than false for the exactly-one constraints of sudokus. The search is
+ * restarted after a growing amount of conflicts following the Luby
+ * sequence, which is also when learned clauses of little use are removed.
+ * <p>
+ * After a satisfying assignment was found, further clauses may be added to
+ * search for another one. The solver is deterministic, but must not be used
+ * by multiple threads at the same time.
+ */
+final class Cdcl {
+
+    /**
+     * The values of a literal.
+     */
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+    private static final byte UNASSIGNED = 0;
+
+    /**
+     * The reason of decisions and of literals which are true in every
+     * assignment. Literals implied by a clause of two literals have the
+     * reason {@code -2 - literal}, where the literal is the one implying
+     * them. Literals implied by longer clauses have the index of the clause
+     * as reason.
+     */
+    private static final int NO_REASON = -1;
+
+    /**
+     * The result of the propagation if no clause became false, or if a
+     * clause of two literals became false, which must differ from all
+     * reasons. Other conflicts are reported by the index of the false
+     * clause.
+     */
+    private static final int NO_CONFLICT = -1;
+    private static final int BINARY_CONFLICT = Integer.MIN_VALUE;
+
+    /**
+     * The results of searching until the next restart.
+     */
+    private static final int SATISFIABLE = 1;
+    private static final int UNSATISFIABLE = -1;
+    private static final int UNDECIDED = 0;
+
+    /**
+     * The amount of conflicts between restarts, which is multiplied with
+     * the elements of the Luby sequence.
+     */
+    private static final int RESTART_INTERVAL = 100;
+
+    /**
+     * The factor the activities of all variables decay by after every
+     * conflict. Instead of decreasing them, the increment is increased.
+     */
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    /**
+     * The activity above which all activities are scaled down.
+     */
+    private static final double ACTIVITY_LIMIT = 1e100;
+
+    /**
+     * The lowest amount of learned clauses which are kept, and the factor
+     * the amount grows by after every reduction.
+     */
+    private static final int MIN_LEARNT_LIMIT = 2000;
+    private static final double LEARNT_LIMIT_GROWTH = 1.1;
+
+    /**
+     * Learned clauses whose literals were assigned on at most this many
+     * decision levels are never removed.
+     */
+    private static final int GLUE = 2;
+
+    private final int variables;
+
+    /**
+     * Whether the formula may still be satisfiable.
+     */
+    private boolean consistent = true;
+
+    /*
+     * The current assignment. The trail contains the true literals in the
+     * order they were assigned, and the start of every decision level in
+     * the trail.
+     */
+    private final byte[] values;
+    private final int[] levels;
+    private final int[] reasons;
+    private final boolean[] phases;
+    private final int[] trail;
+    private final int[] levelStarts;
+    private int trailSize;
+    private int propagated;
+    private int decisionLevel;
+
+    /*
+     * The clauses with more than two literals, the original ones first. The
+     * first literal of a clause is the one it implied, and the first two
+     * literals are watched. The glue of a learned clause is the amount of
+     * decision levels of its literals when it was learned.
+     */
+    private int[][] clauses = new int[16][];
+    private int[] glues = new int[16];
+    private int clauseCount;
+    private int learntCount;
+    private int learntLimit;
+
+    /**
+     * The clauses watched by every literal, by their index.
+     */
+    private final int[][] watches;
+    private final int[] watchSizes;
+
+    /**
+     * The literals implied by every literal through clauses of two
+     * literals.
+     */
+    private final int[][] implications;
+    private final int[] implicationSizes;
+
+    /*
+     * The activities of the variables and the unassigned variables as a
+     * heap ordered by their activity.
+     */
+    private final double[] activities;
+    private double increment = 1;
+    private final int[] heap;
+    private final int[] heapPositions;
+    private int heapSize;
+
+    /*
+     * The buffers of the conflict analysis.
+     */
+    private final boolean[] seen;
+    private final int[] learnt;
+    private final int[] analyzed;
+    private final int[] levelStamps;
+    private final int[] binaryConflict = new int[2];
+    private int learntSize;
+    private int analyzedSize;
+    private int stamp;
+
+    private int restarts;
+
+    /**
+     * Creates a solver for a formula without any clauses yet.
+     *
+     * @param variables The amount of variables of the formula.
+     */
+    Cdcl(int variables) {
+        this.variables = variables;
+        values = new byte[variables];
+        levels = new int[variables];
+        reasons = new int[variables];
+        phases = new boolean[variables];
+        trail = new int[variables];
+        levelStarts = new int[variables + 1];
+        watches = new int[2 * variables][];
+        watchSizes = new int[2 * variables];
+        implications = new int[2 * variables][];
+        implicationSizes = new int[2 * variables];
+        activities = new double[variables];
+        heap = new int[variables];
+        heapPositions = new int[variables];
+        seen = new boolean[variables];
+        learnt = new int[variables];
+        analyzed = new int[variables];
+        levelStamps = new int[variables + 1];
+
+        Arrays.fill(phases, true);
+        Arrays.fill(reasons, NO_REASON);
+
+        // All activities are equal, so the variables in order form a heap.
+        for (int variable = 0; variable < variables; variable++) {
+            heap[variable] = variable;
+            heapPositions[variable] = variable;
+        }
+        heapSize = variables;
+    }
+
+    /**
+     * Gets the literal assigning a value to a variable.
+     *
+     * @param variable The variable.
+     * @param value The value of the variable.
+     * @return The literal which is true if the variable has the value.
+     */
+    static int literal(int variable, boolean value) {
+        return value ? 2 * variable : 2 * variable + 1;
+    }
+
+    /**
+     * Adds a clause to the formula. If the solver found a satisfying
+     * assignment before, the assignment is discarded.
+     *
+     * @param literals The array containing the literals of the clause. It is
+     *        copied, so it may be reused afterwards.
+     * @param size The amount of literals of the clause, which must belong
+     *        to different variables.
+     * @return {@code false} if the formula turned out to be unsatisfiable.
+     */
+    boolean addClause(int[] literals, int size) {
+        if (!consistent) {
+            return false;
+        }
+        cancelUntil(0);
+
+        // Leave out the literals which are false in every assignment.
+        int[] clause = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            int value = valueOf(literals[i]);
+            if (value == TRUE) {
+                return true;
+            } else if (value == UNASSIGNED) {
+                clause[length] = literals[i];
+                length++;
+            }
+        }
+
+        if (length == 0) {
+            consistent = false;
+        } else if (length == 1) {
+            assign(clause[0], NO_REASON);
+        } else if (length == 2) {
+            addImplications(clause[0], clause[1]);
+        } else {
+            storeClause(Arrays.copyOf(clause, length), 0);
+        }
+        return consistent;
+    }
+
+    /**
+     * Searches an assignment satisfying all clauses of the formula.
+     *
+     * @return {@code true} if an assignment was found, which can be read by
+     *         {@link #isTrue(int)}. {@code false} if the formula is
+     *         unsatisfiable.
+     */
+    boolean solve() {
+        if (!consistent) {
+            return false;
+        }
+        cancelUntil(0);
+        if (learntLimit == 0) {
+            learntLimit = Math.max(MIN_LEARNT_LIMIT, clauseCount / 3);
+        }
+
+        int result = UNDECIDED;
+        while (result == UNDECIDED) {
+            result = search(RESTART_INTERVAL * luby(restarts));
+            restarts++;
+            if (result == UNDECIDED) {
+                cancelUntil(0);
+                if (learntCount >= learntLimit) {
+                    reduceLearnts();
+                    learntLimit = (int) (learntLimit * LEARNT_LIMIT_GROWTH);
+                }
+            }
+        }
+
+        consistent = (result == SATISFIABLE);
+        return consistent;
+    }
+
+    /**
+     * Checks the value of a variable in the assignment found by the last
+     * call of {@link #solve()}.
+     *
+     * @param variable The variable.
+     * @return {@code true} if the variable is true.
+     */
+    boolean isTrue(int variable) {
+        return values[variable] == TRUE;
+    }
+
+    /**
+     * Searches until all variables are assigned, the formula turned out to
+     * be unsatisfiable or the given amount of conflicts occurred.
+     *
+     * @param conflictLimit The amount of conflicts after which the search
+     *        is stopped.
+     * @return {@link #SATISFIABLE}, {@link #UNSATISFIABLE} or
+     *         {@link #UNDECIDED}.
+     */
+    private int search(int conflictLimit) {
+        int conflicts = 0;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != NO_CONFLICT) {
+                conflicts++;
+                if (decisionLevel == 0) {
+                    return UNSATISFIABLE;
+                }
+                learn(analyze(conflict));
+                increment /= ACTIVITY_DECAY;
+            } else if (conflicts >= conflictLimit) {
+                return UNDECIDED;
+            } else {
+                int decision = pickBranch();
+                if (decision < 0) {
+                    return SATISFIABLE;
+                }
+                levelStarts[decisionLevel] = trailSize;
+                decisionLevel++;
+                assign(decision, NO_REASON);
+            }
+        }
+    }
+
+    /**
+     * Assigns all literals implied by the literals on the trail which were
+     * not propagated yet.
+     *
+     * @return {@link #NO_CONFLICT}, {@link #BINARY_CONFLICT} if a clause of
+     *         two literals became false, or the index of the false clause.
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int literal = trail[propagated];
+            propagated++;
+
+            int[] implied = implications[literal];
+            for (int i = 0; i < implicationSizes[literal]; i++) {
+                int value = valueOf(implied[i]);
+                if (value == FALSE) {
+                    binaryConflict[0] = literal ^ 1;
+                    binaryConflict[1] = implied[i];
+                    return BINARY_CONFLICT;
+                } else if (value == UNASSIGNED) {
+                    assign(implied[i], -2 - literal);
+                }
+            }
+
+            int falseLiteral = literal ^ 1;
+            int[] watching = watches[falseLiteral];
+            int size = watchSizes[falseLiteral];
+            int kept = 0;
+            int conflict = NO_CONFLICT;
+            for (int i = 0; i < size; i++) {
+                int index = watching[i];
+                if (conflict != NO_CONFLICT) {
+                    watching[kept] = index;
+                    kept++;
+                    continue;
+                }
+
+                // Let the false literal be the second one of the clause.
+                int[] clause = clauses[index];
+                if (clause[0] == falseLiteral) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLiteral;
+                }
+
+                if (valueOf(clause[0]) != TRUE) {
+                    int k = 2;
+                    while ((k < clause.length)
+                            && (valueOf(clause[k]) == FALSE)) {
+                        k++;
+                    }
+                    if (k < clause.length) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLiteral;
+                        watch(clause[1], index);
+                        continue; // The clause is not watched here anymore.
+                    } else if (valueOf(clause[0]) == FALSE) {
+                        conflict = index;
+                    } else {
+                        assign(clause[0], index);
+                    }
+                }
+                watching[kept] = index;
+                kept++;
+            }
+            watchSizes[falseLiteral] = kept;
+            if (conflict != NO_CONFLICT) {
+                return conflict;
+            }
+        }
+        return NO_CONFLICT;
+    }
+
+    /**
+     * Learns the clause at the first unique implication point of a conflict.
+     * The literals of the clause are stored in {@link #learnt}, the first one
+     * being the only literal assigned on the current decision level.
+     *
+     * @param conflict The conflict returned by {@link #propagate()}.
+     * @return The decision level to jump back to.
+     */
+    private int analyze(int conflict) {
+        learntSize = 1;
+        analyzedSize = 0;
+        int pending = visitReason(conflict, -1);
+        int index = trailSize - 1;
+        int literal;
+
+        // Resolve the literals of the current level until only one is left.
+        while (true) {
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            literal = trail[index];
+            index--;
+            seen[literal >> 1] = false;
+            pending--;
+            if (pending == 0) {
+                break;
+            }
+            pending += visitReason(reasons[literal >> 1], literal);
+        }
+        learnt[0] = literal ^ 1;
+
+        // Leave out the literals implied by other literals of the clause.
+        int size = 1;
+        for (int i = 1; i < learntSize; i++) {
+            if (!isRedundant(learnt[i])) {
+                learnt[size] = learnt[i];
+                size++;
+            }
+        }
+        learntSize = size;
+        for (int i = 0; i < analyzedSize; i++) {
+            seen[analyzed[i]] = false;
+        }
+
+        // The second literal is the one assigned last, as it is watched.
+        int backjumpLevel = 0;
+        for (int i = 1; i < learntSize; i++) {
+            int level = levels[learnt[i] >> 1];
+            if (level > backjumpLevel) {
+                backjumpLevel = level;
+                int swap = learnt[1];
+                learnt[1] = learnt[i];
+                learnt[i] = swap;
+            }
+        }
+        return backjumpLevel;
+    }
+
+    /**
+     * Marks the false literals of the reason of an assignment or of a
+     * conflict as seen. The ones of lower decision levels are added to the
+     * learned clause.
+     *
+     * @param reason The reason of the assignment, or the conflict.
+     * @param implied The literal implied by the reason, or {@code -1} for a
+     *        conflict.
+     * @return The amount of newly seen literals of the current decision
+     *         level.
+     */
+    private int visitReason(int reason, int implied) {
+        if (reason == BINARY_CONFLICT) {
+            return visit(binaryConflict[0]) + visit(binaryConflict[1]);
+        } else if (reason < NO_REASON) {
+            return visit((-2 - reason) ^ 1);
+        }
+
+        int[] clause = clauses[reason];
+        int pending = 0;
+        for (int i = (implied < 0) ? 0 : 1; i < clause.length; i++) {
+            pending += visit(clause[i]);
+        }
+        return pending;
+    }
+
+    /**
+     * Marks a false literal as seen during the conflict analysis and
+     * increases the activity of its variable.
+     *
+     * @param literal The false literal.
+     * @return {@code 1} if the literal was newly seen and assigned on the
+     *         current decision level, {@code 0} otherwise.
+     */
+    private int visit(int literal) {
+        int variable = literal >> 1;
+        if (seen[variable] || (levels[variable] == 0)) {
+            return 0;
+        }
+
+        seen[variable] = true;
+        analyzed[analyzedSize] = variable;
+        analyzedSize++;
+        bumpActivity(variable);
+        if (levels[variable] == decisionLevel) {
+            return 1;
+        }
+        learnt[learntSize] = literal;
+        learntSize++;
+        return 0;
+    }
+
+    /**
+     * Checks whether a literal of the learned clause is implied by the other
+     * literals of the clause, so that it can be left out.
+     *
+     * @param literal The false literal.
+     * @return {@code true} if all literals of the reason of the literal are
+     *         part of the clause or false in every assignment.
+     */
+    private boolean isRedundant(int literal) {
+        int reason = reasons[literal >> 1];
+        if (reason == NO_REASON) {
+            return false;
+        } else if (reason < NO_REASON) {
+            return isSeenOrFixed(-2 - reason);
+        }
+
+        int[] clause = clauses[reason];
+        for (int i = 1; i < clause.length; i++) {
+            if (!isSeenOrFixed(clause[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the variable of a literal is part of the learned clause
+     * or assigned in every assignment.
+     *
+     * @param literal The literal.
+     * @return {@code true} if the variable was seen or is assigned on the
+     *         decision level {@code 0}.
+     */
+    private boolean isSeenOrFixed(int literal) {
+        int variable = literal >> 1;
+        return seen[variable] || (levels[variable] == 0);
+    }
+
+    /**
+     * Jumps back to the given decision level and adds the learned clause,
+     * which implies its first literal there.
+     *
+     * @param backjumpLevel The decision level returned by
+     *        {@link #analyze(int)}.
+     */
+    private void learn(int backjumpLevel) {
+        cancelUntil(backjumpLevel);
+        if (learntSize == 1) {
+            assign(learnt[0], NO_REASON);
+        } else if (learntSize == 2) {
+            addImplications(learnt[0], learnt[1]);
+            assign(learnt[0], -2 - (learnt[1] ^ 1));
+        } else {
+            int index = storeClause(Arrays.copyOf(learnt, learntSize),
+                    computeGlue());
+            learntCount++;
+            assign(learnt[0], index);
+        }
+    }
+
+    /**
+     * Computes the amount of different decision levels of the literals of
+     * the learned clause.
+     *
+     * @return The glue of the learned clause.
+     */
+    private int computeGlue() {
+        stamp++;
+        int glue = 0;
+        for (int i = 0; i < learntSize; i++) {
+            int level = levels[learnt[i] >> 1];
+            if (levelStamps[level] != stamp) {
+                levelStamps[level] = stamp;
+                glue++;
+            }
+        }
+        return glue;
+    }
+
+    /**
+     * Removes about half of the learned clauses which are not glue clauses,
+     * the ones with the highest glue first. Must only be called on the
+     * decision level {@code 0}, where no clause is the reason of an
+     * assignment which is looked at anymore.
+     */
+    private void reduceLearnts() {
+        int first = clauseCount - learntCount;
+        long[] candidates = new long[learntCount];
+        int candidateCount = 0;
+        for (int index = first; index < clauseCount; index++) {
+            if (glues[index] > GLUE) {
+                candidates[candidateCount]
+                        = ((long) glues[index] << Integer.SIZE) | index;
+                candidateCount++;
+            }
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+        for (int i = candidateCount / 2; i < candidateCount; i++) {
+            clauses[(int) candidates[i]] = null;
+        }
+
+        // Close the gaps and watch the remaining clauses again.
+        int size = first;
+        for (int index = first; index < clauseCount; index++) {
+            if (clauses[index] != null) {
+                clauses[size] = clauses[index];
+                glues[size] = glues[index];
+                size++;
+            }
+        }
+        Arrays.fill(clauses, size, clauseCount, null);
+        learntCount -= clauseCount - size;
+        clauseCount = size;
+
+        Arrays.fill(watchSizes, 0);
+        for (int index = 0; index < clauseCount; index++) {
+            watch(clauses[index][0], index);
+            watch(clauses[index][1], index);
+        }
+        for (int i = 0; i < trailSize; i++) {
+            reasons[trail[i] >> 1] = NO_REASON;
+        }
+    }
+
+    /**
+     * Chooses the unassigned variable with the highest activity and the
+     * value to try first.
+     *
+     * @return The literal to assign, or {@code -1} if all variables are
+     *         assigned.
+     */
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int variable = removeFirst();
+            if (values[variable] == UNASSIGNED) {
+                return literal(variable, phases[variable]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Assigns a literal on the current decision level.
+     *
+     * @param literal The literal to make true.
+     * @param reason The reason of the assignment.
+     */
+    private void assign(int literal, int reason) {
+        int variable = literal >> 1;
+        values[variable] = ((literal & 1) == 0) ? TRUE : FALSE;
+        levels[variable] = decisionLevel;
+        reasons[variable] = reason;
+        trail[trailSize] = literal;
+        trailSize++;
+    }
+
+    /**
+     * Reverts all assignments of the decision levels above the given one.
+     * The values of the variables are kept as their phases.
+     *
+     * @param level The decision level to jump back to.
+     */
+    private void cancelUntil(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= levelStarts[level]; i--) {
+            int variable = trail[i] >> 1;
+            phases[variable] = (values[variable] == TRUE);
+            values[variable] = UNASSIGNED;
+            if (heapPositions[variable] < 0) {
+                insert(variable);
+            }
+        }
+        trailSize = levelStarts[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    /**
+     * Gets the value of a literal in the current assignment.
+     *
+     * @param literal The literal.
+     * @return {@link #TRUE}, {@link #FALSE} or {@link #UNASSIGNED}.
+     */
+    private int valueOf(int literal) {
+        byte value = values[literal >> 1];
+        return ((literal & 1) == 0) ? value : -value;
+    }
+
+    /**
+     * Adds a clause of two unassigned literals as the implications of their
+     * negations.
+     *
+     * @param a The first literal.
+     * @param b The second literal.
+     */
+    private void addImplications(int a, int b) {
+        append(implications, implicationSizes, a ^ 1, b);
+        append(implications, implicationSizes, b ^ 1, a);
+    }
+
+    /**
+     * Adds a clause of more than two literals, whose first two literals are
+     * watched.
+     *
+     * @param clause The literals of the clause.
+     * @param glue The glue of a learned clause, or {@code 0}.
+     * @return The index of the clause.
+     */
+    private int storeClause(int[] clause, int glue) {
+        if (clauseCount == clauses.length) {
+            clauses = Arrays.copyOf(clauses, 2 * clauseCount);
+            glues = Arrays.copyOf(glues, 2 * clauseCount);
+        }
+        clauses[clauseCount] = clause;
+        glues[clauseCount] = glue;
+        watch(clause[0], clauseCount);
+        watch(clause[1], clauseCount);
+        clauseCount++;
+        return clauseCount - 1;
+    }
+
+    /**
+     * Lets a literal watch a clause.
+     *
+     * @param literal The literal.
+     * @param index The index of the clause.
+     */
+    private void watch(int literal, int index) {
+        append(watches, watchSizes, literal, index);
+    }
+
+    /**
+     * Appends an element to one of the growing lists of a literal.
+     *
+     * @param lists The lists of all literals.
+     * @param sizes The sizes of the lists.
+     * @param literal The literal.
+     * @param element The element to append.
+     */
+    private static void append(int[][] lists, int[] sizes, int literal,
+            int element) {
+        int[] list = lists[literal];
+        if (list == null) {
+            list = new int[4];
+            lists[literal] = list;
+        } else if (sizes[literal] == list.length) {
+            list = Arrays.copyOf(list, 2 * list.length);
+            lists[literal] = list;
+        }
+        list[sizes[literal]] = element;
+        sizes[literal]++;
+    }
+
+    /**
+     * Increases the activity of a variable by the current increment.
+     *
+     * @param variable The variable.
+     */
+    private void bumpActivity(int variable) {
+        activities[variable] += increment;
+        if (activities[variable] > ACTIVITY_LIMIT) {
+            for (int i = 0; i < variables; i++) {
+                activities[i] /= ACTIVITY_LIMIT;
+            }
+            increment /= ACTIVITY_LIMIT;
+        }
+        if (heapPositions[variable] >= 0) {
+            siftUp(heapPositions[variable]);
+        }
+    }
+
+    /**
+     * Checks whether a variable is ordered before another one in the heap.
+     * Variables with the same activity are ordered by their number.
+     *
+     * @param a The first variable.
+     * @param b The second variable.
+     * @return {@code true} if {@code a} should be decided before {@code b}.
+     */
+    private boolean isBefore(int a, int b) {
+        return (activities[a] > activities[b])
+                || ((activities[a] == activities[b]) && (a < b));
+    }
+
+    /**
+     * Adds a variable to the heap.
+     *
+     * @param variable The variable, which is not in the heap.
+     */
+    private void insert(int variable) {
+        heap[heapSize] = variable;
+        heapPositions[variable] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    /**
+     * Removes the variable with the highest activity from the heap.
+     *
+     * @return The removed variable.
+     */
+    private int removeFirst() {
+        int first = heap[0];
+        heapPositions[first] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPositions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /**
+     * Moves a variable up in the heap until its parent is ordered before it.
+     *
+     * @param position The position of the variable in the heap.
+     */
+    private void siftUp(int position) {
+        int variable = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >> 1;
+            if (!isBefore(variable, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPositions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = variable;
+        heapPositions[variable] = position;
+    }
+
+    /**
+     * Moves a variable down in the heap until it is ordered before its
+     * children.
+     *
+     * @param position The position of the variable in the heap.
+     */
+    private void siftDown(int position) {
+        int variable = heap[position];
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+            if ((child + 1 < heapSize) && isBefore(heap[child + 1],
+                    heap[child])) {
+                child++;
+            }
+            if (!isBefore(heap[child], variable)) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPositions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = variable;
+        heapPositions[variable] = position;
+    }
+
+    /**
+     * Gets an element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+     *
+     * @param index The index of the element, starting at {@code 0}.
+     * @return The element.
+     */
+    static int luby(int index) {
+        int size = 1;
+        int exponent = 0;
+        while (size < index + 1) {
+            exponent++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != index) {
+            size = (size - 1) >> 1;
+            exponent--;
+            index = index % size;
+        }
+        return 1 << exponent;
+    }
+
+}
@@ -0,0 +1,361 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A CdclSolver solves sudokus by encoding them as boolean formulas, which are
+ * solved with the conflict driven clause learning of {@link Cdcl}. Unlike
+ * the backtracking solvers, it learns from every dead end why it failed and
+ * jumps back to the decision which caused it, so it does not get stuck in
+ * large or adversarial sudokus as easily.
+ * <p>
+ * There is one variable for every possible value of every unset cell, which
+ * is true if the cell is set to the value. Every cell needs a value and
+ * every number needs a position in each row, column and box, which are
+ * clauses with the possible variables of the cell or the number. Two
+ * variables of the same cell or of the same number in cells sharing a
+ * structure exclude each other, which are clauses of two literals. The set
+ * cells are not part of the formula, so it shrinks with every given cell.
+ * <p>
+ * To find further solutions, the formula is extended by a clause which
+ * excludes the solution found last. The registered saturators are only used
+ * by {@link #saturate(Board)}, which behaves exactly like
+ * {@link SudokuBoardSolver#saturate(Board)}. The solutions are the same as
+ * the ones of the {@link SudokuBoardSolver}. Only if a sudoku has multiple
+ * solutions, the first solution and the order of all solutions may differ,
+ * but they are repeatable as well.
+ */
+public class CdclSolver implements SudokuSolver {
+
+    /**
+     * The solver providing the saturation with all registered saturators.
+     */
+    private final SudokuSolver saturatingSolver = new SudokuBoardSolver();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSaturator(Saturator saturator) {
+        saturatingSolver.addSaturator(saturator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board saturate(Board board) {
+        return saturatingSolver.saturate(board);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board findFirstSolution(Board board) {
+        List<Board> solutions = new ArrayList<Board>(1);
+        search(board, 1, solutions::add);
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Board> findAllSolutions(Board board) {
+        List<Board> solutions = new ArrayList<Board>();
+        search(board, Long.MAX_VALUE, solutions::add);
+        return solutions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void findAllSolutions(Board board, Consumer<? super Board> action) {
+        search(board, Long.MAX_VALUE, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        }
+        return (limit == 0) ? 0 : search(board, limit, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasUniqueSolution(Board board) {
+        return countSolutions(board, 2) == 1;
+    }
+
+    /**
+     * Searches the solutions of the given board. Every found solution is
+     * passed to the action as a new board, which is a clone of the given
+     * board with all cells set. The search stops after the given amount of
+     * solutions was found.
+     *
+     * @param board The board to solve. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action receiving the found solutions, or {@code null}
+     *        if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    private long search(Board board, long limit,
+            Consumer<? super Board> action) {
+        Formula formula = new Formula(board);
+        long solutions = 0;
+
+        while ((solutions < limit) && formula.solve()) {
+            solutions++;
+            if (action != null) {
+                action.accept(formula.createSolution());
+            }
+            if (!formula.excludeSolution()) {
+                break;
+            }
+        }
+        return solutions;
+    }
+
+    /**
+     * The formula of a board together with the mapping between its variables
+     * and the possible values of the cells.
+     */
+    private static final class Formula {
+
+        /**
+         * The variable of a cell and value which are not possible.
+         */
+        private static final int NONE = -1;
+
+        private final Board board;
+        private final Geometry geometry;
+        private final int numbers;
+
+        /**
+         * The variable of every cell and value at the index
+         * {@code cell * numbers + value - 1}, or {@link #NONE}.
+         */
+        private final int[] variables;
+
+        /**
+         * The index {@code cell * numbers + value - 1} of every variable.
+         */
+        private final int[] assignments;
+
+        /**
+         * The solver of the formula, or {@code null} if the set cells of the
+         * board contradict each other.
+         */
+        private final Cdcl solver;
+
+        /**
+         * Creates the formula of a board.
+         *
+         * @param board The board. Will not be changed.
+         */
+        Formula(Board board) {
+            this.board = board;
+            geometry = Geometry.of(board);
+            numbers = board.getNumbers();
+            variables = new int[geometry.getCellCount() * numbers];
+
+            // Create the variables of all possible values of unset cells.
+            int count = 0;
+            int[] found = new int[variables.length];
+            for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+                for (int number = 1; number <= numbers; number++) {
+                    variables[cell * numbers + number - 1] = NONE;
+                }
+                int row = geometry.getRow(cell);
+                int col = geometry.getColumn(cell);
+                for (int number = board.getNextPossibility(Structure.ROW, row,
+                        col, 0); number != Board.UNSET_CELL;
+                        number = board.getNextPossibility(Structure.ROW, row,
+                                col, number)) {
+                    variables[cell * numbers + number - 1] = count;
+                    found[count] = cell * numbers + number - 1;
+                    count++;
+                }
+            }
+            assignments = new int[count];
+            System.arraycopy(found, 0, assignments, 0, count);
+
+            Cdcl cdcl = new Cdcl(count);
+            solver = addClauses(cdcl) ? cdcl : null;
+        }
+
+        /**
+         * Adds the clauses of the board to its solver.
+         *
+         * @param cdcl The solver of the formula.
+         * @return {@code false} if the board turned out to be unsolvable.
+         */
+        private boolean addClauses(Cdcl cdcl) {
+            int[] clause = new int[numbers];
+            boolean consistent = true;
+
+            // Every unset cell needs one of its possible values.
+            for (int cell = 0; (cell < geometry.getCellCount()) && consistent;
+                    cell++) {
+                if (getCell(cell) == Board.UNSET_CELL) {
+                    int size = 0;
+                    for (int number = 1; number <= numbers; number++) {
+                        int variable = getVariable(cell, number);
+                        if (variable != NONE) {
+                            clause[size] = Cdcl.literal(variable, true);
+                            size++;
+                        }
+                    }
+                    consistent = cdcl.addClause(clause, size);
+                }
+            }
+
+            // Every number needs one position in every unit, unless it is set.
+            boolean[] placed = new boolean[numbers];
+            for (int unit = 0; (unit < geometry.getUnitCount()) && consistent;
+                    unit++) {
+                int[] cells = geometry.getCells(unit);
+                for (int number = 1; number <= numbers; number++) {
+                    placed[number - 1] = false;
+                }
+                for (int cell : cells) {
+                    int value = getCell(cell);
+                    if (value != Board.UNSET_CELL) {
+                        if (placed[value - 1]) {
+                            return false; // The number is set twice.
+                        }
+                        placed[value - 1] = true;
+                    }
+                }
+
+                for (int number = 1; (number <= numbers) && consistent;
+                        number++) {
+                    if (!placed[number - 1]) {
+                        int size = 0;
+                        for (int cell : cells) {
+                            int variable = getVariable(cell, number);
+                            if (variable != NONE) {
+                                clause[size] = Cdcl.literal(variable, true);
+                                size++;
+                            }
+                        }
+                        consistent = cdcl.addClause(clause, size);
+                    }
+                }
+            }
+
+            // A cell holds one value and a number is set once per structure.
+            int[] pair = new int[2];
+            for (int variable = 0;
+                    (variable < assignments.length) && consistent;
+                    variable++) {
+                int cell = assignments[variable] / numbers;
+                int number = assignments[variable] % numbers + 1;
+                pair[0] = Cdcl.literal(variable, false);
+
+                for (int other = number + 1; (other <= numbers) && consistent;
+                        other++) {
+                    int otherVariable = getVariable(cell, other);
+                    if (otherVariable != NONE) {
+                        pair[1] = Cdcl.literal(otherVariable, false);
+                        consistent = cdcl.addClause(pair, 2);
+                    }
+                }
+                for (int peer : geometry.getPeers(cell)) {
+                    int otherVariable = getVariable(peer, number);
+                    if ((peer > cell) && (otherVariable != NONE)
+                            && consistent) {
+                        pair[1] = Cdcl.literal(otherVariable, false);
+                        consistent = cdcl.addClause(pair, 2);
+                    }
+                }
+            }
+
+            return consistent;
+        }
+
+        /**
+         * Searches the next solution of the board.
+         *
+         * @return {@code true} if a solution was found.
+         */
+        boolean solve() {
+            return (solver != null) && solver.solve();
+        }
+
+        /**
+         * Creates a board from the solution found last.
+         *
+         * @return The clone of the board with all cells set.
+         */
+        Board createSolution() {
+            Board solution = board.clone();
+            for (int variable = 0; variable < assignments.length; variable++) {
+                if (solver.isTrue(variable)) {
+                    int cell = assignments[variable] / numbers;
+                    try {
+                        solution.setCell(Structure.ROW, geometry.getRow(cell),
+                                geometry.getColumn(cell),
+                                assignments[variable] % numbers + 1);
+                    } catch (InvalidSudokuException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }
+            return solution;
+        }
+
+        /**
+         * Adds a clause to the formula which excludes the solution found
+         * last.
+         *
+         * @return {@code false} if there can not be another solution.
+         */
+        boolean excludeSolution() {
+            int[] clause = new int[assignments.length];
+            int size = 0;
+            for (int variable = 0; variable < assignments.length; variable++) {
+                if (solver.isTrue(variable)) {
+                    clause[size] = Cdcl.literal(variable, false);
+                    size++;
+                }
+            }
+            return solver.addClause(clause, size);
+        }
+
+        /**
+         * Gets the value of a cell of the board.
+         *
+         * @param cell The absolute index of the cell.
+         * @return The value of the cell, or {@link Board#UNSET_CELL}.
+         */
+        private int getCell(int cell) {
+            return board.getCell(Structure.ROW, geometry.getRow(cell),
+                    geometry.getColumn(cell));
+        }
+
+        /**
+         * Gets the variable of a value of a cell.
+         *
+         * @param cell The absolute index of the cell.
+         * @param number The value.
+         * @return The variable, or {@link #NONE} if the value is not possible.
+         */
+        private int getVariable(int cell, int number) {
+            return variables[cell * numbers + number - 1];
+        }
+
+    }
+
+}
@@ -0,0 +1,725 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * A ConflictAnalyzer finds out which decisions of a depth-first search are
+ * responsible for the contradictions it runs into, so that the search can
+ * jump back to the latest responsible decision instead of trying the
+ * alternatives of decisions which had nothing to do with it.
+ * <p>
+ * The decisions are numbered by their level, starting with {@code 1} for the
+ * decision of the outermost branch point. For every removed possibility of
+ * the working board, the set of levels it depends on is kept as bit set, its
+ * reason. The reasons are derived by replaying the changes of every level in
+ * the order they were made: a decision depends on its own level, a set cell
+ * removes its value from its peers and a cell is set because it has a single
+ * possibility left or a number has a single position left in a unit.
+ * Possibilities removed by a number which can only be placed where the cell
+ * is seen are explained as well. Every other change, which is made by the
+ * more advanced saturators, is conservatively assumed to depend on all
+ * decisions made so far.
+ * <p>
+ * The levels a branch point depends on are collected from the failed
+ * alternatives. Once all of them failed, the decisions of these levels can
+ * not hold together in any solution, so they are recorded as nogood for the
+ * rest of the search if there are not too many of them. Nogoods are watched
+ * like the clauses of {@link Cdcl}: if all of their decisions but one hold,
+ * the last one is removed from its cell, and if all of them hold, the board
+ * is unsolvable.
+ * <p>
+ * Only boards with less than 64 numbers can be analyzed, as the changes are
+ * read from the trail of a {@link BitMaskBoard} with a word per cell.
+ */
+final class ConflictAnalyzer {
+
+    /**
+     * Passed instead of a decision if the changes were not caused by one.
+     */
+    static final int NO_DECISION = -1;
+
+    /**
+     * The maximum amount of decisions of a recorded nogood. Longer nogoods
+     * hardly ever hold again, but watching them costs as much as watching
+     * short ones.
+     */
+    private static final int MAX_NOGOOD_SIZE = 8;
+
+    private final Geometry geometry;
+    private final int numbers;
+
+    /**
+     * The flag of a fixed cell in the words of the board.
+     */
+    private final long fixedBit;
+
+    /**
+     * The amount of words of a bit set over all levels.
+     */
+    private final int levelWords;
+
+    /**
+     * The reason of every removed possibility at the index
+     * {@code (cell * numbers + number - 1) * levelWords}. The reason of the
+     * value of a set cell is the reason why the cell was set.
+     */
+    private final long[] reasons;
+
+    /**
+     * The levels every branch point depends on so far, at the index
+     * {@code level * levelWords}.
+     */
+    private final long[] conflictSets;
+
+    /**
+     * The levels the failure analyzed last depends on.
+     */
+    private final long[] conflict;
+
+    /**
+     * The levels a failure found in the changes depends on, while it is
+     * compared to the best one found so far.
+     */
+    private final long[] candidate;
+
+    /*
+     * The changes recorded last, in the order they were made, and the words
+     * of all cells while they are replayed.
+     */
+    private final int[] changedCells;
+    private final long[] oldWords;
+    private final long[] newWords;
+    private final long[] state;
+    private int changeCount;
+
+    /**
+     * The values of the cells set by the changes recorded last, encoded as
+     * {@code cell * numbers + number - 1}.
+     */
+    private final int[] assignments;
+    private int assignmentCount;
+
+    /**
+     * The decisions of every nogood. The first two decisions are watched.
+     */
+    private int[][] nogoods = new int[16][];
+    private int nogoodCount;
+
+    /**
+     * The nogoods watching every value of every cell, encoded like the
+     * {@link #assignments}.
+     */
+    private final int[][] watches;
+    private final int[] watchSizes;
+
+    /**
+     * Marks the possibilities whose reason was already set when they were
+     * removed by a nogood, so that replaying the removal keeps it.
+     */
+    private final int[] stamps;
+    private int stamp = 1;
+
+    /**
+     * Whether the failure of the last propagated nogoods is already stored
+     * in {@link #conflict}.
+     */
+    private boolean nogoodConflict;
+
+    /**
+     * Creates an analyzer for the boards of a geometry.
+     *
+     * @param geometry The geometry of the boards. Must have less than 64
+     *        numbers.
+     */
+    ConflictAnalyzer(Geometry geometry) {
+        this.geometry = geometry;
+        numbers = geometry.getNumbers();
+        fixedBit = 1L << numbers;
+
+        int cellCount = geometry.getCellCount();
+        int literals = cellCount * numbers;
+        levelWords = (cellCount >>> 6) + 1;
+        reasons = new long[literals * levelWords];
+        conflictSets = new long[(cellCount + 1) * levelWords];
+        conflict = new long[levelWords];
+        candidate = new long[levelWords];
+
+        // A cell can not change more often than it loses a possibility.
+        int maxChanges = cellCount * (numbers + 1);
+        changedCells = new int[maxChanges];
+        oldWords = new long[maxChanges];
+        newWords = new long[maxChanges];
+        state = new long[cellCount];
+        assignments = new int[cellCount];
+        watches = new int[literals][];
+        watchSizes = new int[literals];
+        stamps = new int[literals];
+    }
+
+    /**
+     * Starts a branch point. Its alternatives only cover the possibilities
+     * left on the board, so the branch point depends on the reasons of the
+     * removed ones from the start.
+     *
+     * @param board The working board in the state of the branch point.
+     * @param level The level of the decisions of the branch point.
+     * @param branch The branch, encoded like by
+     *        {@link SudokuBoardSolver#selectBranch(Board)}.
+     */
+    void startBranchPoint(BitMaskBoard board, int level, int branch) {
+        int offset = level * levelWords;
+        Arrays.fill(conflictSets, offset, offset + levelWords, 0);
+
+        int cellCount = geometry.getCellCount();
+        if (branch < cellCount) {
+            long possible = board.getPossibilityMask(branch);
+            for (int number = 0; number < numbers; number++) {
+                if ((possible & (1L << number)) == 0) {
+                    union(conflictSets, offset, branch * numbers + number);
+                }
+            }
+        } else {
+            int number = (branch - cellCount) % numbers;
+            for (int cell : geometry.getCells((branch - cellCount)
+                    / numbers)) {
+                if ((board.getPossibilityMask(cell) & (1L << number)) == 0) {
+                    union(conflictSets, offset, cell * numbers + number);
+                }
+            }
+        }
+    }
+
+    /**
+     * Derives the reasons of the changes of a board made after a mark was
+     * taken. Must be called for all changes made during the search, except
+     * for the saturation of the initial board, whose changes do not depend
+     * on any decision.
+     *
+     * @param board The working board.
+     * @param mark The trail mark of the board before the changes.
+     * @param level The level of the current decision.
+     * @param decision The decision made right after the mark, encoded as
+     *        {@code cell * numbers + number - 1}, or {@link #NO_DECISION}.
+     */
+    void record(BitMaskBoard board, int mark, int level, int decision) {
+        changeCount = board.getChanges(mark, changedCells, oldWords, newWords,
+                state);
+        assignmentCount = 0;
+        nogoodConflict = false;
+
+        for (int change = 0; change < changeCount; change++) {
+            int cell = changedCells[change];
+            long oldWord = oldWords[change];
+            long newWord = newWords[change];
+            long removed = oldWord & ~newWord & (fixedBit - 1);
+
+            if (((newWord & ~oldWord) & fixedBit) != 0) {
+                int number = Long.numberOfTrailingZeros(newWord) + 1;
+                int literal = cell * numbers + number - 1;
+                explainAssignment(cell, number, oldWord, level,
+                        literal == decision);
+                for (long bits = removed; bits != 0; bits &= bits - 1) {
+                    copy(literal, cell * numbers
+                            + Long.numberOfTrailingZeros(bits));
+                }
+                assignments[assignmentCount] = literal;
+                assignmentCount++;
+            } else {
+                for (long bits = removed; bits != 0; bits &= bits - 1) {
+                    explainRemoval(cell, Long.numberOfTrailingZeros(bits) + 1,
+                            level);
+                }
+            }
+            state[cell] = newWord;
+        }
+        stamp++; // The removals by the nogoods were replayed.
+    }
+
+    /**
+     * Applies the nogoods to the board after the changes recorded last. The
+     * decisions of a nogood, of which all others hold, are removed from
+     * their cells, and the board is unsolvable if all decisions of a nogood
+     * hold.
+     *
+     * @param board The working board, which still is in the state after the
+     *        changes recorded last.
+     * @return Whether the board was changed or turned out to be unsolvable.
+     */
+    SaturationResult propagateNogoods(BitMaskBoard board) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+
+        for (int i = 0; (i < assignmentCount)
+                && (result != SaturationResult.UNSOLVABLE); i++) {
+            int literal = assignments[i];
+            int[] watching = watches[literal];
+            int kept = 0;
+            for (int w = 0; w < watchSizes[literal]; w++) {
+                int id = watching[w];
+                if ((result == SaturationResult.UNSOLVABLE)
+                        || !moveWatch(id, literal)) {
+                    watching[kept] = id;
+                    kept++;
+                    if (result != SaturationResult.UNSOLVABLE) {
+                        result = result.combine(applyNogood(board, id));
+                    }
+                }
+            }
+            watchSizes[literal] = kept;
+        }
+        if (result == SaturationResult.UNSOLVABLE) {
+            stamp++; // The removals are not replayed anymore.
+        }
+        return result;
+    }
+
+    /**
+     * Finds out which levels the failure of the current decision depends on.
+     * The failure is either found by the nogoods applied last, or it has to
+     * be visible in the changes recorded last as a cell without
+     * possibilities or a number without a position in a unit. If neither is
+     * found, the failure depends on all levels up to the current one.
+     * <p>
+     * If the current decision is responsible, the other levels are added to
+     * its branch point. Otherwise, all further alternatives of the branch
+     * point fail as well, so the failed decision is the latest responsible
+     * one instead.
+     *
+     * @param level The level of the failed decision.
+     * @return The latest responsible level, which is {@code 0} if the board
+     *         is unsolvable without any decision.
+     */
+    int analyzeFailure(int level) {
+        if (!nogoodConflict && !findWitness()) {
+            Arrays.fill(conflict, 0);
+            addLevels(conflict, 0, level);
+        }
+        int latest = getLatestLevel(conflict, 0);
+        if (latest > 0) {
+            mergeConflict(latest);
+        }
+        return latest;
+    }
+
+    /**
+     * Records the nogood of a branch point all alternatives of which failed.
+     * The decisions of the levels it depends on can not hold together, so
+     * the latest of them failed because of the others, which are added to
+     * its branch point.
+     *
+     * @param level The level of the decisions of the branch point.
+     * @param decisions The current decision of every level at the index
+     *        {@code level - 1}, encoded as {@code cell * numbers + number
+     *        - 1}.
+     * @return The latest level the branch point depends on, which is the
+     *         level to jump back to, or {@code 0} if the board is unsolvable
+     *         without any decision.
+     */
+    int backjump(int level, int[] decisions) {
+        System.arraycopy(conflictSets, level * levelWords, conflict, 0,
+                levelWords);
+        int latest = getLatestLevel(conflict, 0);
+        if (latest > 0) {
+            addNogood(decisions);
+            mergeConflict(latest);
+        }
+        return latest;
+    }
+
+    /**
+     * Adds the levels of the {@link #conflict} except for the given one to
+     * the branch point of this level.
+     *
+     * @param level The latest level of the conflict.
+     */
+    private void mergeConflict(int level) {
+        conflict[level >>> 6] &= ~(1L << level);
+        int offset = level * levelWords;
+        for (int word = 0; word < levelWords; word++) {
+            conflictSets[offset + word] |= conflict[word];
+        }
+    }
+
+    /**
+     * Adds the decisions of the levels in the {@link #conflict} as nogood.
+     * The decisions of the latest levels are watched, as the decisions of
+     * lower levels are taken back later.
+     *
+     * @param decisions The current decision of every level.
+     */
+    private void addNogood(int[] decisions) {
+        int size = 0;
+        for (int word = 0; word < levelWords; word++) {
+            size += Long.bitCount(conflict[word]);
+        }
+        if (size > MAX_NOGOOD_SIZE) {
+            return;
+        }
+        int[] nogood = new int[size];
+        int position = 0;
+        for (int word = levelWords - 1; word >= 0; word--) {
+            for (long bits = conflict[word]; bits != 0;
+                    bits &= ~Long.highestOneBit(bits)) {
+                int level = (word << 6) + 63
+                        - Long.numberOfLeadingZeros(bits);
+                nogood[position] = decisions[level - 1];
+                position++;
+            }
+        }
+
+        if (nogoodCount == nogoods.length) {
+            nogoods = Arrays.copyOf(nogoods, nogoodCount * 2);
+        }
+        nogoods[nogoodCount] = nogood;
+        for (int w = 0; w < Math.min(size, 2); w++) {
+            watch(nogood[w], nogoodCount);
+        }
+        nogoodCount++;
+    }
+
+    /**
+     * Adds a nogood to the watches of a decision.
+     *
+     * @param literal The watched decision.
+     * @param id The index of the nogood.
+     */
+    private void watch(int literal, int id) {
+        if (watches[literal] == null) {
+            watches[literal] = new int[4];
+        } else if (watchSizes[literal] == watches[literal].length) {
+            watches[literal] = Arrays.copyOf(watches[literal],
+                    watchSizes[literal] * 2);
+        }
+        watches[literal][watchSizes[literal]] = id;
+        watchSizes[literal]++;
+    }
+
+    /**
+     * Replaces a decision of a nogood which holds now by another watched
+     * decision which does not hold, if there is one. Afterwards, the
+     * decision which holds is the second of the nogood.
+     *
+     * @param id The index of the nogood.
+     * @param literal The watched decision which holds now.
+     * @return {@code true} if the watch was moved to another decision.
+     */
+    private boolean moveWatch(int id, int literal) {
+        int[] nogood = nogoods[id];
+        if (nogood.length == 1) {
+            return false;
+        }
+        if (nogood[0] == literal) {
+            nogood[0] = nogood[1];
+            nogood[1] = literal;
+        }
+        for (int i = 2; i < nogood.length; i++) {
+            if (!holds(nogood[i])) {
+                nogood[1] = nogood[i];
+                nogood[i] = literal;
+                watch(nogood[1], id);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies a nogood all decisions of which except for the first one hold.
+     *
+     * @param board The working board.
+     * @param id The index of the nogood.
+     * @return Whether the board was changed or turned out to be unsolvable.
+     */
+    private SaturationResult applyNogood(BitMaskBoard board, int id) {
+        int[] nogood = nogoods[id];
+        int first = nogood[0];
+        int cell = first / numbers;
+        long bit = 1L << (first % numbers);
+        if ((nogood.length > 1) && ((state[cell] & bit) == 0)) {
+            return SaturationResult.UNCHANGED; // The first one can't hold.
+        }
+
+        Arrays.fill(conflict, 0);
+        for (int literal : nogood) {
+            if (literal != first) {
+                union(conflict, 0, literal);
+            }
+        }
+        if ((nogood.length == 1) || ((state[cell] & fixedBit) != 0)) {
+            union(conflict, 0, first);
+            nogoodConflict = true;
+            return SaturationResult.UNSOLVABLE;
+        } else if (stamps[first] == stamp) {
+            return SaturationResult.UNCHANGED; // Already removed now.
+        }
+
+        System.arraycopy(conflict, 0, reasons, first * levelWords,
+                levelWords);
+        stamps[first] = stamp;
+        if (!board.tryRemovePossibility(cell, first % numbers + 1)) {
+            // The cell has no possibilities left.
+            Arrays.fill(conflict, 0);
+            for (int number = 0; number < numbers; number++) {
+                union(conflict, 0, cell * numbers + number);
+            }
+            nogoodConflict = true;
+            return SaturationResult.UNSOLVABLE;
+        }
+        return SaturationResult.CHANGED;
+    }
+
+    /**
+     * Checks whether a decision holds in the state after the changes
+     * recorded last.
+     *
+     * @param literal The decision, encoded as {@code cell * numbers + number
+     *        - 1}.
+     * @return {@code true} if the cell is set to the number.
+     */
+    private boolean holds(int literal) {
+        long word = state[literal / numbers];
+        return ((word & fixedBit) != 0)
+                && ((word & (1L << (literal % numbers))) != 0);
+    }
+
+    /**
+     * Derives the reason why a cell was set.
+     *
+     * @param cell The absolute index of the cell.
+     * @param number The value of the cell.
+     * @param oldWord The word of the cell before it was set.
+     * @param level The level of the current decision.
+     * @param decided Whether the cell was set by the current decision.
+     */
+    private void explainAssignment(int cell, int number, long oldWord,
+            int level, boolean decided) {
+        int literal = cell * numbers + number - 1;
+        int offset = literal * levelWords;
+        Arrays.fill(reasons, offset, offset + levelWords, 0);
+        long bit = 1L << (number - 1);
+
+        if (decided) {
+            reasons[offset + (level >>> 6)] = 1L << level;
+        } else if ((oldWord & (fixedBit - 1)) == bit) {
+            // All other values of the cell were removed.
+            for (int other = 0; other < numbers; other++) {
+                if (other != number - 1) {
+                    union(reasons, offset, cell * numbers + other);
+                }
+            }
+        } else if (!explainByUnit(cell, number, offset, -1)) {
+            addLevels(reasons, offset, level);
+        }
+    }
+
+    /**
+     * Derives the reason why a possibility was removed from a cell.
+     *
+     * @param cell The absolute index of the cell.
+     * @param number The removed number.
+     * @param level The level of the current decision.
+     */
+    private void explainRemoval(int cell, int number, int level) {
+        int literal = cell * numbers + number - 1;
+        if (stamps[literal] == stamp) {
+            return; // The reason was set by the nogood removing it.
+        }
+
+        int offset = literal * levelWords;
+        long bit = 1L << (number - 1);
+        for (int peer : geometry.getPeers(cell)) {
+            if (((state[peer] & fixedBit) != 0) && ((state[peer] & bit) != 0)) {
+                System.arraycopy(reasons, (peer * numbers + number - 1)
+                        * levelWords, reasons, offset, levelWords);
+                return;
+            }
+        }
+
+        Arrays.fill(reasons, offset, offset + levelWords, 0);
+        if (!explainByUnit(cell, number, offset, cell)) {
+            addLevels(reasons, offset, level);
+        }
+    }
+
+    /**
+     * Looks for a unit where a number can only be placed in a cell, or only
+     * in cells which see another cell. The reason of the number in the
+     * other cells of the unit is the reason for setting the cell, or for
+     * removing the number from the seeing cell.
+     *
+     * @param cell The cell which is set, or {@code -1} if the number was
+     *        removed from the seeing cell.
+     * @param number The number.
+     * @param offset The offset of the reason to derive.
+     * @param seeing The cell the number was removed from, or {@code -1} if
+     *        the number was placed in the cell.
+     * @return {@code true} if the reason was derived.
+     */
+    private boolean explainByUnit(int cell, int number, int offset,
+            int seeing) {
+        long bit = 1L << (number - 1);
+        int[] units = (seeing < 0) ? geometry.getUnits(cell) : null;
+        int unitCount = (seeing < 0) ? units.length : geometry.getUnitCount();
+
+        for (int u = 0; u < unitCount; u++) {
+            int unit = (seeing < 0) ? units[u] : u;
+            int[] cells = geometry.getCells(unit);
+            boolean explains = true;
+            for (int i = 0; (i < cells.length) && explains; i++) {
+                int other = cells[i];
+                if ((state[other] & bit) != 0) {
+                    explains = (seeing < 0) ? (other == cell)
+                            : ((other != seeing) && sharesUnit(other, seeing)
+                                    && ((state[other] & fixedBit) == 0));
+                }
+            }
+            if (explains) {
+                for (int other : cells) {
+                    if ((state[other] & bit) == 0) {
+                        union(reasons, offset, other * numbers + number - 1);
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks for a cell without possibilities or a number without a position
+     * in a unit in the changes recorded last and stores the levels it
+     * depends on as {@link #conflict}. If there are multiple ones, the one
+     * with the lowest latest level is taken.
+     *
+     * @return {@code true} if a failure was found.
+     */
+    private boolean findWitness() {
+        int best = Integer.MAX_VALUE;
+
+        for (int change = 0; change < changeCount; change++) {
+            int cell = changedCells[change];
+            if ((state[cell] & (fixedBit | (fixedBit - 1))) == 0) {
+                Arrays.fill(candidate, 0);
+                for (int number = 0; number < numbers; number++) {
+                    union(candidate, 0, cell * numbers + number);
+                }
+                best = takeBetter(best);
+            }
+
+            long removed = oldWords[change] & ~newWords[change]
+                    & (fixedBit - 1);
+            for (long bits = removed; bits != 0; bits &= bits - 1) {
+                long bit = bits & -bits;
+                int number = Long.numberOfTrailingZeros(bits);
+                for (int unit : geometry.getUnits(cell)) {
+                    int[] cells = geometry.getCells(unit);
+                    boolean placeable = false;
+                    for (int i = 0; (i < cells.length) && !placeable; i++) {
+                        placeable = (state[cells[i]] & bit) != 0;
+                    }
+                    if (!placeable) {
+                        Arrays.fill(candidate, 0);
+                        for (int other : cells) {
+                            union(candidate, 0, other * numbers + number);
+                        }
+                        best = takeBetter(best);
+                    }
+                }
+            }
+        }
+        return best != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Stores the {@link #candidate} as {@link #conflict} if its latest level
+     * is lower than the one of the best candidate so far.
+     *
+     * @param best The latest level of the best candidate so far.
+     * @return The latest level of the best candidate.
+     */
+    private int takeBetter(int best) {
+        int latest = getLatestLevel(candidate, 0);
+        if (latest < best) {
+            System.arraycopy(candidate, 0, conflict, 0, levelWords);
+            return latest;
+        }
+        return best;
+    }
+
+    /**
+     * Checks whether two cells share a unit.
+     *
+     * @param a The absolute index of the first cell.
+     * @param b The absolute index of the second cell.
+     * @return {@code true} if the cells share a unit.
+     */
+    private boolean sharesUnit(int a, int b) {
+        for (int unit : geometry.getUnits(a)) {
+            for (int other : geometry.getUnits(b)) {
+                if (unit == other) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the reason of a possibility to another one.
+     *
+     * @param from The possibility to copy the reason of.
+     * @param to The possibility receiving the reason.
+     */
+    private void copy(int from, int to) {
+        System.arraycopy(reasons, from * levelWords, reasons, to * levelWords,
+                levelWords);
+    }
+
+    /**
+     * Adds the reason of a possibility to a set of levels.
+     *
+     * @param target The array containing the set.
+     * @param offset The offset of the set.
+     * @param literal The possibility, encoded as {@code cell * numbers
+     *        + number - 1}.
+     */
+    private void union(long[] target, int offset, int literal) {
+        int from = literal * levelWords;
+        for (int word = 0; word < levelWords; word++) {
+            target[offset + word] |= reasons[from + word];
+        }
+    }
+
+    /**
+     * Adds all levels from {@code 1} up to the given one to a set.
+     *
+     * @param target The array containing the set.
+     * @param offset The offset of the set.
+     * @param level The highest level to add.
+     */
+    private void addLevels(long[] target, int offset, int level) {
+        for (int word = 0; word <= (level >>> 6); word++) {
+            long bits = (word < (level >>> 6)) ? -1L
+                    : (-1L >>> (63 - (level & 63)));
+            target[offset + word] |= bits;
+        }
+        target[offset] &= ~1L; // There is no decision of level 0.
+    }
+
+    /**
+     * Gets the highest level of a set.
+     *
+     * @param levels The array containing the set.
+     * @param offset The offset of the set.
+     * @return The highest level, or {@code 0} if the set is empty.
+     */
+    private int getLatestLevel(long[] levels, int offset) {
+        for (int word = levelWords - 1; word >= 0; word--) {
+            if (levels[offset + word] != 0) {
+                return (word << 6) + 63
+                        - Long.numberOfLeadingZeros(levels[offset + word]);
+            }
+        }
+        return 0;
+    }
+
+}
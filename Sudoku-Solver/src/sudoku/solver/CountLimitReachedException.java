@@ -0,0 +1,20 @@
+package sudoku.solver;
+
+/**
+ * Thrown by the default implementation of
+ * {@link SudokuSolver#countSolutions(Board, long)} to stop the enumeration of
+ * the solutions as soon as enough of them were counted. It is only used for
+ * this control flow, so it does not record a stack trace.
+ */
+final class CountLimitReachedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     */
+    CountLimitReachedException() {
+        super(null, null, false, false);
+    }
+
+}
@@ -0,0 +1,400 @@
+package sudoku.solver;
+
+import java.util.function.Consumer;
+
+/**
+ * The Dancing Links representation of the exact cover problem of all sudokus
+ * with a certain geometry, which is solved with Knuth's Algorithm X.
+ * <p>
+ * Every row of the matrix is a possible assignment of a number to a cell. It
+ * covers four columns: the cell itself and the number in the row, in the
+ * column and in the box of the cell. A solution is a set of rows covering
+ * every column exactly once.
+ * <p>
+ * All nodes are stored in parallel primitive arrays. The matrix only depends
+ * on the geometry, so it is created once and afterwards reused for every
+ * board. Before a search, the assignments which are not possible in the board
+ * are unlinked and the set cells are selected. After the search all of these
+ * changes are reverted, so the matrix is in its initial state again.
+ * <p>
+ * As the matrix is changed while searching, it must not be used by multiple
+ * threads at the same time.
+ */
+final class DancingLinks {
+
+    /**
+     * The amount of columns covered by every row.
+     */
+    private static final int NODES_PER_ROW = 4;
+
+    /**
+     * The index of the root header.
+     */
+    private static final int ROOT = 0;
+
+    private final Geometry geometry;
+    private final int numbers;
+    private final int columns;
+
+    /*
+     * The links of all nodes. The indices 1 to columns are the column
+     * headers, followed by the nodes of all rows, each one with
+     * NODES_PER_ROW consecutive nodes.
+     */
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+
+    /**
+     * The amount of rows linked in each column.
+     */
+    private final int[] size;
+
+    /**
+     * The rows selected on the current search path, one per level.
+     */
+    private final int[] selected;
+
+    /**
+     * The rows unlinked or selected before the search, to revert them
+     * afterwards.
+     */
+    private final int[] removedRows;
+    private final int[] givenRows;
+    private int removedCount;
+    private int givenCount;
+
+    /**
+     * Creates the matrix for the given geometry.
+     *
+     * @param geometry The geometry of the sudokus to solve.
+     */
+    DancingLinks(Geometry geometry) {
+        this.geometry = geometry;
+        numbers = geometry.getNumbers();
+        int cells = geometry.getCellCount();
+        int rows = cells * numbers;
+        columns = NODES_PER_ROW * cells;
+
+        int nodes = 1 + columns + rows * NODES_PER_ROW;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        size = new int[columns + 1];
+        selected = new int[cells];
+        removedRows = new int[rows];
+        givenRows = new int[cells];
+
+        // Link the headers to a circular list and start with empty columns.
+        for (int header = ROOT; header <= columns; header++) {
+            left[header] = (header == ROOT) ? columns : header - 1;
+            right[header] = (header == columns) ? ROOT : header + 1;
+            up[header] = header;
+            down[header] = header;
+            column[header] = header;
+        }
+
+        // Append the nodes of every row to the bottom of their columns.
+        for (int row = 0; row < rows; row++) {
+            int cell = row / numbers;
+            int number = row % numbers;
+            int[] units = geometry.getUnits(cell);
+            int[] rowColumns = {
+                1 + cell,
+                1 + cells + units[Structure.ROW.ordinal()] * numbers + number,
+                1 + cells + units[Structure.COL.ordinal()] * numbers + number,
+                1 + cells + units[Structure.BOX.ordinal()] * numbers + number
+            };
+
+            int first = firstNode(row);
+            for (int i = 0; i < NODES_PER_ROW; i++) {
+                int node = first + i;
+                int header = rowColumns[i];
+                left[node] = (i == 0) ? first + NODES_PER_ROW - 1 : node - 1;
+                right[node] = (i == NODES_PER_ROW - 1) ? first : node + 1;
+                column[node] = header;
+                up[node] = up[header];
+                down[node] = header;
+                down[up[header]] = node;
+                up[header] = node;
+                size[header]++;
+            }
+        }
+    }
+
+    /**
+     * Searches the solutions of the given board. Every found solution is
+     * passed to the action as a new board, which is a clone of the given
+     * board with all cells set. The search stops after the given amount of
+     * solutions was found.
+     *
+     * @param board The board to solve. Will not be changed. Must have the
+     *        geometry of this matrix.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action receiving the found solutions, or {@code null}
+     *        if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     *         If the action throws an exception, the matrix is restored
+     *         before it is passed on.
+     */
+    long search(Board board, long limit, Consumer<? super Board> action) {
+        long solutions = 0;
+        int level = 0;
+
+        /*
+         * The matrix is reused for the next board, so it has to be restored
+         * even if the action throws an exception to stop the search early.
+         */
+        try {
+            if (prepare(board)) {
+                int node = ROOT;
+                boolean descend = true;
+
+                while (solutions < limit) {
+                    if (descend) {
+                        if (right[ROOT] == ROOT) {
+
+                            // Every column is covered, the path is solved.
+                            solutions++;
+                            if (action != null) {
+                                action.accept(createSolution(board, level));
+                            }
+                            descend = false;
+                            continue;
+                        }
+
+                        int header = chooseColumn();
+                        cover(header);
+                        node = down[header];
+                    } else {
+
+                        // Backtrack by deselecting the row of the level.
+                        if (level == 0) {
+                            break;
+                        }
+                        level--;
+                        node = selected[level];
+                        for (int j = left[node]; j != node; j = left[j]) {
+                            uncover(column[j]);
+                        }
+                        node = down[node];
+                    }
+
+                    if (node == column[node]) {
+
+                        // No row of the column is left, backtrack further.
+                        uncover(column[node]);
+                        descend = false;
+                    } else {
+                        selected[level] = node;
+                        for (int j = right[node]; j != node; j = right[j]) {
+                            cover(column[j]);
+                        }
+                        level++;
+                        descend = true;
+                    }
+                }
+            }
+        } finally {
+
+            // Unwind the rest of the current path if the search was stopped.
+            while (level > 0) {
+                level--;
+                int node = selected[level];
+                for (int j = left[node]; j != node; j = left[j]) {
+                    uncover(column[j]);
+                }
+                uncover(column[node]);
+            }
+            restore();
+        }
+        return solutions;
+    }
+
+    /**
+     * Unlinks all rows of assignments which are not possible in the board and
+     * selects the rows of all set cells.
+     *
+     * @param board The board to prepare the search for.
+     * @return {@code false} if the set cells of the board contradict each
+     *         other.
+     */
+    private boolean prepare(Board board) {
+        Structure struct = Structure.ROW;
+        removedCount = 0;
+        givenCount = 0;
+
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            int row = geometry.getRow(cell);
+            int col = geometry.getColumn(cell);
+            int value = board.getCell(struct, row, col);
+            int possibility = board.getNextPossibility(struct, row, col, 0);
+
+            for (int number = 1; number <= numbers; number++) {
+                int matrixRow = cell * numbers + number - 1;
+                if (number == value) {
+                    givenRows[givenCount] = matrixRow;
+                    givenCount++;
+                } else if (number == possibility) {
+                    possibility = board.getNextPossibility(struct, row, col,
+                            possibility);
+                } else {
+                    unlinkRow(matrixRow);
+                    removedRows[removedCount] = matrixRow;
+                    removedCount++;
+                }
+            }
+        }
+
+        for (int i = 0; i < givenCount; i++) {
+            int node = firstNode(givenRows[i]);
+            if (up[down[node]] != node) {
+
+                // The row was removed by another given with the same number.
+                givenCount = i;
+                return false;
+            }
+            cover(column[node]);
+            for (int j = right[node]; j != node; j = right[j]) {
+                cover(column[j]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reverts all changes of {@link #prepare(Board)}.
+     */
+    private void restore() {
+        for (int i = givenCount - 1; i >= 0; i--) {
+            int node = firstNode(givenRows[i]);
+            for (int j = left[node]; j != node; j = left[j]) {
+                uncover(column[j]);
+            }
+            uncover(column[node]);
+        }
+        for (int i = removedCount - 1; i >= 0; i--) {
+            relinkRow(removedRows[i]);
+        }
+    }
+
+    /**
+     * Chooses the column with the lowest amount of rows. If there are multiple
+     * of those columns, the first one is chosen, so cells are preferred.
+     *
+     * @return The header of the chosen column.
+     */
+    private int chooseColumn() {
+        int chosen = right[ROOT];
+        for (int header = right[chosen]; header != ROOT;
+                header = right[header]) {
+            if (size[header] < size[chosen]) {
+                chosen = header;
+                if (size[chosen] <= 1) {
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Removes a column from the header list and all rows intersecting it from
+     * the other columns.
+     *
+     * @param header The header of the column.
+     */
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Reverts {@link #cover(int)} of a column.
+     *
+     * @param header The header of the column.
+     */
+    private void uncover(int header) {
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+    /**
+     * Removes all nodes of a row from their columns.
+     *
+     * @param row The row of the matrix.
+     */
+    private void unlinkRow(int row) {
+        int first = firstNode(row);
+        for (int node = first; node < first + NODES_PER_ROW; node++) {
+            up[down[node]] = up[node];
+            down[up[node]] = down[node];
+            size[column[node]]--;
+        }
+    }
+
+    /**
+     * Reverts {@link #unlinkRow(int)} of a row.
+     *
+     * @param row The row of the matrix.
+     */
+    private void relinkRow(int row) {
+        int first = firstNode(row);
+        for (int node = first + NODES_PER_ROW - 1; node >= first; node--) {
+            size[column[node]]++;
+            up[down[node]] = node;
+            down[up[node]] = node;
+        }
+    }
+
+    /**
+     * Creates a board from the rows selected on the current search path.
+     *
+     * @param board The board the search was started with.
+     * @param level The amount of selected rows.
+     * @return The clone of the board with all selected rows assigned.
+     */
+    private Board createSolution(Board board, int level) {
+        Board solution = board.clone();
+        for (int i = 0; i < level; i++) {
+            int row = (selected[i] - columns - 1) / NODES_PER_ROW;
+            int cell = row / numbers;
+            try {
+                solution.setCell(Structure.ROW, geometry.getRow(cell),
+                        geometry.getColumn(cell), row % numbers + 1);
+            } catch (InvalidSudokuException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Gets the first node of a row.
+     *
+     * @param row The row of the matrix.
+     * @return The index of the first node of the row.
+     */
+    private int firstNode(int row) {
+        return 1 + columns + row * NODES_PER_ROW;
+    }
+
+}
@@ -0,0 +1,113 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A DancingLinksSolver solves sudokus as exact cover problems using the
+ * Dancing Links technique instead of saturating and cloning boards.
+ * <p>
+ * The matrix of a geometry is created at the first solve of a board with this
+ * geometry and reused for all following boards of the same size. Therefore an
+ * instance of this class must not be used by multiple threads at the same
+ * time.
+ * <p>
+ * The registered saturators are only used by {@link #saturate(Board)}, which
+ * behaves exactly like {@link SudokuBoardSolver#saturate(Board)}. The
+ * solutions are found independently of them and are the same as the ones of
+ * the {@link SudokuBoardSolver}. Only if a sudoku has multiple solutions, the
+ * first solution and the order of all solutions may differ, but they are
+ * repeatable as well.
+ */
+public class DancingLinksSolver implements SudokuSolver {
+
+    /**
+     * The solver providing the saturation with all registered saturators.
+     */
+    private final SudokuSolver saturatingSolver = new SudokuBoardSolver();
+
+    /**
+     * The matrices created so far, one per geometry.
+     */
+    private final Map<Geometry, DancingLinks> matrices
+            = new HashMap<Geometry, DancingLinks>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSaturator(Saturator saturator) {
+        saturatingSolver.addSaturator(saturator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board saturate(Board board) {
+        return saturatingSolver.saturate(board);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board findFirstSolution(Board board) {
+        List<Board> solutions = new ArrayList<Board>(1);
+        getMatrix(board).search(board, 1, solutions::add);
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Board> findAllSolutions(Board board) {
+        List<Board> solutions = new ArrayList<Board>();
+        getMatrix(board).search(board, Long.MAX_VALUE, solutions::add);
+        return solutions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void findAllSolutions(Board board, Consumer<? super Board> action) {
+        getMatrix(board).search(board, Long.MAX_VALUE, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        }
+        return (limit == 0) ? 0 : getMatrix(board).search(board, limit, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasUniqueSolution(Board board) {
+        return countSolutions(board, 2) == 1;
+    }
+
+    /**
+     * Gets the matrix for the geometry of the given board and creates it if
+     * it does not exist yet.
+     *
+     * @param board The board to get the matrix for.
+     * @return The matrix of the board's geometry.
+     */
+    private DancingLinks getMatrix(Board board) {
+        return matrices.computeIfAbsent(Geometry.of(board), DancingLinks::new);
+    }
+
+}
@@ -0,0 +1,143 @@
+package sudoku.solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The dom/wdeg heuristic chooses the unset cell with the lowest ratio of its
+ * amount of possible values (the domain) to its weighted degree. Every unit
+ * starts with the weight {@code 1}, which is increased whenever a branch on
+ * one of its cells fails, and the weighted degree of a cell is the sum of the
+ * weights of its units. So the search is drawn to the units which caused
+ * the most failures so far. Cells with the same ratio are chosen in
+ * row-major order, which makes this strategy choose the same cells as the
+ * {@link MinRemainingValues} heuristic until the first failure.
+ * <p>
+ * The weights are kept until {@link #reset()} is called, and may be updated
+ * by multiple threads at the same time.
+ */
+public class DomOverWeightedDegree implements BranchingStrategy {
+
+    /**
+     * The amount of units every cell belongs to.
+     */
+    private static final int UNITS_PER_CELL = Structure.values().length;
+
+    /**
+     * The amount of failures of every unit, or {@code null} if there were no
+     * failures since the last reset. The weight of a unit is one more than
+     * its amount of failures. The array is replaced as a whole on a reset.
+     */
+    private volatile AtomicIntegerArray failures;
+
+    /**
+     * The highest amount of failures of a single unit.
+     */
+    private final AtomicInteger maxFailures = new AtomicInteger();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int selectCell(Board board) {
+        AbstractBoard counts = AbstractBoard.of(board);
+        Geometry geometry = counts.getGeometry();
+        AtomicIntegerArray current = failures;
+        if (!matches(current, geometry)) {
+            return counts.getNextCellWithCount(
+                    counts.getMinPossibilityCount(), 0);
+        }
+
+        /*
+         * The cells are visited by ascending amount of possible values. A
+         * cell can at most have the weight of all of its units having the
+         * highest weight, so as soon as even this weight can not beat the
+         * best ratio, no cell with more possible values can.
+         */
+        int maxWeight = (maxFailures.get() + 1) * UNITS_PER_CELL;
+        int best = -1;
+        long bestCount = 1;
+        long bestWeight = 0;
+        for (int count = counts.getMinPossibilityCount();
+                (count > 0) && (count <= counts.getNumbers())
+                && ((best < 0) || (count * bestWeight < bestCount * maxWeight));
+                count++) {
+            for (int index = counts.getNextCellWithCount(count, 0); index >= 0;
+                    index = counts.getNextCellWithCount(count, index + 1)) {
+                int weight = 0;
+                for (int unit : geometry.getUnits(index)) {
+                    weight += current.get(unit) + 1;
+                }
+
+                // Compare count / weight < bestCount / bestWeight exactly.
+                if ((best < 0) || (count * bestWeight < bestCount * weight)) {
+                    best = index;
+                    bestCount = count;
+                    bestWeight = weight;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The weights of all units of the cell are increased.
+     */
+    @Override
+    public void recordFailure(Board board, int index) {
+        Geometry geometry = Geometry.of(board);
+        AtomicIntegerArray current = getFailures(geometry);
+        for (int unit : geometry.getUnits(index)) {
+            int amount = current.incrementAndGet(unit);
+            maxFailures.accumulateAndGet(amount, Math::max);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * All units get the weight {@code 1} again.
+     */
+    @Override
+    public synchronized void reset() {
+        failures = null;
+        maxFailures.set(0);
+    }
+
+    /**
+     * Gets the failures of the units of the given geometry. If there are no
+     * failures of a geometry with the same amount of units yet, the failures
+     * of the previous geometry are forgotten.
+     *
+     * @param geometry The geometry of the board.
+     * @return The amount of failures of every unit.
+     */
+    private AtomicIntegerArray getFailures(Geometry geometry) {
+        AtomicIntegerArray current = failures;
+        if (!matches(current, geometry)) {
+            synchronized (this) {
+                current = failures;
+                if (!matches(current, geometry)) {
+                    current = new AtomicIntegerArray(geometry.getUnitCount());
+                    failures = current;
+                    maxFailures.set(0);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Checks whether there are failures for the units of a geometry.
+     *
+     * @param current The failures, may be {@code null}.
+     * @param geometry The geometry of the board.
+     * @return {@code true} if there is an amount of failures for every unit.
+     */
+    private static boolean matches(AtomicIntegerArray current,
+            Geometry geometry) {
+        return (current != null)
+                && (current.length() == geometry.getUnitCount());
+    }
+
+}
@@ -4,7 +4,7 @@ package sudoku.solver;
  * A solution strategy that sets all cells of a sudoku that can only contain one
  * value.
  */
-public class EnforcedCell implements Saturator {
+public class EnforcedCell implements IncrementalSaturator {
 
     /** 
      * {@inheritDoc}
@@ -13,26 +13,74 @@ public class EnforcedCell implements Saturator {
      */
     @Override
     public boolean saturate(Board board) throws UnsolvableSudokuException {
-        boolean modifiedBoard = false;
-        Structure struct = Structure.ROW;
+        return saturateBoard(board).toModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy traverses all cells of the board and sets the cells that
+     * have only one possible value left to this value.</p>
+     */
+    @Override
+    public SaturationResult saturateBoard(Board board) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        int cells = board.getNumbers() * board.getNumbers();
         
-        for (int major = 0; major < board.getNumbers(); major++) {
-            for (int minor = 0; minor < board.getNumbers(); minor++) {
-                int[] possibilities = board.getPossibilities(
-                        struct, major, minor);
-                if ((possibilities != null) && (possibilities.length == 1)) {
-                    // Cell is unset and can be set to exactly one value.
-                    try {
-                        board.setCell(struct, major, minor, possibilities[0]);
-                    } catch (InvalidSudokuException e) {
-                        throw new UnsolvableSudokuException();
-                    }
-                    modifiedBoard = true;
-                }
+        for (int index = 0; index < cells; index++) {
+            result = result.combine(saturateCell(board, index));
+            if (result == SaturationResult.UNSOLVABLE) {
+                break;
             }
         }
         
-        return modifiedBoard;
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy sets the cell to its value if it has only one possible
+     * value left.</p>
+     */
+    @Override
+    public SaturationResult saturateCell(Board board, int index) {
+        int numbers = board.getNumbers();
+        Structure struct = Structure.ROW;
+        int major = index / numbers;
+        int minor = index % numbers;
+        if (board.getPossibilityCount(struct, major, minor) != 1) {
+            return SaturationResult.UNCHANGED;
+        }
+        
+        // Cell is unset and can be set to exactly one value.
+        int possibility = board.getNextPossibility(struct, major, minor, 0);
+        return AbstractBoard.trySetCell(board, index, possibility)
+                ? SaturationResult.CHANGED : SaturationResult.UNSOLVABLE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy only depends on single cells, so units are
+     * ignored.</p>
+     */
+    @Override
+    public SaturationResult saturateUnit(Board board, int unit) {
+        return SaturationResult.UNCHANGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnCells() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnUnits() {
+        return false;
     }
 
 }
@@ -0,0 +1,283 @@
+package sudoku.solver;
+
+/**
+ * A solution strategy that removes possibilities enforced by basic fish
+ * patterns of a value, like X-Wing, Swordfish and Jellyfish.
+ * <p>
+ * If a value can only be placed in {@code n} columns within {@code n}
+ * different rows, each of these rows needs its own of these columns. So the
+ * value has to be placed in these columns within these rows, and is removed
+ * from all other rows of the columns. The same applies with rows and columns
+ * swapped. The amount {@code n} is the order of the fish: X-Wings have order
+ * 2, Swordfish order 3 and Jellyfish order 4.
+ * <p>
+ * The possible positions of every value in every row and column are stored
+ * as bit masks, so only sudokus with up to 64 numbers are supported, larger
+ * sudokus are not changed. As a fish may span the whole board, this strategy
+ * is always applied to the whole board.
+ */
+public class EnforcedFish implements SignallingSaturator, PositionMaskReader {
+
+    /**
+     * The order of the largest fish searched by default, which covers
+     * X-Wings, Swordfish and Jellyfish.
+     */
+    public static final int DEFAULT_MAX_ORDER = 4;
+
+    /**
+     * The order of the smallest fish, as a single row or column is already
+     * covered by {@link EnforcedNumber}.
+     */
+    private static final int MIN_ORDER = 2;
+
+    private final int maxOrder;
+
+    /**
+     * Creates a new strategy searching fish up to order
+     * {@link #DEFAULT_MAX_ORDER}.
+     */
+    public EnforcedFish() {
+        this(DEFAULT_MAX_ORDER);
+    }
+
+    /**
+     * Creates a new strategy searching fish up to the given order.
+     *
+     * @param maxOrder The maximum amount of rows or columns of a fish.
+     * @throws IllegalArgumentException If {@code maxOrder} is smaller than 2.
+     */
+    public EnforcedFish(int maxOrder) {
+        if (maxOrder < MIN_ORDER) {
+            throw new IllegalArgumentException(
+                    "The maximum order of fish must be at least " + MIN_ORDER);
+        }
+        this.maxOrder = maxOrder;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy collects the possible positions of every value and
+     * removes the value from all cells excluded by its fish.</p>
+     */
+    @Override
+    public boolean saturate(Board board) throws UnsolvableSudokuException {
+        return saturateBoard(board).toModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy collects the possible positions of every value and
+     * removes the value from all cells excluded by its fish.</p>
+     */
+    @Override
+    public SaturationResult saturateBoard(Board board) {
+        int numbers = board.getNumbers();
+        if (numbers > Long.SIZE) {
+            return SaturationResult.UNCHANGED;
+        }
+
+        // The columns of each value per row and the rows per column.
+        long[][] rowPositions = new long[numbers][numbers];
+        long[][] colPositions = new long[numbers][numbers];
+        if ((board instanceof AbstractBoard)
+                && ((AbstractBoard) board).hasPositionMasks()) {
+            readPositions((AbstractBoard) board, rowPositions, colPositions);
+        } else {
+            for (int row = 0; row < numbers; row++) {
+                for (int col = 0; col < numbers; col++) {
+                    long mask
+                            = board.getPossibilityMask(Structure.ROW, row, col);
+                    for (long bits = mask; bits != 0; bits &= bits - 1) {
+                        int number = Long.numberOfTrailingZeros(bits);
+                        rowPositions[number][row] |= 1L << col;
+                        colPositions[number][col] |= 1L << row;
+                    }
+                }
+            }
+        }
+
+        SaturationResult result = SaturationResult.UNCHANGED;
+        for (int number = 0; (number < numbers)
+                && (result != SaturationResult.UNSOLVABLE); number++) {
+            FishSearch byRows = new FishSearch(board, number + 1,
+                    rowPositions[number], colPositions[number], Structure.ROW);
+            result = result.combine(byRows.saturate(maxOrder));
+            if (result == SaturationResult.UNSOLVABLE) {
+                break;
+            }
+
+            // The removals of the rows are already applied to both masks.
+            FishSearch byCols = new FishSearch(board, number + 1,
+                    colPositions[number], rowPositions[number], Structure.COL);
+            result = result.combine(byCols.saturate(maxOrder));
+        }
+
+        return result;
+    }
+
+    /**
+     * Copies the possible positions of every value in every row and column
+     * from a board maintaining them.
+     *
+     * @param board The board maintaining the possible positions.
+     * @param rowPositions The array to store the columns of each value per
+     *        row in.
+     * @param colPositions The array to store the rows of each value per
+     *        column in.
+     */
+    private void readPositions(AbstractBoard board, long[][] rowPositions,
+            long[][] colPositions) {
+        Geometry geometry = board.getGeometry();
+        for (int number = 0; number < board.getNumbers(); number++) {
+            for (int line = 0; line < board.getNumbers(); line++) {
+                rowPositions[number][line] = board.getPositionMask(
+                        geometry.getUnit(Structure.ROW, line), number + 1);
+                colPositions[number][line] = board.getPositionMask(
+                        geometry.getUnit(Structure.COL, line), number + 1);
+            }
+        }
+    }
+
+    /**
+     * The search of the fish of a single value with either rows or columns as
+     * base lines. The other type of lines are the cover lines.
+     */
+    private static final class FishSearch {
+
+        private final Board board;
+        private final Geometry geometry;
+        private final int number;
+        private final Structure baseStruct;
+
+        /**
+         * The possible cover lines of the value in every base line, and the
+         * possible base lines in every cover line. Both are updated when the
+         * value is removed from a cell.
+         */
+        private final long[] base;
+        private final long[] cover;
+
+        /**
+         * Creates a new search for the fish of a value.
+         *
+         * @param board The board that should be modified.
+         * @param number The value to search the fish of.
+         * @param base The possible positions in every base line.
+         * @param cover The possible positions in every cover line.
+         * @param baseStruct The type of the base lines, either row or column.
+         */
+        FishSearch(Board board, int number, long[] base, long[] cover,
+                Structure baseStruct) {
+            this.board = board;
+            geometry = Geometry.of(board);
+            this.number = number;
+            this.base = base;
+            this.cover = cover;
+            this.baseStruct = baseStruct;
+        }
+
+        /**
+         * Removes the value from all cells excluded by its fish, until there
+         * are no fish allowing further removals.
+         *
+         * @param maxOrder The maximum order of the fish.
+         * @return Whether the board was modified or turned out to be
+         *         unsolvable.
+         */
+        SaturationResult saturate(int maxOrder) {
+            SaturationResult result = SaturationResult.UNCHANGED;
+            for (int order = MIN_ORDER; order <= maxOrder; order++) {
+                SaturationResult found = findFish(order, 0, 0, 0);
+                while (found == SaturationResult.CHANGED) {
+                    result = found;
+                    found = findFish(order, 0, 0, 0);
+                }
+                if (found == SaturationResult.UNSOLVABLE) {
+                    return found;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Searches a fish of the given order allowing removals and applies
+         * them. The fish is built recursively by adding base lines in
+         * ascending order.
+         *
+         * @param order The amount of base lines of the fish.
+         * @param first The first base line which may be added.
+         * @param lines The base lines chosen so far.
+         * @param union The cover lines the value is possible in within the
+         *        chosen base lines.
+         * @return {@link SaturationResult#CHANGED} if a fish was found and
+         *         the board was modified, {@link SaturationResult#UNSOLVABLE}
+         *         if some base lines have less possible cover lines than
+         *         there are base lines.
+         */
+        private SaturationResult findFish(int order, int first, long lines,
+                long union) {
+            int chosen = Long.bitCount(lines);
+            if (chosen == order) {
+                if (Long.bitCount(union) < order) {
+                    return SaturationResult.UNSOLVABLE;
+                }
+                return removeFromCoverLines(lines, union);
+            }
+
+            for (int line = first; line <= base.length - order + chosen;
+                    line++) {
+                long extended = union | base[line];
+                if ((base[line] != 0) && (Long.bitCount(extended) <= order)) {
+                    SaturationResult result = findFish(order, line + 1,
+                            lines | (1L << line), extended);
+                    if (result != SaturationResult.UNCHANGED) {
+                        return result;
+                    }
+                }
+            }
+            return SaturationResult.UNCHANGED;
+        }
+
+        /**
+         * Removes the value from the cover lines of a fish, except for the
+         * cells within its base lines.
+         *
+         * @param lines The base lines of the fish.
+         * @param union The cover lines of the fish.
+         * @return Whether the value was removed from at least one cell or a
+         *         cell has no possibilities left.
+         */
+        private SaturationResult removeFromCoverLines(long lines,
+                long union) {
+            SaturationResult result = SaturationResult.UNCHANGED;
+            for (long covers = union; covers != 0; covers &= covers - 1) {
+                int coverLine = Long.numberOfTrailingZeros(covers);
+                for (long others = cover[coverLine] & ~lines; others != 0;
+                        others &= others - 1) {
+                    int baseLine = Long.numberOfTrailingZeros(others);
+                    if (!remove(baseLine, coverLine)) {
+                        return SaturationResult.UNSOLVABLE;
+                    }
+                    result = SaturationResult.CHANGED;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes the value from the cell where a base and a cover line cross.
+         *
+         * @param baseLine The base line of the cell.
+         * @param coverLine The cover line of the cell.
+         * @return {@code false} if the cell has no possibilities left.
+         */
+        private boolean remove(int baseLine, int coverLine) {
+            base[baseLine] &= ~(1L << coverLine);
+            cover[coverLine] &= ~(1L << baseLine);
+            return AbstractBoard.tryRemovePossibility(board,
+                    geometry.getIndex(baseStruct, baseLine, coverLine), number);
+        }
+
+    }
+
+}
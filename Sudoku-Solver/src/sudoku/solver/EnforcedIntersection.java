@@ -0,0 +1,248 @@
+package sudoku.solver;
+
+/**
+ * A solution strategy that removes possibilities enforced by the intersection
+ * of a box with a row or a column.
+ * <p>
+ * If a value can only be placed in one row or column within a box, it has to
+ * be placed in this intersection, so it is removed from the rest of the row
+ * or column (pointing). If a value can only be placed in one box within a row
+ * or column, it is removed from the rest of the box (claiming). This works
+ * for boxes of every shape, as only the cells of the structures are compared.
+ * <p>
+ * Every structure is divided into the segments it shares with the crossing
+ * structures. The values of each segment are combined as bit masks, so only
+ * sudokus with up to 64 numbers are supported, larger sudokus are not
+ * changed.
+ */
+public class EnforcedIntersection implements IncrementalSaturator {
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy traverses all structures and removes the values which
+     * can only be placed in one of their intersections from the rest of the
+     * crossing structure.</p>
+     */
+    @Override
+    public boolean saturate(Board board) throws UnsolvableSudokuException {
+        return saturateBoard(board).toModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy traverses all structures and removes the values which
+     * can only be placed in one of their intersections from the rest of the
+     * crossing structure.</p>
+     */
+    @Override
+    public SaturationResult saturateBoard(Board board) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        Geometry geometry = Geometry.of(board);
+
+        for (int unit = 0; (unit < geometry.getUnitCount())
+                && (result != SaturationResult.UNSOLVABLE); unit++) {
+            result = result.combine(saturateUnit(board, unit));
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy only depends on whole structures, so single cells are
+     * ignored.</p>
+     */
+    @Override
+    public SaturationResult saturateCell(Board board, int index) {
+        return SaturationResult.UNCHANGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnCells() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnUnits() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy removes the values which can only be placed in one
+     * intersection of the structure from the rest of the crossing
+     * structure. Only the possibilities of this structure decide which values
+     * are removed, so a change of a cell only requires to look at its own
+     * structures again.</p>
+     */
+    @Override
+    public SaturationResult saturateUnit(Board board, int unit) {
+        if (board.getNumbers() > Long.SIZE) {
+            return SaturationResult.UNCHANGED;
+        }
+
+        Geometry geometry = Geometry.of(board);
+        int boxRows = board.getBoxRows();
+        int boxCols = board.getBoxColumns();
+
+        /*
+         * The cells of a box are ordered row by row, so its rows are
+         * consecutive segments and its columns are segments with a stride.
+         * Rows and columns are divided into consecutive segments per box.
+         */
+        switch (geometry.getStructure(unit)) {
+        case BOX:
+            SaturationResult rows = saturateSegments(board, geometry, unit,
+                    boxRows, boxCols, 1, Structure.ROW);
+            if (rows == SaturationResult.UNSOLVABLE) {
+                return rows;
+            }
+            return rows.combine(saturateSegments(board, geometry, unit,
+                    boxCols, 1, boxCols, Structure.COL));
+
+        case ROW:
+            return saturateSegments(board, geometry, unit,
+                    board.getNumbers() / boxCols, boxCols, 1, Structure.BOX);
+
+        case COL:
+            return saturateSegments(board, geometry, unit,
+                    board.getNumbers() / boxRows, boxRows, 1, Structure.BOX);
+
+        default:
+            throw new IllegalArgumentException(
+                    "Unexpected structure: " + geometry.getStructure(unit));
+        }
+    }
+
+    /**
+     * Finds the values which can only be placed in one segment of a unit and
+     * removes them from the rest of the structure crossing this segment.
+     *
+     * @param board The board that should be modified.
+     * @param geometry The geometry of the board.
+     * @param unit The unit to divide into segments.
+     * @param segments The amount of segments of the unit.
+     * @param segmentStep The difference of the minor coordinates of the
+     *        first cells of two following segments.
+     * @param cellStep The difference of the minor coordinates of two
+     *        following cells of a segment.
+     * @param crossing The type of the structures crossing the segments.
+     * @return Whether the board was modified or turned out to be unsolvable.
+     */
+    private SaturationResult saturateSegments(Board board, Geometry geometry,
+            int unit, int segments, int segmentStep, int cellStep,
+            Structure crossing) {
+        int segmentLength = board.getNumbers() / segments;
+        int[] cells = geometry.getCells(unit);
+
+        // Collect the values possible in exactly one segment.
+        long possibleOnce = 0;
+        long possibleTwice = 0;
+        for (int segment = 0; segment < segments; segment++) {
+            long mask = getSegmentMask(board, cells, segment * segmentStep,
+                    cellStep, segmentLength);
+            possibleTwice |= possibleOnce & mask;
+            possibleOnce |= mask;
+        }
+        long confined = possibleOnce & ~possibleTwice;
+        if (confined == 0) {
+            return SaturationResult.UNCHANGED;
+        }
+
+        SaturationResult result = SaturationResult.UNCHANGED;
+        for (int segment = 0; segment < segments; segment++) {
+            int first = segment * segmentStep;
+            long values = confined & getSegmentMask(board, cells, first,
+                    cellStep, segmentLength);
+            if (values != 0) {
+                int other = geometry.getUnits(cells[first])[crossing.ordinal()];
+                for (int index : geometry.getCells(other)) {
+                    if (!contains(geometry, unit, index)) {
+                        result = result.combine(remove(board, index, values));
+                        if (result == SaturationResult.UNSOLVABLE) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Combines the possible values of the cells of a segment.
+     *
+     * @param board The board containing the segment.
+     * @param cells The cells of the unit containing the segment.
+     * @param first The minor coordinate of the first cell of the segment.
+     * @param cellStep The difference of the minor coordinates of two
+     *        following cells of the segment.
+     * @param segmentLength The amount of cells of the segment.
+     * @return The mask of all values possible in the segment.
+     */
+    private long getSegmentMask(Board board, int[] cells, int first,
+            int cellStep, int segmentLength) {
+        long mask = 0;
+        for (int i = 0; i < segmentLength; i++) {
+            mask |= getMask(board, cells[first + i * cellStep]);
+        }
+        return mask;
+    }
+
+    /**
+     * Checks whether a cell belongs to a unit.
+     *
+     * @param geometry The geometry of the board.
+     * @param unit The unit.
+     * @param index The absolute index of the cell.
+     * @return {@code true} if the cell is part of the unit.
+     */
+    private boolean contains(Geometry geometry, int unit, int index) {
+        return geometry.getUnits(index)[geometry.getStructure(unit).ordinal()]
+                == unit;
+    }
+
+    /**
+     * Gets the possible values of a cell as bit mask.
+     *
+     * @param board The board containing the cell.
+     * @param index The absolute index of the cell.
+     * @return The mask of the possibilities of the cell.
+     */
+    private long getMask(Board board, int index) {
+        if (board instanceof AbstractBoard) {
+            return ((AbstractBoard) board).getPossibilityMask(index);
+        }
+        return board.getPossibilityMask(Structure.ROW,
+                index / board.getNumbers(), index % board.getNumbers());
+    }
+
+    /**
+     * Removes the given values from the possibilities of a cell, as far as
+     * they are possible in it.
+     *
+     * @param board The board containing the cell.
+     * @param index The absolute index of the cell.
+     * @param values The values to remove, as mask of possibilities.
+     * @return Whether at least one value was removed or the cell has no
+     *         possibilities left.
+     */
+    private SaturationResult remove(Board board, int index, long values) {
+        long removed = getMask(board, index) & values;
+        for (long bits = removed; bits != 0; bits &= bits - 1) {
+            if (!AbstractBoard.tryRemovePossibility(board, index,
+                    Long.numberOfTrailingZeros(bits) + 1)) {
+                return SaturationResult.UNSOLVABLE;
+            }
+        }
+        return SaturationResult.of(removed != 0);
+    }
+
+}
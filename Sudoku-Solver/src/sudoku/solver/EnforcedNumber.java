@@ -1,10 +1,17 @@
 package sudoku.solver;
 
+import java.util.Arrays;
+
 /**
  * A solution strategy that sets all cells of a sudoku which have to contain a
  * value because no other cell in the structure can be set to it.
+ * <p>
+ * If the board maintains the possible positions of every value anyway, they
+ * are read directly. This strategy alone does not let boards maintain them,
+ * as combining the possibilities of the cells of a structure is about as
+ * cheap as keeping the positions up to date.
  */
-public class EnforcedNumber implements Saturator {
+public class EnforcedNumber implements IncrementalSaturator {
     
     /** 
      * {@inheritDoc}
@@ -13,17 +20,145 @@ public class EnforcedNumber implements Saturator {
      */
     @Override
     public boolean saturate(Board board) throws UnsolvableSudokuException {
-        boolean modifiedBoard = false;
+        return saturateBoard(board).toModified();
+    }
+    
+    /** 
+     * {@inheritDoc}
+     * <p>This strategy traverses all cells of each structure and sets the 
+     * values that have only one possible cell they could be placed at.</p>
+     */
+    @Override
+    public SaturationResult saturateBoard(Board board) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        Geometry geometry = Geometry.of(board);
+        int[] amountsOfPossibleCells = new int[board.getNumbers()];
+        
+        for (int unit = 0; (unit < geometry.getUnitCount())
+                && (result != SaturationResult.UNSOLVABLE); unit++) {
+            result = result.combine(saturateStructure(board, geometry, unit,
+                    amountsOfPossibleCells));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>This strategy only depends on whole structures, so single cells are
+     * ignored.</p>
+     */
+    @Override
+    public SaturationResult saturateCell(Board board, int index) {
+        return SaturationResult.UNCHANGED;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnCells() {
+        return false;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnUnits() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy sets the values of the structure that have only one
+     * possible cell they could be placed at.</p>
+     */
+    @Override
+    public SaturationResult saturateUnit(Board board, int unit) {
+        Geometry geometry = Geometry.of(board);
+        Structure struct = geometry.getStructure(unit);
+        int major = geometry.getMajor(unit);
+        
+        if (board.getNumbers() > Long.SIZE) {
+            return saturateStructure(board, geometry, unit,
+                    new int[board.getNumbers()]);
+        } else if ((board instanceof AbstractBoard)
+                && ((AbstractBoard) board).hasPositionMasks()) {
+            return saturatePositions((AbstractBoard) board, geometry, unit);
+        }
+        
+        // Collect the numbers possible in exactly one cell of the structure.
+        long possibleOnce = 0;
+        long possibleTwice = 0;
+        for (int minor = 0; minor < board.getNumbers(); minor++) {
+            long mask = board.getPossibilityMask(struct, major, minor);
+            possibleTwice |= possibleOnce & mask;
+            possibleOnce |= mask;
+        }
+        long enforcedNumbers = possibleOnce & ~possibleTwice;
         
-        for (Structure currentStructure : Structure.values()) {
-            for (int structNr = 0; structNr < board.getNumbers(); structNr++) {
-                if (saturateStructure(board, currentStructure, structNr)) {
-                    modifiedBoard = true;
+        SaturationResult result = SaturationResult.UNCHANGED;
+        for (int minor = 0; (minor < board.getNumbers())
+                && (enforcedNumbers != 0); minor++) {
+            long enforcedInCell = enforcedNumbers
+                    & board.getPossibilityMask(struct, major, minor);
+            if (enforcedInCell != 0) {
+                if (Long.bitCount(enforcedInCell) > 1) {
+                    // Two values can only be assigned to the same cell.
+                    return SaturationResult.UNSOLVABLE;
+                } else if (!AbstractBoard.trySetCell(board,
+                        geometry.getIndex(struct, major, minor),
+                        Long.numberOfTrailingZeros(enforcedInCell) + 1)) {
+                    return SaturationResult.UNSOLVABLE;
                 }
+                enforcedNumbers &= ~enforcedInCell;
+                result = SaturationResult.CHANGED;
             }
         }
         
-        return modifiedBoard;
+        return result;
+    }
+    
+    /**
+     * Applies the strategy to a unit of a board which maintains the possible
+     * positions of every number, so the numbers possible in only one cell are
+     * read directly instead of combining the possibilities of all cells.
+     * 
+     * @param board The board that should be modified.
+     * @param geometry The geometry of the board.
+     * @param unit The unit that is currently traversed.
+     * @return Whether the board was modified or turned out to be unsolvable.
+     */
+    private SaturationResult saturatePositions(AbstractBoard board,
+            Geometry geometry, int unit) {
+        int[] cells = geometry.getCells(unit);
+        int numbers = board.getNumbers();
+        long enforcedCells = 0;
+        for (int number = 1; number <= numbers; number++) {
+            long positions = board.getPositionMask(unit, number);
+            if (Long.bitCount(positions) == 1) {
+                if ((enforcedCells & positions) != 0) {
+                    // Two values can only be assigned to the same cell.
+                    return SaturationResult.UNSOLVABLE;
+                }
+                enforcedCells |= positions;
+            }
+        }
+        if (enforcedCells == 0) {
+            return SaturationResult.UNCHANGED;
+        }
+        
+        // Setting a cell may leave further numbers with a single position.
+        for (int number = 1; number <= numbers; number++) {
+            long positions = board.getPositionMask(unit, number);
+            if ((Long.bitCount(positions) == 1) && !board.trySetCell(
+                    cells[Long.numberOfTrailingZeros(positions)], number)) {
+                return SaturationResult.UNSOLVABLE;
+            }
+        }
+        
+        return SaturationResult.CHANGED;
     }
     
     /**
@@ -31,47 +166,51 @@ public class EnforcedNumber implements Saturator {
      * board was modified or not.
      * 
      * @param board The board that should be modified.
-     * @param struct The type of the structure that is currently traversed.
-     * @param major The number of the structure that is currently traversed.
-     * @return {@code true} if the board was modified.
-     * @throws UnsolvableSudokuException The passed sudoku is not solvable.
+     * @param geometry The geometry of the board.
+     * @param unit The unit of the structure that is currently traversed.
+     * @param amountsOfPossibleCells The array to compute the amounts of
+     *        possible cells of each number in, which is reused for all
+     *        structures.
+     * @return Whether the board was modified or turned out to be unsolvable.
      */
-    private boolean saturateStructure(Board board, Structure struct, int major) 
-            throws UnsolvableSudokuException {
-        boolean modifiedBoard = false;
-        int[] amountsOfPossibleCells = computeAmounts(board, struct, major);
+    private SaturationResult saturateStructure(Board board, Geometry geometry,
+            int unit, int[] amountsOfPossibleCells) {
+        Structure struct = geometry.getStructure(unit);
+        int major = geometry.getMajor(unit);
+        SaturationResult result = SaturationResult.UNCHANGED;
+        computeAmounts(board, struct, major, amountsOfPossibleCells);
         
         for (int minor = 0; minor < board.getNumbers(); minor++) {
-            boolean modifiedCurrentCell = false;
-            int[] possibilities = board.getPossibilities(struct, major, minor);
+            int enforcedNumber = Board.UNSET_CELL;
+            int possibility = board.getNextPossibility(struct, major, minor, 0);
             
-            if (possibilities != null) {
-                for (int possibility : possibilities) {
-
-                    if (amountsOfPossibleCells[possibility - 1] == 1) {
-                        if (modifiedCurrentCell) {
-                            /*
-                             * Two values in this structure can only be assigned
-                             * to the current cell. As a cell can only hold one
-                             * value, the sudoku is not solvable.
-                             */
-                            throw new UnsolvableSudokuException();
-                        }
-                        
-                        try {
-                            board.setCell(struct, major, minor, possibility);
-                        } catch (InvalidSudokuException e) {
-                            throw new UnsolvableSudokuException();
-                        }
-
-                        modifiedCurrentCell = true;
-                        modifiedBoard = true;
+            while (possibility != Board.UNSET_CELL) {
+                if (amountsOfPossibleCells[possibility - 1] == 1) {
+                    if (enforcedNumber != Board.UNSET_CELL) {
+                        /*
+                         * Two values in this structure can only be assigned
+                         * to the current cell. As a cell can only hold one
+                         * value, the sudoku is not solvable.
+                         */
+                        return SaturationResult.UNSOLVABLE;
                     }
+                    enforcedNumber = possibility;
                 }
+                possibility = board.getNextPossibility(
+                        struct, major, minor, possibility);
+            }
+            
+            if (enforcedNumber != Board.UNSET_CELL) {
+                if (!AbstractBoard.trySetCell(board,
+                        geometry.getIndex(struct, major, minor),
+                        enforcedNumber)) {
+                    return SaturationResult.UNSOLVABLE;
+                }
+                result = SaturationResult.CHANGED;
             }
         }
         
-        return modifiedBoard;
+        return result;
     }
     
     /**
@@ -81,23 +220,22 @@ public class EnforcedNumber implements Saturator {
      * @param board The board providing the possibilities of each cell.
      * @param struct The type of the structure.
      * @param major The number of the structure.
-     * @return For each number the array contains the amount of cells in the
-     *         structure this number can be assigned to, starting with the
-     *         number 1 at index 0.
+     * @param amounts The array to store the amounts in. For each number the
+     *        array will contain the amount of cells in the structure this
+     *        number can be assigned to, starting with the number 1 at index 0.
      */
-    private int[] computeAmounts(Board board, Structure struct, int major) {
-        int[] amounts = new int[board.getNumbers()];
+    private void computeAmounts(Board board, Structure struct, int major,
+            int[] amounts) {
+        Arrays.fill(amounts, 0);
         
         for (int minor = 0; minor < board.getNumbers(); minor++) {
-            int[] possibilities = board.getPossibilities(struct, major, minor);
-            if (possibilities != null) {
-                for (int possibility : possibilities) {
-                    amounts[possibility - 1]++;
-                }
+            int possibility = board.getNextPossibility(struct, major, minor, 0);
+            while (possibility != Board.UNSET_CELL) {
+                amounts[possibility - 1]++;
+                possibility = board.getNextPossibility(
+                        struct, major, minor, possibility);
             }
         }
-        
-        return amounts;
     }
 
 }
@@ -0,0 +1,404 @@
+package sudoku.solver;
+
+/**
+ * A solution strategy that removes possibilities enforced by naked and hidden
+ * subsets of a structure.
+ * <p>
+ * A naked subset are {@code n} cells of a structure which together can only
+ * contain {@code n} different values. These values have to be placed in
+ * these cells, so they are removed from all other cells of the structure. A
+ * hidden subset are {@code n} values which can only be placed in the same
+ * {@code n} cells of a structure. These cells have to contain these values,
+ * so all other values are removed from them.
+ * <p>
+ * The subsets are searched with bit masks of the possible values of every
+ * cell and of the possible cells of every value. Therefore only sudokus with
+ * up to 64 numbers are supported, larger sudokus are not changed.
+ */
+public class EnforcedSubset
+        implements IncrementalSaturator, PositionMaskReader {
+
+    /**
+     * The size of the largest subsets searched by default, which covers
+     * pairs, triples and quads.
+     */
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    /**
+     * The size of the smallest subsets, as single cells and values are
+     * already covered by {@link EnforcedCell} and {@link EnforcedNumber}.
+     */
+    private static final int MIN_SIZE = 2;
+
+    /**
+     * The masks of the structure currently searched by each thread. They are
+     * reused for every structure, as this strategy is applied to every
+     * changed unit while propagating, and may be shared by the threads of a
+     * {@link ParallelSudokuBoardSolver}.
+     */
+    private static final ThreadLocal<UnitState> STATES
+            = ThreadLocal.withInitial(UnitState::new);
+
+    private final int maxSize;
+
+    /**
+     * Creates a new strategy searching subsets of up to
+     * {@link #DEFAULT_MAX_SIZE} cells.
+     */
+    public EnforcedSubset() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new strategy searching subsets of up to the given size.
+     *
+     * @param maxSize The maximum amount of cells of a subset.
+     * @throws IllegalArgumentException If {@code maxSize} is smaller than 2.
+     */
+    public EnforcedSubset(int maxSize) {
+        if (maxSize < MIN_SIZE) {
+            throw new IllegalArgumentException(
+                    "The maximum size of subsets must be at least " + MIN_SIZE);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy traverses all structures and removes the possibilities
+     * enforced by their naked and hidden subsets.</p>
+     */
+    @Override
+    public boolean saturate(Board board) throws UnsolvableSudokuException {
+        return saturateBoard(board).toModified();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy traverses all structures and removes the possibilities
+     * enforced by their naked and hidden subsets.</p>
+     */
+    @Override
+    public SaturationResult saturateBoard(Board board) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        Geometry geometry = Geometry.of(board);
+
+        for (int unit = 0; (unit < geometry.getUnitCount())
+                && (result != SaturationResult.UNSOLVABLE); unit++) {
+            result = result.combine(saturateUnit(board, unit));
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy only depends on whole structures, so single cells are
+     * ignored.</p>
+     */
+    @Override
+    public SaturationResult saturateCell(Board board, int index) {
+        return SaturationResult.UNCHANGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnCells() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean dependsOnUnits() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>This strategy removes the possibilities enforced by the naked and
+     * hidden subsets of the structure, until it does not contain any subsets
+     * allowing further removals.</p>
+     */
+    @Override
+    public SaturationResult saturateUnit(Board board, int unit) {
+        if (board.getNumbers() > Long.SIZE) {
+            return SaturationResult.UNCHANGED;
+        }
+
+        UnitState state = STATES.get();
+        state.load(board, Geometry.of(board), unit);
+        SaturationResult result = SaturationResult.UNCHANGED;
+        SaturationResult found = SaturationResult.CHANGED;
+
+        while (found == SaturationResult.CHANGED) {
+            found = SaturationResult.UNCHANGED;
+            state.update();
+
+            // Look for the smaller subsets first, as they are found faster.
+            for (int size = MIN_SIZE; (size <= maxSize)
+                    && (found == SaturationResult.UNCHANGED); size++) {
+                found = state.findNakedSubset(size, 0, 0, 0);
+                if (found == SaturationResult.UNCHANGED) {
+                    found = state.findHiddenSubset(size, 0, 0, 0);
+                }
+            }
+            result = result.combine(found);
+        }
+
+        state.release();
+        return result;
+    }
+
+    /**
+     * The possibilities of one structure as bit masks, from the view of the
+     * cells as well as from the view of the values. The masks are sized for
+     * the largest supported sudokus, so that they can be reused for any
+     * structure.
+     */
+    private static final class UnitState {
+
+        private Board board;
+        private int unit;
+        private Structure struct;
+        private int major;
+        private int numbers;
+
+        /**
+         * The absolute indices of the cells, indexed by the minor coordinate.
+         */
+        private int[] cells;
+
+        /**
+         * The possible values of every cell, indexed by the minor coordinate.
+         */
+        private final long[] cellMasks = new long[Long.SIZE];
+
+        /**
+         * The possible cells of every value, indexed by the value minus one.
+         */
+        private final long[] numberMasks = new long[Long.SIZE];
+
+        /**
+         * The unset cells and the values not set in the structure yet.
+         */
+        private long openCells;
+        private long openNumbers;
+
+        /**
+         * Whether the board maintains the possible cells of every value, so
+         * that they do not have to be collected from the cells.
+         */
+        private boolean readPositions;
+
+        /**
+         * Switches the masks to a structure. They are filled by
+         * {@link #update()}.
+         *
+         * @param board The board containing the structure.
+         * @param geometry The geometry of the board.
+         * @param unit The unit of the structure.
+         */
+        void load(Board board, Geometry geometry, int unit) {
+            this.board = board;
+            this.unit = unit;
+            struct = geometry.getStructure(unit);
+            major = geometry.getMajor(unit);
+            cells = geometry.getCells(unit);
+            numbers = board.getNumbers();
+            readPositions = (board instanceof AbstractBoard)
+                    && ((AbstractBoard) board).hasPositionMasks();
+        }
+
+        /**
+         * Drops the references to the board of the last structure, so that
+         * the board is not kept alive by the thread.
+         */
+        void release() {
+            board = null;
+        }
+
+        /**
+         * Reads the current possibilities of the structure from the board.
+         */
+        void update() {
+            openCells = 0;
+            openNumbers = 0;
+            for (int minor = 0; minor < numbers; minor++) {
+                long mask = board.getPossibilityMask(struct, major, minor);
+                cellMasks[minor] = mask;
+                if (mask != 0) {
+                    openCells |= 1L << minor;
+                    openNumbers |= mask;
+                }
+            }
+
+            if (readPositions) {
+                for (int number = 0; number < numbers; number++) {
+                    numberMasks[number] = ((AbstractBoard) board)
+                            .getPositionMask(unit, number + 1);
+                }
+            } else {
+                for (int number = 0; number < numbers; number++) {
+                    numberMasks[number] = 0;
+                }
+                for (int minor = 0; minor < numbers; minor++) {
+                    for (long bits = cellMasks[minor]; bits != 0;
+                            bits &= bits - 1) {
+                        numberMasks[Long.numberOfTrailingZeros(bits)]
+                                |= 1L << minor;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Searches a naked subset of the given size allowing removals and
+         * applies them. The subset is built recursively by adding cells in
+         * ascending order.
+         *
+         * @param size The amount of cells of the subset.
+         * @param first The first cell which may be added to the subset.
+         * @param chosenCells The cells chosen so far.
+         * @param union The values possible in the chosen cells.
+         * @return {@link SaturationResult#CHANGED} if a subset was found and
+         *         the board was modified, {@link SaturationResult#UNSOLVABLE}
+         *         if some cells can contain less values than there are cells.
+         */
+        SaturationResult findNakedSubset(int size, int first, long chosenCells,
+                long union) {
+            int chosen = Long.bitCount(chosenCells);
+            if (chosen == size) {
+                if (Long.bitCount(union) < size) {
+                    return SaturationResult.UNSOLVABLE;
+                }
+                return removeFromOtherCells(chosenCells, union);
+            } else if (Long.bitCount(openCells) <= size) {
+                // A subset of all cells does not remove any.
+                return SaturationResult.UNCHANGED;
+            }
+
+            for (int minor = first; minor <= numbers - size + chosen;
+                    minor++) {
+                long extended = union | cellMasks[minor];
+                if (((openCells & (1L << minor)) != 0)
+                        && (Long.bitCount(extended) <= size)) {
+                    SaturationResult result = findNakedSubset(size, minor + 1,
+                            chosenCells | (1L << minor), extended);
+                    if (result != SaturationResult.UNCHANGED) {
+                        return result;
+                    }
+                }
+            }
+            return SaturationResult.UNCHANGED;
+        }
+
+        /**
+         * Searches a hidden subset of the given size allowing removals and
+         * applies them. The subset is built recursively by adding values in
+         * ascending order.
+         *
+         * @param size The amount of values of the subset.
+         * @param first The first value minus one which may be added to the
+         *        subset.
+         * @param values The values chosen so far, as mask of possibilities.
+         * @param union The cells the chosen values are possible in.
+         * @return {@link SaturationResult#CHANGED} if a subset was found and
+         *         the board was modified, {@link SaturationResult#UNSOLVABLE}
+         *         if some values can be placed in less cells than there are
+         *         values.
+         */
+        SaturationResult findHiddenSubset(int size, int first, long values,
+                long union) {
+            int chosen = Long.bitCount(values);
+            if (chosen == size) {
+                if (Long.bitCount(union) < size) {
+                    return SaturationResult.UNSOLVABLE;
+                }
+                return removeOtherValues(union, values);
+            } else if (Long.bitCount(openNumbers) <= size) {
+                // A subset of all values does not remove any.
+                return SaturationResult.UNCHANGED;
+            }
+
+            for (int number = first; number <= numbers - size + chosen;
+                    number++) {
+                long extended = union | numberMasks[number];
+                if (((openNumbers & (1L << number)) != 0)
+                        && (Long.bitCount(extended) <= size)) {
+                    SaturationResult result = findHiddenSubset(size,
+                            number + 1, values | (1L << number), extended);
+                    if (result != SaturationResult.UNCHANGED) {
+                        return result;
+                    }
+                }
+            }
+            return SaturationResult.UNCHANGED;
+        }
+
+        /**
+         * Removes the values of a naked subset from all other cells.
+         *
+         * @param subset The cells of the subset.
+         * @param values The values of the subset.
+         * @return Whether a possibility was removed or a cell has no
+         *         possibilities left.
+         */
+        private SaturationResult removeFromOtherCells(long subset,
+                long values) {
+            SaturationResult result = SaturationResult.UNCHANGED;
+            for (long others = openCells & ~subset; (others != 0)
+                    && (result != SaturationResult.UNSOLVABLE);
+                    others &= others - 1) {
+                int minor = Long.numberOfTrailingZeros(others);
+                result = result.combine(
+                        remove(minor, cellMasks[minor] & values));
+            }
+            return result;
+        }
+
+        /**
+         * Removes all values except the ones of a hidden subset from its
+         * cells.
+         *
+         * @param subset The cells of the subset.
+         * @param values The values of the subset.
+         * @return Whether a possibility was removed or a cell has no
+         *         possibilities left.
+         */
+        private SaturationResult removeOtherValues(long subset, long values) {
+            SaturationResult result = SaturationResult.UNCHANGED;
+            for (long bits = subset; (bits != 0)
+                    && (result != SaturationResult.UNSOLVABLE);
+                    bits &= bits - 1) {
+                int minor = Long.numberOfTrailingZeros(bits);
+                result = result.combine(
+                        remove(minor, cellMasks[minor] & ~values));
+            }
+            return result;
+        }
+
+        /**
+         * Removes the given values from the possibilities of a cell.
+         *
+         * @param minor The minor coordinate of the cell.
+         * @param values The values to remove, as mask of possibilities.
+         * @return Whether at least one value was removed or the cell has no
+         *         possibilities left.
+         */
+        private SaturationResult remove(int minor, long values) {
+            for (long bits = values; bits != 0; bits &= bits - 1) {
+                if (!AbstractBoard.tryRemovePossibility(board, cells[minor],
+                        Long.numberOfTrailingZeros(bits) + 1)) {
+                    return SaturationResult.UNSOLVABLE;
+                }
+            }
+            return SaturationResult.of(values != 0);
+        }
+
+    }
+
+}
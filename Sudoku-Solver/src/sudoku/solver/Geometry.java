@@ -0,0 +1,348 @@
+package sudoku.solver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Geometry describes the layout of all sudokus with the same box-dimensions.
+ * It precomputes the conversion between the different coordinate systems and
+ * absolute cell indices as well as the cells of every structure and the peers
+ * of every cell, so that boards and saturators do not have to recompute them.
+ * <p>
+ * The absolute index of a cell is {@code row * numbers + column}. The
+ * structures of all types are numbered consecutively as units, where the unit
+ * of the structure {@code (struct, major)} is
+ * {@code struct.ordinal() * numbers + major}.
+ * <p>
+ * Geometries are immutable and shared between all boards of the same size.
+ * Therefore the arrays returned by this class must not be modified.
+ */
+final class Geometry {
+
+    /**
+     * All geometries created so far, identified by their box-dimensions.
+     */
+    private static final Map<Long, Geometry> GEOMETRIES
+            = new ConcurrentHashMap<Long, Geometry>();
+
+    /**
+     * All types of structures, cached as {@link Structure#values()} creates a
+     * new array on every call.
+     */
+    private static final Structure[] STRUCTURES = Structure.values();
+
+    private final int boxRows;
+    private final int boxCols;
+    private final int numbers;
+
+    /**
+     * The absolute indices of the cells of every unit.
+     */
+    private final int[][] units;
+
+    /**
+     * The three units every cell belongs to, ordered like {@link Structure}.
+     */
+    private final int[][] cellUnits;
+
+    /**
+     * The minor coordinates of every cell within its three units, ordered
+     * like {@link Structure}.
+     */
+    private final int[][] cellMinors;
+
+    /**
+     * The absolute indices of all other cells sharing at least one structure
+     * with a cell, in ascending order and without duplicates.
+     */
+    private final int[][] peers;
+
+    /**
+     * Creates a new geometry and precomputes all of its tables.
+     *
+     * @param boxRows The amount of rows per box.
+     * @param boxCols The amount of columns per box.
+     */
+    private Geometry(int boxRows, int boxCols) {
+        this.boxRows = boxRows;
+        this.boxCols = boxCols;
+        numbers = boxRows * boxCols;
+
+        units = new int[STRUCTURES.length * numbers][numbers];
+        cellUnits = new int[numbers * numbers][STRUCTURES.length];
+        cellMinors = new int[numbers * numbers][STRUCTURES.length];
+        for (Structure struct : STRUCTURES) {
+            for (int major = 0; major < numbers; major++) {
+                int unit = getUnit(struct, major);
+                for (int minor = 0; minor < numbers; minor++) {
+                    int index = calculateIndex(struct, major, minor);
+                    units[unit][minor] = index;
+                    cellUnits[index][struct.ordinal()] = unit;
+                    cellMinors[index][struct.ordinal()] = minor;
+                }
+            }
+        }
+
+        peers = new int[numbers * numbers][];
+        boolean[] isPeer = new boolean[numbers * numbers];
+        for (int index = 0; index < peers.length; index++) {
+            int amount = 0;
+            for (int unit : cellUnits[index]) {
+                for (int cell : units[unit]) {
+                    if ((cell != index) && !isPeer[cell]) {
+                        isPeer[cell] = true;
+                        amount++;
+                    }
+                }
+            }
+
+            // Collect the marked cells in ascending order and reset the marks.
+            peers[index] = new int[amount];
+            for (int cell = 0, peer = 0; peer < amount; cell++) {
+                if (isPeer[cell]) {
+                    isPeer[cell] = false;
+                    peers[index][peer] = cell;
+                    peer++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the geometry of all sudokus with the given box-dimensions. The
+     * geometry is only created once and shared afterwards.
+     *
+     * @param boxRows The amount of rows per box.
+     * @param boxCols The amount of columns per box.
+     * @return The geometry for the given box-dimensions.
+     */
+    static Geometry of(int boxRows, int boxCols) {
+        if ((boxRows < 1) || (boxCols < 1)) {
+            throw new IllegalArgumentException(
+                    "Rows and columns per box must be both greater than 1.");
+        }
+
+        long key = ((long) boxRows << Integer.SIZE) | boxCols;
+        Geometry geometry = GEOMETRIES.get(key);
+        if (geometry == null) {
+            geometry = GEOMETRIES.computeIfAbsent(key,
+                    k -> new Geometry(boxRows, boxCols));
+        }
+        return geometry;
+    }
+
+    /**
+     * Gets the geometry of the given board. Boards of this package already
+     * know their geometry, so no lookup is necessary for them.
+     *
+     * @param board The board whose box-dimensions are used.
+     * @return The geometry of the board.
+     */
+    static Geometry of(Board board) {
+        if (board instanceof AbstractBoard) {
+            return ((AbstractBoard) board).getGeometry();
+        }
+        return of(board.getBoxRows(), board.getBoxColumns());
+    }
+
+    /**
+     * Gets the number of rows in a box.
+     *
+     * @return The number of rows per box.
+     */
+    int getBoxRows() {
+        return boxRows;
+    }
+
+    /**
+     * Gets the number columns in a box.
+     *
+     * @return The number of columns per box.
+     */
+    int getBoxColumns() {
+        return boxCols;
+    }
+
+    /**
+     * Gets the number of cells in each structure.
+     *
+     * @return The number of cells in each structure.
+     */
+    int getNumbers() {
+        return numbers;
+    }
+
+    /**
+     * Gets the number of cells of the whole sudoku.
+     *
+     * @return The number of cells.
+     */
+    int getCellCount() {
+        return numbers * numbers;
+    }
+
+    /**
+     * Gets the number of units, which is the number of structures of all
+     * types.
+     *
+     * @return The number of units.
+     */
+    int getUnitCount() {
+        return units.length;
+    }
+
+    /**
+     * Converts from the given coordinates referring to a specific coordinate
+     * type to the absolute index of the cell.
+     *
+     * @param struct The coordinate type of the cell.
+     * @param major The major coordinate component of the cell.
+     * @param minor The minor coordinate component of the cell.
+     * @return The absolute index of the cell.
+     */
+    int getIndex(Structure struct, int major, int minor) {
+        return units[struct.ordinal() * numbers + major][minor];
+    }
+
+    /**
+     * Gets the unit of the given structure.
+     *
+     * @param struct The type of the structure.
+     * @param major The number of the structure.
+     * @return The unit of the structure.
+     */
+    int getUnit(Structure struct, int major) {
+        return struct.ordinal() * numbers + major;
+    }
+
+    /**
+     * Gets the type of the structure of a unit.
+     *
+     * @param unit The unit.
+     * @return The type of the structure.
+     */
+    Structure getStructure(int unit) {
+        return STRUCTURES[unit / numbers];
+    }
+
+    /**
+     * Gets the number of the structure of a unit in its coordinate system.
+     *
+     * @param unit The unit.
+     * @return The major coordinate of the structure.
+     */
+    int getMajor(int unit) {
+        return unit % numbers;
+    }
+
+    /**
+     * Calculates from an absolute index to the major coordinate in a target
+     * coordinate system.
+     *
+     * @param index The absolute index of a cell.
+     * @param target The target coordinate system.
+     * @return The major coordinate of the cell.
+     */
+    int getStructNr(int index, Structure target) {
+        return cellUnits[index][target.ordinal()] - target.ordinal() * numbers;
+    }
+
+    /**
+     * Gets the row of a cell.
+     *
+     * @param index The absolute index of the cell.
+     * @return The row of the cell.
+     */
+    int getRow(int index) {
+        return index / numbers;
+    }
+
+    /**
+     * Gets the column of a cell.
+     *
+     * @param index The absolute index of the cell.
+     * @return The column of the cell.
+     */
+    int getColumn(int index) {
+        return index % numbers;
+    }
+
+    /**
+     * Gets the absolute indices of the cells of a unit, ordered by their minor
+     * coordinate.
+     *
+     * @param unit The unit.
+     * @return The cells of the unit. Must not be modified.
+     */
+    int[] getCells(int unit) {
+        return units[unit];
+    }
+
+    /**
+     * Gets the units a cell belongs to, ordered like {@link Structure}.
+     *
+     * @param index The absolute index of the cell.
+     * @return The units of the cell. Must not be modified.
+     */
+    int[] getUnits(int index) {
+        return cellUnits[index];
+    }
+
+    /**
+     * Gets the minor coordinates of a cell within the units it belongs to,
+     * ordered like {@link Structure}.
+     *
+     * @param index The absolute index of the cell.
+     * @return The minor coordinates of the cell. Must not be modified.
+     */
+    int[] getMinors(int index) {
+        return cellMinors[index];
+    }
+
+    /**
+     * Gets all other cells which share at least one structure with a cell.
+     * Every peer is contained exactly once.
+     *
+     * @param index The absolute index of the cell.
+     * @return The peers of the cell in ascending order. Must not be modified.
+     */
+    int[] getPeers(int index) {
+        return peers[index];
+    }
+
+    /**
+     * Converts from the given coordinates to the absolute index without using
+     * the precomputed tables.
+     *
+     * @param struct The coordinate type of the cell.
+     * @param major The major coordinate component of the cell.
+     * @param minor The minor coordinate component of the cell.
+     * @return The absolute index of the cell.
+     */
+    private int calculateIndex(Structure struct, int major, int minor) {
+        int x;
+        int y;
+
+        switch(struct) {
+        case BOX:
+            x = (major % boxRows) * boxCols + minor % boxCols;
+            y = (major / boxRows) * boxRows + minor / boxCols;
+            break;
+
+        case ROW:
+            x = minor;
+            y = major;
+            break;
+
+        case COL:
+            x = major;
+            y = minor;
+            break;
+
+        default:
+            throw new IllegalArgumentException(
+                    "Unexpected structure: " + struct);
+        }
+        return (y * numbers + x);
+    }
+}
@@ -0,0 +1,55 @@
+package sudoku.solver;
+
+/**
+ * A solution strategy which can also be applied to single cells and units
+ * instead of the whole board. Solvers use this to only look at the parts of
+ * a board which changed since the last saturation.
+ * <p>
+ * Cells are given by their absolute index {@code row * numbers + column}.
+ * Units are the structures of all types numbered consecutively, where the
+ * unit of the structure {@code (struct, major)} is
+ * {@code struct.ordinal() * numbers + major}.
+ *
+ * @see PropagationQueue
+ */
+public interface IncrementalSaturator extends SignallingSaturator {
+
+    /**
+     * Applies the strategy to a single cell whose possibilities changed.
+     *
+     * @param board The Sudoku to solve.
+     * @param index The absolute index of the changed cell.
+     * @return Whether the {@code board} was changed or turned out to be
+     *         unsolvable.
+     */
+    SaturationResult saturateCell(Board board, int index);
+
+    /**
+     * Applies the strategy to a single unit containing a changed cell.
+     *
+     * @param board The Sudoku to solve.
+     * @param unit The unit containing a changed cell.
+     * @return Whether the {@code board} was changed or turned out to be
+     *         unsolvable.
+     */
+    SaturationResult saturateUnit(Board board, int unit);
+
+    /**
+     * Checks whether the strategy has to be applied to changed cells, so
+     * that solvers can skip queueing them otherwise.
+     *
+     * @return {@code true} if {@link #saturateCell(Board, int)} may change
+     *         the board.
+     */
+    boolean dependsOnCells();
+
+    /**
+     * Checks whether the strategy has to be applied to units containing
+     * changed cells, so that solvers can skip queueing them otherwise.
+     *
+     * @return {@code true} if {@link #saturateUnit(Board, int)} may change
+     *         the board.
+     */
+    boolean dependsOnUnits();
+
+}
@@ -0,0 +1,41 @@
+package sudoku.solver;
+
+/**
+ * The minimum remaining values heuristic chooses the unset cell with the
+ * lowest amount of possible values, which keeps the search tree narrow. If
+ * there are multiple of those cells, the first one in row-major order is
+ * chosen.
+ * <p>
+ * Boards which sort their cells into buckets by their amount of possible
+ * values are not searched at all, so the cell is found without looking at
+ * every cell of the board. This strategy does not learn from failures.
+ */
+public class MinRemainingValues implements BranchingStrategy {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int selectCell(Board board) {
+        AbstractBoard counts = AbstractBoard.of(board);
+        return counts.getNextCellWithCount(counts.getMinPossibilityCount(), 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Failures are ignored.
+     */
+    @Override
+    public void recordFailure(Board board, int index) {
+        // The choice only depends on the current board.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        // There is nothing learned which could be forgotten.
+    }
+
+}
@@ -0,0 +1,40 @@
+package sudoku.solver;
+
+/**
+ * This variant of the {@link MinRemainingValues} heuristic breaks ties between
+ * the cells with the lowest amount of possible values by their degree, which
+ * is the amount of unset cells sharing a unit with them. Setting the cell with
+ * the most unset peers removes its value from the most other cells. Cells with
+ * the same degree are chosen in row-major order.
+ */
+public class MinRemainingValuesDegree extends MinRemainingValues {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int selectCell(Board board) {
+        AbstractBoard counts = AbstractBoard.of(board);
+        Geometry geometry = counts.getGeometry();
+        int min = counts.getMinPossibilityCount();
+
+        int best = -1;
+        int bestDegree = -1;
+        for (int index = counts.getNextCellWithCount(min, 0); index >= 0;
+                index = counts.getNextCellWithCount(min, index + 1)) {
+            int degree = 0;
+            for (int peer : geometry.getPeers(index)) {
+                if (counts.getPossibilityCount(peer) > 0) {
+                    degree++;
+                }
+            }
+
+            if (degree > bestDegree) {
+                best = index;
+                bestDegree = degree;
+            }
+        }
+        return best;
+    }
+
+}
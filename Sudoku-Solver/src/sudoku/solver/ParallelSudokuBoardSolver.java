@@ -0,0 +1,293 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A ParallelSudokuBoardSolver enumerates all solutions of a sudoku like the
+ * {@link SudokuBoardSolver}, but distributes the search tree over the threads
+ * of a {@link ForkJoinPool}.
+ * <p>
+ * Every branch point produced by
+ * {@link SudokuBoardSolver#generateCandidates(Board)} can become a fork, where
+ * each candidate is searched by its own task. A subtree is only split if the
+ * estimated size of its search space is large enough and the current worker
+ * does not have enough queued tasks to be stolen by idle workers yet.
+ * Otherwise the subtree is searched sequentially on a single board like by
+ * the {@link TrailingSudokuSolver}, which is also used to find the first
+ * solution. Every task collects the solutions of its subtree in its own list,
+ * which are concatenated in the order of the candidates afterwards. Therefore
+ * the solutions are found in exactly the same order as by the
+ * {@link SudokuBoardSolver}, unless the branching strategy learns from
+ * failures, which the tasks report in a different order.
+ * <p>
+ * Passing the solutions to an action as soon as they are found is not
+ * compatible with this order, so
+ * {@link #findAllSolutions(Board, Consumer)} searches the subtrees of the
+ * candidates of the first branch point in parallel and passes on their
+ * solutions on the calling thread, one subtree after another in the order of
+ * the candidates, as soon as the subtree is searched.
+ * <p>
+ * The registered saturators are used by multiple threads at the same time, so
+ * they must not store any state between their calls.
+ */
+public class ParallelSudokuBoardSolver extends TrailingSudokuSolver {
+
+    /**
+     * The minimum estimated size of a search space, given as the binary
+     * logarithm of the amount of all possible assignments, for which it is
+     * worth to split the search.
+     */
+    private static final int MIN_SPLIT_ESTIMATE = 16;
+
+    /**
+     * The maximum amount of tasks a worker may have queued additionally to the
+     * ones currently stolen by other workers to split further.
+     */
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    /**
+     * The pool executing the tasks of the search.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new solver using the common pool of the whole application.
+     */
+    public ParallelSudokuBoardSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new solver using a pool with the given amount of threads.
+     *
+     * @param parallelism The amount of threads working on one search.
+     * @throws IllegalArgumentException If the parallelism is not greater
+     *         than 0.
+     */
+    public ParallelSudokuBoardSolver(int parallelism) {
+        this(new ForkJoinPool(parallelism));
+    }
+
+    /**
+     * Creates a new solver using the given pool.
+     *
+     * @param pool The pool executing the tasks of the search.
+     */
+    private ParallelSudokuBoardSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Board> findAllSolutions(Board board) {
+        SearchTask task = new SearchTask(board.clone(), true, Long.MAX_VALUE);
+        resetState();
+        pool.invoke(task);
+        return task.solutions;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subtrees of the candidates of the first branch point are searched
+     * in parallel. The solutions of a subtree are passed on as soon as it and
+     * all subtrees before it are searched.
+     */
+    @Override
+    public void findAllSolutions(Board board,
+            Consumer<? super Board> action) {
+        SearchTask root = new SearchTask(board.clone(), true, Long.MAX_VALUE);
+        resetState();
+        if (!saturateDirect(root.board)) {
+            return;
+        } else if (root.board.isSolution()
+                || (estimateSearchSpace(root.board) < MIN_SPLIT_ESTIMATE)) {
+            solve(root.board, Long.MAX_VALUE, action);
+            return;
+        }
+
+        List<SearchTask> subtasks = new ArrayList<SearchTask>();
+        for (Board candidate : generateCandidates(root.board)) {
+            SearchTask subtask = new SearchTask(candidate, root);
+            pool.execute(subtask);
+            subtasks.add(subtask);
+        }
+        try {
+            for (SearchTask subtask : subtasks) {
+                subtask.join();
+                subtask.solutions.forEach(action);
+                subtask.solutions = null; // They are not needed anymore.
+            }
+        } finally {
+            // Do not start the subtrees left if the action failed.
+            for (SearchTask subtask : subtasks) {
+                subtask.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subtrees are counted in parallel and all tasks stop as soon as
+     * the limit is reached in total.
+     */
+    @Override
+    public long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        } else if (limit == 0) {
+            return 0;
+        }
+
+        resetState();
+        return pool.invoke(new SearchTask(board.clone(), false, limit));
+    }
+
+    /**
+     * Estimates the size of the search space of a board as the binary
+     * logarithm of the product of the possibility counts of all unset cells.
+     *
+     * @param board The saturated board.
+     * @return The rounded up logarithm of the amount of possible assignments.
+     */
+    private static int estimateSearchSpace(Board board) {
+        Structure struct = Structure.ROW; // The coordinate system used here.
+        int estimate = 0;
+
+        for (int row = 0; row < board.getNumbers(); row++) {
+            for (int col = 0; col < board.getNumbers(); col++) {
+                int count = board.getPossibilityCount(struct, row, col);
+                if (count > 1) {
+                    estimate += Integer.SIZE
+                            - Integer.numberOfLeadingZeros(count - 1);
+                }
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * A task searching all solutions below one candidate board. The result of
+     * the task is the amount of solutions found.
+     */
+    private final class SearchTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final boolean collectSolutions;
+        private final long limit;
+
+        /**
+         * The amount of solutions found by all tasks of the same search so
+         * far, to stop all of them as soon as the limit is reached.
+         */
+        private final AtomicLong found;
+
+        /**
+         * The solutions of the subtree in the order they were found, or
+         * {@code null} if they are not collected.
+         */
+        private List<Board> solutions;
+
+        /**
+         * Creates a new task for the whole search tree of a board.
+         *
+         * @param board The board, which is changed by the task.
+         * @param collectSolutions Whether the solutions should be kept or only
+         *        counted.
+         * @param limit The maximum amount of solutions to search for.
+         */
+        SearchTask(Board board, boolean collectSolutions, long limit) {
+            this.board = board;
+            this.collectSolutions = collectSolutions;
+            this.limit = limit;
+            found = new AtomicLong();
+        }
+
+        /**
+         * Creates a new task for the subtree of a candidate, which is part of
+         * the same search as its parent.
+         *
+         * @param board The candidate, which is changed by the task.
+         * @param parent The task which generated the candidate.
+         */
+        SearchTask(Board board, SearchTask parent) {
+            this.board = board;
+            collectSolutions = parent.collectSolutions;
+            limit = parent.limit;
+            found = parent.found;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Long compute() {
+            if (collectSolutions) {
+                solutions = new ArrayList<Board>();
+            }
+            if (found.get() >= limit) {
+                return 0L;
+            }
+
+            if (!saturateDirect(board)) {
+                return 0L;
+            }
+
+            boolean split = !board.isSolution()
+                    && (getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS)
+                    && (estimateSearchSpace(board) >= MIN_SPLIT_ESTIMATE);
+            if (!split) {
+                return searchSequentially();
+            }
+
+            List<SearchTask> subtasks = new ArrayList<SearchTask>();
+            for (Board candidate : generateCandidates(board)) {
+                subtasks.add(new SearchTask(candidate, this));
+            }
+            invokeAll(subtasks);
+
+            // Merge the results in the order of the candidates.
+            long count = 0;
+            for (SearchTask subtask : subtasks) {
+                count += subtask.join();
+                if (collectSolutions) {
+                    solutions.addAll(subtask.solutions);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Searches the subtree on a single board. Every solution is reserved
+         * in the counter shared by all tasks of the search before it counts,
+         * and the search stops as soon as the reservation fails, so that all
+         * tasks together find no more solutions than the limit. The boards of
+         * the solutions are only created if they are collected.
+         *
+         * @return The amount of solutions found in the subtree.
+         */
+        private long searchSequentially() {
+            long remaining = limit - found.get();
+            if (remaining <= 0) {
+                return 0L;
+            }
+
+            return solve(board, remaining,
+                    collectSolutions ? solutions::add : null,
+                    () -> found.incrementAndGet() <= limit);
+        }
+
+    }
+
+}
@@ -0,0 +1,273 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A PortfolioSudokuSolver runs several differently configured solvers on the
+ * same sudoku in parallel threads and takes the result of the one finishing
+ * first. The others are cancelled by interrupting their threads. A single
+ * configuration which happens to choose badly for a sudoku therefore only
+ * costs time if all other ones choose badly as well.
+ * <p>
+ * The configurations are given as factories, the members, which create a
+ * new solver for every search, so that a cancelled solver which did not
+ * notice the interrupt yet is never used again. The saturators registered
+ * on the portfolio are registered on every created solver, in addition to
+ * the ones the member registers itself. They are used by multiple threads
+ * at the same time, so they must not store any state between their calls.
+ * The members should stop searching when their thread is interrupted, which
+ * the solvers of this package working on a single board do.
+ * <p>
+ * At most as many members as the portfolio has threads run at the same
+ * time, the ones added later wait for a free thread. The first solution
+ * found is the first solution of the member finishing first, so it can
+ * differ between calls if the sudoku has multiple solutions. Counting the
+ * solutions is raced as well, as all members count the same amount. All
+ * solutions are enumerated and saturated by the first member alone, so that
+ * they are found in the same order every time.
+ */
+public class PortfolioSudokuSolver implements SudokuSolver {
+
+    /**
+     * The seed of the first randomized member of the default portfolio. Each
+     * further one uses the next seed.
+     */
+    private static final long FIRST_SEED = 1;
+
+    /**
+     * The time in seconds after which an idle thread running the members is
+     * stopped.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final int threads;
+
+    /**
+     * The threads running the members. They do not keep the application
+     * from exiting and are stopped while the portfolio is not used.
+     */
+    private final ThreadPoolExecutor executor;
+
+    private final List<Supplier<? extends SudokuSolver>> members
+            = new ArrayList<Supplier<? extends SudokuSolver>>();
+
+    private final List<Saturator> saturators = new ArrayList<Saturator>();
+
+    /**
+     * Creates a new portfolio without any members, which runs at most the
+     * given amount of them at the same time.
+     *
+     * @param threads The amount of threads running the members.
+     * @throws IllegalArgumentException If the amount of threads is not
+     *         greater than 0.
+     */
+    public PortfolioSudokuSolver(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException(
+                    "The amount of threads must be greater than 0.");
+        }
+        this.threads = threads;
+        executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable, "sudoku-portfolio");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates a new portfolio with a member for every thread. The first
+     * member is a {@link TrailingSudokuSolver} with the default
+     * configuration, the second one a {@link BackjumpingSudokuSolver}
+     * branching by {@link DomOverWeightedDegree}, and the third one a
+     * {@link TrailingSudokuSolver} which also applies {@link EnforcedSubset}
+     * and {@link EnforcedIntersection} and branches on units as well. All
+     * further members are {@link RestartingSudokuSolver}s with different
+     * seeds.
+     *
+     * @param threads The amount of threads running the members.
+     * @return The new portfolio.
+     * @throws IllegalArgumentException If the amount of threads is not
+     *         greater than 0.
+     */
+    public static PortfolioSudokuSolver createDefault(int threads) {
+        PortfolioSudokuSolver portfolio = new PortfolioSudokuSolver(threads);
+        portfolio.addMember(TrailingSudokuSolver::new);
+        if (threads > 1) {
+            portfolio.addMember(() -> {
+                SudokuBoardSolver solver = new BackjumpingSudokuSolver();
+                solver.setBranchingStrategy(new DomOverWeightedDegree());
+                return solver;
+            });
+        }
+        if (threads > 2) {
+            portfolio.addMember(() -> {
+                SudokuBoardSolver solver = new TrailingSudokuSolver();
+                solver.addSaturator(new EnforcedSubset());
+                solver.addSaturator(new EnforcedIntersection());
+                solver.setUnitBranching(true);
+                return solver;
+            });
+        }
+        for (int member = 3; member < threads; member++) {
+            long seed = FIRST_SEED + member - 3;
+            portfolio.addMember(() -> new RestartingSudokuSolver(seed));
+        }
+        return portfolio;
+    }
+
+    /**
+     * Adds a configuration to the portfolio.
+     *
+     * @param member The factory creating a new solver of the configuration
+     *        for every search.
+     * @throws IllegalArgumentException If the member is {@code null}.
+     */
+    public void addMember(Supplier<? extends SudokuSolver> member) {
+        if (member == null) {
+            throw new IllegalArgumentException(
+                    "The member must not be null.");
+        }
+        members.add(member);
+    }
+
+    /**
+     * Gets the amount of threads running the members.
+     *
+     * @return The amount of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSaturator(Saturator saturator) {
+        saturators.add(saturator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Board saturate(Board board) {
+        return createSolver(0).saturate(board);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The solution is the one of the member finishing first, so it is only
+     * repeatable if the sudoku has a single solution.
+     */
+    @Override
+    public Board findFirstSolution(Board board) {
+        return race(solver -> solver.findFirstSolution(board));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Board> findAllSolutions(Board board) {
+        return createSolver(0).findAllSolutions(board);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void findAllSolutions(Board board, Consumer<? super Board> action) {
+        createSolver(0).findAllSolutions(board, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        }
+        return race(solver -> solver.countSolutions(board, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasUniqueSolution(Board board) {
+        return countSolutions(board, 2) == 1;
+    }
+
+    /**
+     * Creates a new solver of a member and registers the saturators of the
+     * portfolio on it.
+     *
+     * @param member The index of the member.
+     * @return The new solver.
+     * @throws IllegalStateException If the portfolio has no such member.
+     */
+    private SudokuSolver createSolver(int member) {
+        if (member >= members.size()) {
+            throw new IllegalStateException("The portfolio has no members.");
+        }
+        SudokuSolver solver = members.get(member).get();
+        for (Saturator saturator : saturators) {
+            solver.addSaturator(saturator);
+        }
+        return solver;
+    }
+
+    /**
+     * Runs a search with a new solver of every member and returns the result
+     * of the first one finishing. All other searches are cancelled.
+     *
+     * @param <T> The type of the result.
+     * @param search The search to run.
+     * @return The result of the first finished search.
+     * @throws IllegalStateException If the portfolio has no members.
+     * @throws CancellationException If the current thread was interrupted
+     *         while waiting for the result. The thread stays interrupted.
+     */
+    private <T> T race(Function<SudokuSolver, T> search) {
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>(members.size());
+        for (int member = 0; member < Math.max(members.size(), 1); member++) {
+            SudokuSolver solver = createSolver(member);
+            tasks.add(() -> search.apply(solver));
+        }
+
+        try {
+            return executor.invokeAny(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(
+                    "Interrupted while waiting for the portfolio.");
+        } catch (ExecutionException e) {
+            // All members failed, so pass on the failure of one of them.
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
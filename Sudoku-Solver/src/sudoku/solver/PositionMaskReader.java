@@ -0,0 +1,12 @@
+package sudoku.solver;
+
+/**
+ * Implemented by solution strategies which read the possible positions of the
+ * numbers in whole units, see {@link AbstractBoard#getPositionMask(int, int)}.
+ * Solvers let their working boards maintain these positions if one of their
+ * strategies reads them, as collecting them from the cells again and again
+ * is more expensive than keeping them up to date on every change.
+ */
+interface PositionMaskReader {
+
+}
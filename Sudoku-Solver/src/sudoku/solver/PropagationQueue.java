@@ -0,0 +1,207 @@
+package sudoku.solver;
+
+/**
+ * A PropagationQueue collects the cells and units of a board which changed
+ * since they were saturated the last time, so that saturators only have to
+ * look at these instead of the whole board.
+ * <p>
+ * The queue consists of multiple levels, one for every saturator, so that
+ * each saturator can work through the changes at its own pace. Every change
+ * is added to all levels, but only as far as the saturator of a level depends
+ * on cells or units. Each level stores cells and units in two separate
+ * queues. Every cell and unit is contained at most once per level, so all
+ * queues are ring buffers with a fixed size and adding or removing entries
+ * does not create any objects.
+ *
+ * @see BitMaskBoard#setPropagationQueue(PropagationQueue)
+ */
+final class PropagationQueue {
+
+    /**
+     * The value returned when polling from an empty queue.
+     */
+    static final int EMPTY = -1;
+
+    private final Geometry geometry;
+    private final int levels;
+
+    /**
+     * The levels receiving the changed cells and the levels receiving the
+     * units containing changed cells.
+     */
+    private final int[] cellReceivers;
+    private final int[] unitReceivers;
+
+    private final int[][] cells;
+    private final boolean[][] queuedCells;
+    private final int[] cellHeads;
+    private final int[] cellCounts;
+
+    private final int[][] units;
+    private final boolean[][] queuedUnits;
+    private final int[] unitHeads;
+    private final int[] unitCounts;
+
+    /**
+     * Creates a new empty queue for boards of the given geometry.
+     *
+     * @param geometry The geometry of the boards.
+     * @param cellLevels Whether each level receives the changed cells. The
+     *        length of the array is the amount of levels.
+     * @param unitLevels Whether each level receives the units containing
+     *        changed cells. Must have the same length as {@code cellLevels}.
+     */
+    PropagationQueue(Geometry geometry, boolean[] cellLevels,
+            boolean[] unitLevels) {
+        this.geometry = geometry;
+        levels = cellLevels.length;
+        cellReceivers = getReceivers(cellLevels);
+        unitReceivers = getReceivers(unitLevels);
+        cells = new int[levels][geometry.getCellCount()];
+        queuedCells = new boolean[levels][geometry.getCellCount()];
+        cellHeads = new int[levels];
+        cellCounts = new int[levels];
+        units = new int[levels][geometry.getUnitCount()];
+        queuedUnits = new boolean[levels][geometry.getUnitCount()];
+        unitHeads = new int[levels];
+        unitCounts = new int[levels];
+    }
+
+    /**
+     * Adds a changed cell and all units it belongs to to the levels receiving
+     * them, unless they are already queued there.
+     *
+     * @param index The absolute index of the changed cell.
+     */
+    void cellChanged(int index) {
+        for (int level : cellReceivers) {
+            if (!queuedCells[level][index]) {
+                queuedCells[level][index] = true;
+                cells[level][wrap(cellHeads[level] + cellCounts[level],
+                        cells[level].length)] = index;
+                cellCounts[level]++;
+            }
+        }
+
+        int[] cellUnits = geometry.getUnits(index);
+        for (int level : unitReceivers) {
+            boolean[] queued = queuedUnits[level];
+            for (int unit : cellUnits) {
+                if (!queued[unit]) {
+                    queued[unit] = true;
+                    units[level][wrap(unitHeads[level] + unitCounts[level],
+                            units[level].length)] = unit;
+                    unitCounts[level]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds all cells and units, so that the whole board is saturated.
+     */
+    void addAll() {
+        for (int index = 0; index < geometry.getCellCount(); index++) {
+            cellChanged(index);
+        }
+    }
+
+    /**
+     * Removes the cell of a level that was added first.
+     *
+     * @param level The level to remove the cell from.
+     * @return The absolute index of the cell, or {@link #EMPTY} if no cell is
+     *         queued.
+     */
+    int pollCell(int level) {
+        if (cellCounts[level] == 0) {
+            return EMPTY;
+        }
+
+        int index = cells[level][cellHeads[level]];
+        queuedCells[level][index] = false;
+        cellHeads[level] = wrap(cellHeads[level] + 1, cells[level].length);
+        cellCounts[level]--;
+        return index;
+    }
+
+    /**
+     * Removes the unit of a level that was added first.
+     *
+     * @param level The level to remove the unit from.
+     * @return The unit, or {@link #EMPTY} if no unit is queued.
+     */
+    int pollUnit(int level) {
+        if (unitCounts[level] == 0) {
+            return EMPTY;
+        }
+
+        int unit = units[level][unitHeads[level]];
+        queuedUnits[level][unit] = false;
+        unitHeads[level] = wrap(unitHeads[level] + 1, units[level].length);
+        unitCounts[level]--;
+        return unit;
+    }
+
+    /**
+     * Checks whether neither cells nor units are queued in a level.
+     *
+     * @param level The level to check.
+     * @return {@code true} if the level is empty.
+     */
+    boolean isEmpty(int level) {
+        return (cellCounts[level] == 0) && (unitCounts[level] == 0);
+    }
+
+    /**
+     * Removes all queued cells and units of all levels, for example if the
+     * board they belong to was reverted.
+     */
+    void clear() {
+        for (int level = 0; level < levels; level++) {
+            while (pollCell(level) != EMPTY) {
+                // Only the flags of the removed cells have to be reset.
+            }
+            while (pollUnit(level) != EMPTY) {
+                // Only the flags of the removed units have to be reset.
+            }
+        }
+    }
+
+    /**
+     * Collects the levels whose flag is set.
+     *
+     * @param flags Whether each level receives an entry.
+     * @return The levels receiving the entry in ascending order.
+     */
+    private static int[] getReceivers(boolean[] flags) {
+        int count = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                count++;
+            }
+        }
+
+        int[] receivers = new int[count];
+        int next = 0;
+        for (int level = 0; level < flags.length; level++) {
+            if (flags[level]) {
+                receivers[next++] = level;
+            }
+        }
+        return receivers;
+    }
+
+    /**
+     * Wraps a position of a ring buffer around its end. The position must not
+     * be larger than twice the length.
+     *
+     * @param position The position, possibly behind the end of the buffer.
+     * @param length The length of the buffer.
+     * @return The position within the buffer.
+     */
+    private static int wrap(int position, int length) {
+        return (position < length) ? position : position - length;
+    }
+
+}
@@ -0,0 +1,200 @@
+package sudoku.solver;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * A RestartingSudokuSolver searches for the first solution of a sudoku on a
+ * single working board like the {@link TrailingSudokuSolver}, but it breaks
+ * ties at random. The cell to branch on is one of the cells with the fewest
+ * possibilities and its values are tried in a random order. If the search
+ * ran into too many dead ends, it starts over with the choices of the random
+ * generator going on, so a search which chose badly near the root does not
+ * keep the solver busy. The amount of dead ends allowed grows with every
+ * restart following the Luby sequence, so every sudoku is still solved.
+ * <p>
+ * The random generator is seeded with the seed given on construction, so
+ * the same sudoku always leads to the same solution. Solutions are only
+ * counted or enumerated without restarts, like by the
+ * {@link TrailingSudokuSolver}. The branching strategy and whether units are
+ * branched on is only used for them as well.
+ */
+public class RestartingSudokuSolver extends TrailingSudokuSolver {
+
+    /**
+     * The amount of dead ends between restarts, which is multiplied with the
+     * elements of the Luby sequence.
+     */
+    private static final int RESTART_INTERVAL = 32;
+
+    /**
+     * The possible outcomes of a search until the next restart.
+     */
+    private enum Outcome {
+        SOLVED, UNSOLVABLE, RESTART
+    }
+
+    private final long seed;
+
+    /**
+     * Creates a new solver whose random choices are determined by the given
+     * seed.
+     *
+     * @param seed The seed of the random generator.
+     */
+    public RestartingSudokuSolver(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the seed of the random generator.
+     *
+     * @return The seed given on construction.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Tries to find the first solution of a given sudoku with restarts. If
+     * more solutions are searched, or the sudoku has 64 or more numbers, all
+     * of them are searched without restarts.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    @Override
+    long solve(Board board, long limit, Consumer<? super Board> action) {
+        if ((limit != 1) || (board.getNumbers() >= Long.SIZE)) {
+            return super.solve(board, limit, action);
+        }
+
+        BitMaskBoard workingBoard = BitMaskBoard.copyOf(board);
+        PropagationQueue queue
+                = createPropagationQueue(workingBoard.getGeometry());
+        workingBoard.startTrail();
+        workingBoard.startCountBuckets();
+        if (readsPositionMasks()) {
+            workingBoard.startPositionMasks();
+        }
+        workingBoard.setPropagationQueue(queue);
+        queue.addAll(); // Nothing of the initial board is saturated yet.
+        if (!saturateIncrementally(workingBoard, queue)) {
+            return 0;
+        }
+
+        Random random = new Random(seed);
+        int rootMark = workingBoard.getTrailMark();
+        Outcome result = Outcome.RESTART;
+        for (int restarts = 0; result == Outcome.RESTART; restarts++) {
+            workingBoard.rollback(rootMark);
+            result = search(workingBoard, queue, random,
+                    RESTART_INTERVAL * Cdcl.luby(restarts));
+        }
+
+        if (result == Outcome.SOLVED) {
+            if (action != null) {
+                action.accept(workingBoard.clone());
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Searches for a solution on the saturated working board until the
+     * search runs into more dead ends than allowed. The search also stops if
+     * the current thread is interrupted.
+     *
+     * @param board The working board, which is left solved if a solution was
+     *        found.
+     * @param queue The queue receiving the changes of the working board.
+     * @param random The random generator choosing the branches.
+     * @param maxFailures The amount of dead ends after which the search is
+     *        restarted.
+     * @return {@link Outcome#SOLVED}, {@link Outcome#UNSOLVABLE} if the whole
+     *         search tree was searched, or {@link Outcome#RESTART}.
+     */
+    private Outcome search(BitMaskBoard board, PropagationQueue queue,
+            Random random, int maxFailures) {
+        int numbers = board.getNumbers();
+        int cellCount = numbers * numbers;
+
+        /*
+         * The branch points on the current path. Each one stores the cell,
+         * the trail mark before any of its values was assigned and the
+         * values not tried yet.
+         */
+        int[] cells = new int[cellCount];
+        int[] marks = new int[cellCount];
+        long[] remaining = new long[cellCount];
+        int depth = 0;
+        int failures = 0;
+
+        boolean consistent = true;
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return Outcome.UNSOLVABLE;
+            } else if (consistent) {
+                if (board.isSolution()) {
+                    return Outcome.SOLVED;
+                }
+                int cell = selectRandomCell(board, random);
+                cells[depth] = cell;
+                marks[depth] = board.getTrailMark();
+                remaining[depth] = board.getPossibilityMask(cell);
+                depth++;
+            } else {
+                failures++;
+                if (failures == maxFailures) {
+                    return Outcome.RESTART;
+                }
+            }
+
+            // Try a random value of the innermost branch point left.
+            while ((depth > 0) && (remaining[depth - 1] == 0)) {
+                depth--; // All values were tried, backtrack further.
+            }
+            if (depth == 0) {
+                return Outcome.UNSOLVABLE;
+            }
+
+            board.rollback(marks[depth - 1]);
+            long values = remaining[depth - 1];
+            int skipped = random.nextInt(Long.bitCount(values));
+            for (int i = 0; i < skipped; i++) {
+                values &= values - 1;
+            }
+            long value = values & -values;
+            remaining[depth - 1] &= ~value;
+
+            consistent = board.trySetCell(cells[depth - 1],
+                    Long.numberOfTrailingZeros(value) + 1)
+                    && saturateIncrementally(board, queue);
+            if (!consistent) {
+                queue.clear(); // The changes are reverted by the next rollback.
+            }
+        }
+    }
+
+    /**
+     * Chooses one of the unset cells with the fewest possibilities. The cells
+     * are searched from a random index on, so the chosen cell depends on the
+     * random generator.
+     *
+     * @param board The working board, which is not solved yet.
+     * @param random The random generator.
+     * @return The absolute index of the chosen cell.
+     */
+    private static int selectRandomCell(BitMaskBoard board, Random random) {
+        int count = board.getMinPossibilityCount();
+        int cellCount = board.getGeometry().getCellCount();
+        int cell = board.getNextCellWithCount(count,
+                random.nextInt(cellCount));
+        return (cell < 0) ? board.getNextCellWithCount(count, 0) : cell;
+    }
+
+}
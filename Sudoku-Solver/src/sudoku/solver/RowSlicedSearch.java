@@ -0,0 +1,898 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A RowSlicedSearch solves sudokus with up to 64 numbers by backtracking,
+ * working on bit planes instead of the cells of a board, like the
+ * {@link BitSlicedSearch} does for classic sudokus.
+ * <p>
+ * Every number has a plane with one {@code long} word per row, in which the
+ * bit {@code c} stands for the cell in column {@code c}. One plane holds the
+ * unset cells the number can still be placed in, another one the cells it
+ * was placed in. A word therefore treats all cells of a row as lanes of the
+ * same operation: removing a number from a column or a box clears the same
+ * bits in every word of the rows involved, and the columns or boxes with
+ * one or no position of a number are found for all of them at once by
+ * adding up the words of the rows bitwise. The loops over the rows and
+ * planes are simple enough to be vectorized by the JIT compiler. The Vector
+ * API of {@code jdk.incubator.vector} is not used, as it first shipped with
+ * JDK 16 and does not exist on JDK 13, which this project targets.
+ * <p>
+ * Only the numbers whose planes were changed since the last check are
+ * searched for positions in the units, as the units of all other numbers
+ * can not have changed. The search applies the same rules as the saturators
+ * it replaces and chooses the same cells and numbers as a
+ * {@link TrailingSudokuSolver} with these saturators and the
+ * {@link MinRemainingValues} heuristic, so both find the same solutions in
+ * the same order. The whole state of a search step is an array of words,
+ * which is copied for every branch instead of recording changes. A search
+ * must not be used by multiple threads at the same time.
+ * <p>
+ * The statistics of the saturators are updated like by the
+ * {@link BitSlicedSearch}, counting every pass of a rule as one call.
+ */
+final class RowSlicedSearch {
+
+    /**
+     * The amount of states the array of states initially has room for. It
+     * grows with the depth of the search, as the states of all cells would
+     * take too much memory on large boards.
+     */
+    private static final int INITIAL_STATES = 16;
+
+    /**
+     * Only every {@value}th pass of a rule is timed, as reading the clock
+     * takes longer than most passes.
+     */
+    private static final int SAMPLE_INTERVAL = 64;
+
+    /**
+     * Returned by {@link #startPass()} if the pass is not timed.
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final int boxRows;
+    private final int boxCols;
+    private final int numbers;
+
+    /**
+     * The counters of the rules which are applied, or {@code null} for the
+     * rules which are not.
+     */
+    private final RuleCounter enforcedCells;
+    private final RuleCounter enforcedNumbers;
+    private final RuleCounter enforcedIntersections;
+    private final RuleCounter[] counters;
+
+    /**
+     * The positions of the parts of a state. The plane of the possible
+     * positions of the number {@code n} starts at {@code numbers * (n - 1)},
+     * the plane of its placed positions at {@link #placed}
+     * {@code + numbers * (n - 1)} and the unset cells at {@link #unset}, each
+     * consisting of one word per row. The cell which was set last is stored
+     * at {@link #last}.
+     */
+    private final int placed;
+    private final int unset;
+    private final int last;
+    private final int stateSize;
+
+    /**
+     * All columns of a row, and the columns of every stack of boxes.
+     */
+    private final long columns;
+    private final long[] stacks;
+
+    /**
+     * The states of all search steps on the current path. The state at a
+     * depth is the one of the root with the cells of the branches up to this
+     * depth set and saturated.
+     */
+    private long[] states;
+
+    /**
+     * The cell branched on and the numbers of the branch not tried yet, as
+     * bit mask with the bit {@code n - 1} for the number {@code n}, for every
+     * depth.
+     */
+    private final int[] branchCells;
+    private final long[] branchNumbers;
+
+    /**
+     * The amounts of possibilities of the cells of a row as bit planes, one
+     * word for every bit of the amounts.
+     */
+    private final long[] counts;
+
+    /**
+     * The numbers whose planes were changed since their units were checked
+     * for positions and intersections, as bit mask with the bit
+     * {@code n - 1} for the number {@code n}.
+     */
+    private long uncheckedUnits;
+    private long uncheckedIntersections;
+
+    /**
+     * The amount of possibilities removed so far, and the amount of passes
+     * of the rules started so far to time a sample of them.
+     */
+    private long eliminations;
+    private long passes;
+
+    /**
+     * Creates a new search for sudokus with boxes of the given size, applying
+     * the rules of the given saturators.
+     *
+     * @param boxRows The amount of rows of a box.
+     * @param boxCols The amount of columns of a box.
+     * @param enforcedCells The statistics of the {@link EnforcedCell}
+     *        saturator, or {@code null} if its rule is not applied.
+     * @param enforcedNumbers The statistics of the {@link EnforcedNumber}
+     *        saturator, or {@code null} if its rule is not applied.
+     * @param enforcedIntersections The statistics of the
+     *        {@link EnforcedIntersection} saturator, or {@code null} if its
+     *        rule is not applied.
+     * @throws IllegalArgumentException If the boxes are empty or the sudokus
+     *         would have more than 64 numbers.
+     */
+    RowSlicedSearch(int boxRows, int boxCols,
+            SaturatorStatistics enforcedCells,
+            SaturatorStatistics enforcedNumbers,
+            SaturatorStatistics enforcedIntersections) {
+        if ((boxRows <= 0) || (boxCols <= 0)
+                || (boxRows * boxCols > Long.SIZE)) {
+            throw new IllegalArgumentException(
+                    "Only sudokus with 1 to 64 numbers are supported.");
+        }
+        this.boxRows = boxRows;
+        this.boxCols = boxCols;
+        this.enforcedCells = createCounter(enforcedCells);
+        this.enforcedNumbers = createCounter(enforcedNumbers);
+        this.enforcedIntersections = createCounter(enforcedIntersections);
+        counters = new RuleCounter[] {this.enforcedCells,
+                this.enforcedNumbers, this.enforcedIntersections};
+        numbers = boxRows * boxCols;
+        placed = numbers * numbers;
+        unset = 2 * placed;
+        last = unset + numbers;
+        stateSize = last + 1;
+
+        columns = -1L >>> (Long.SIZE - numbers);
+        stacks = new long[boxRows];
+        for (int stack = 0; stack < boxRows; stack++) {
+            stacks[stack] = (-1L >>> (Long.SIZE - boxCols))
+                    << (stack * boxCols);
+        }
+        states = new long[INITIAL_STATES * stateSize];
+        branchCells = new int[numbers * numbers];
+        branchNumbers = new long[numbers * numbers];
+        counts = new long[Integer.SIZE
+                - Integer.numberOfLeadingZeros(numbers)];
+    }
+
+    /**
+     * Creates the counter of a rule.
+     *
+     * @param statistics The statistics of the saturator of the rule, or
+     *        {@code null} if the rule is not applied.
+     * @return The counter, or {@code null} if the rule is not applied.
+     */
+    private static RuleCounter createCounter(SaturatorStatistics statistics) {
+        return (statistics == null) ? null : new RuleCounter(statistics);
+    }
+
+    /**
+     * Checks whether a board can be searched, which is the case if it has at
+     * most 64 numbers.
+     *
+     * @param board The board to check.
+     * @return {@code true} if every row fits into a word.
+     */
+    static boolean supports(Board board) {
+        return board.getNumbers() <= Long.SIZE;
+    }
+
+    /**
+     * Searches the solutions of a sudoku. The search stops early if the
+     * current thread is interrupted, passing on only the solutions found so
+     * far.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @param reservation Asked before every solution is counted, or
+     *        {@code null} if all solutions count. The search stops without
+     *        counting the solution as soon as it returns {@code false}.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     * @throws IllegalArgumentException If the boxes of the board have another
+     *         size than the ones of the search.
+     */
+    long solve(Board board, long limit, Consumer<? super Board> action,
+            BooleanSupplier reservation) {
+        if ((board.getBoxRows() != boxRows)
+                || (board.getBoxColumns() != boxCols)) {
+            throw new IllegalArgumentException(
+                    "The boxes of the board have the wrong size.");
+        }
+
+        try {
+            return search(board, limit, action, reservation);
+        } finally {
+            for (RuleCounter counter : counters) {
+                if (counter != null) {
+                    counter.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the solutions of a sudoku.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @param reservation Asked before every solution is counted, or
+     *        {@code null} if all solutions count. The search stops without
+     *        counting the solution as soon as it returns {@code false}.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    private long search(Board board, long limit,
+            Consumer<? super Board> action, BooleanSupplier reservation) {
+        long solutions = 0;
+        int depth = 0;
+        uncheckedUnits = -1L >>> (Long.SIZE - numbers);
+        uncheckedIntersections = uncheckedUnits;
+        boolean consistent = load(board) && propagate(0);
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return solutions; // The search was cancelled.
+            } else if (consistent) {
+                int state = depth * stateSize;
+                if (isSolved(state)) {
+                    if ((reservation != null)
+                            && !reservation.getAsBoolean()) {
+                        return solutions;
+                    }
+                    solutions++;
+                    if (action != null) {
+                        action.accept(createSolution(state));
+                    }
+                    if (solutions == limit) {
+                        return solutions;
+                    }
+                } else {
+                    int cell = selectCell(state);
+                    branchCells[depth] = cell;
+                    branchNumbers[depth] = getPossibilities(state, cell);
+                    depth++;
+                }
+            }
+
+            // Try the next number of the innermost branch left.
+            consistent = false;
+            while (!consistent) {
+                if (depth == 0) {
+                    return solutions;
+                }
+
+                long branch = branchNumbers[depth - 1];
+                if (branch == 0) {
+                    depth--; // All numbers were tried, backtrack further.
+                } else {
+                    branchNumbers[depth - 1] = branch & (branch - 1);
+                    int state = depth * stateSize;
+                    if (state + stateSize > states.length) {
+                        states = Arrays.copyOf(states, 2 * states.length);
+                    }
+                    System.arraycopy(states, state - stateSize, states,
+                            state, stateSize);
+
+                    // The parent state was saturated, only new changes count.
+                    uncheckedUnits = 0;
+                    uncheckedIntersections = 0;
+                    consistent = place(state, branchCells[depth - 1],
+                            Long.numberOfTrailingZeros(branch) + 1)
+                            && propagate(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the possibilities and set cells of a board into the state of the
+     * root.
+     *
+     * @param board The board to load.
+     * @return {@code false} if a number is set twice in a unit.
+     */
+    private boolean load(Board board) {
+        Arrays.fill(states, 0, stateSize, 0);
+        int[] lastCellSet = board.getLastCellSet();
+        if (lastCellSet != null) {
+            states[last] = lastCellSet[0] * numbers + lastCellSet[1];
+        }
+        Structure struct = Structure.ROW;
+        for (int row = 0; row < numbers; row++) {
+            for (int col = 0; col < numbers; col++) {
+                long bit = 1L << col;
+                int number = board.getCell(struct, row, col);
+                if (number != Board.UNSET_CELL) {
+                    states[placed + numbers * (number - 1) + row] |= bit;
+                } else {
+                    for (long bits = board.getPossibilityMask(struct, row,
+                            col); bits != 0; bits &= bits - 1) {
+                        states[numbers * Long.numberOfTrailingZeros(bits)
+                                + row] |= bit;
+                    }
+                    states[unset + row] |= bit;
+                }
+            }
+        }
+
+        // The peers of the set cells can not contain their numbers.
+        for (int plane = 0; plane < placed; plane += numbers) {
+            for (int row = 0; row < numbers; row++) {
+                for (long bits = states[placed + plane + row]; bits != 0;
+                        bits &= bits - 1) {
+                    long column = bits & -bits;
+                    if (removePeers(placed + plane, row, column, column)
+                            != 0) {
+                        return false;
+                    }
+                    removePeers(plane, row, column, 0);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the peers of a cell from a plane.
+     *
+     * @param plane The position of the plane in {@link #states}.
+     * @param row The row of the cell.
+     * @param column The column of the cell as bit.
+     * @param rowKept The bits kept in the row of the cell.
+     * @return The amount of peers removed from the plane.
+     */
+    private int removePeers(int plane, int row, long column, long rowKept) {
+        int band = row - row % boxRows;
+        long stack = stacks[Long.numberOfTrailingZeros(column) / boxCols];
+        int removed = Long.bitCount(states[plane + row] & ~rowKept);
+        states[plane + row] &= rowKept;
+        for (int other = 0; other < numbers; other++) {
+            if (other != row) {
+                long mask = ((other >= band) && (other < band + boxRows))
+                        ? (stack | column) : column;
+                removed += Long.bitCount(states[plane + other] & mask);
+                states[plane + other] &= ~mask;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Sets a cell to a number, which removes the cell from all planes of
+     * possible positions and the number from the peers of the cell.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param cell The cell to set.
+     * @param number The number to set the cell to.
+     * @return {@code false} if the number is not possible in the cell.
+     */
+    private boolean place(int state, int cell, int number) {
+        int row = cell / numbers;
+        long bit = 1L << (cell % numbers);
+        int plane = state + numbers * (number - 1);
+        if ((states[plane + row] & bit) == 0) {
+            return false;
+        }
+
+        long changed = 0;
+        for (int other = 0; other < numbers; other++) {
+            int word = state + numbers * other + row;
+            if ((states[word] & bit) != 0) {
+                states[word] &= ~bit;
+                changed |= 1L << other;
+            }
+        }
+
+        // The number itself stays in the cell.
+        eliminations += Long.bitCount(changed) - 1
+                + removePeers(plane, row, bit, 0);
+        uncheckedUnits |= changed;
+        uncheckedIntersections |= changed;
+        states[plane + placed + row] |= bit;
+        states[state + unset + row] &= ~bit;
+        states[state + last] = cell;
+        return true;
+    }
+
+    /**
+     * Applies the rules of the saturators to a state until none of them
+     * changes it anymore. Unset cells without possibilities and numbers
+     * without any position in a unit they are not placed in are detected
+     * whether the rules are applied or not.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return {@code false} if the state turned out to be unsolvable.
+     */
+    private boolean propagate(int state) {
+        while (true) {
+            long start = (enforcedCells != null) ? startPass() : NOT_TIMED;
+            long removed = eliminations;
+            SaturationResult result = placeSingles(state);
+            if (enforcedCells != null) {
+                enforcedCells.count(result != SaturationResult.UNCHANGED,
+                        eliminations - removed, endPass(start));
+            }
+            if (result == SaturationResult.UNSOLVABLE) {
+                return false;
+            } else if (result == SaturationResult.CHANGED) {
+                continue;
+            }
+
+            start = (enforcedNumbers != null) ? startPass() : NOT_TIMED;
+            removed = eliminations;
+            result = placeHiddenSingles(state);
+            if (enforcedNumbers != null) {
+                enforcedNumbers.count(result != SaturationResult.UNCHANGED,
+                        eliminations - removed, endPass(start));
+            }
+            if (result == SaturationResult.UNSOLVABLE) {
+                return false;
+            } else if (result == SaturationResult.CHANGED) {
+                continue;
+            }
+
+            if (enforcedIntersections == null) {
+                return true;
+            }
+            start = startPass();
+            removed = eliminations;
+            boolean modified = removeIntersections(state);
+            enforcedIntersections.count(modified, eliminations - removed,
+                    endPass(start));
+            if (!modified) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Starts a pass of a rule, which is timed if it belongs to the sample.
+     *
+     * @return The time the pass started in nanoseconds, or
+     *         {@link #NOT_TIMED} if it is not timed.
+     */
+    private long startPass() {
+        return (passes++ % SAMPLE_INTERVAL == 0) ? System.nanoTime()
+                : NOT_TIMED;
+    }
+
+    /**
+     * Ends a pass of a rule.
+     *
+     * @param start The value returned by {@link #startPass()} for the pass.
+     * @return The time of the pass in nanoseconds, or a negative value if it
+     *         is not timed.
+     */
+    private static long endPass(long start) {
+        return (start == NOT_TIMED) ? -1 : Math.max(System.nanoTime() - start,
+                0);
+    }
+
+    /**
+     * Adds up the planes row by row to find the unset cells with one or no
+     * possibility, and sets the ones with a single possibility if the rule of
+     * {@link EnforcedCell} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return Whether the state was changed or turned out to be unsolvable.
+     */
+    private SaturationResult placeSingles(int state) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        for (int row = 0; row < numbers; row++) {
+            long once = 0;
+            long twice = 0;
+            for (int word = state + row; word < state + placed;
+                    word += numbers) {
+                twice |= once & states[word];
+                once |= states[word];
+            }
+            if ((states[state + unset + row] & ~once) != 0) {
+                return SaturationResult.UNSOLVABLE;
+            }
+
+            long singles = once & ~twice;
+            if ((enforcedCells == null) || (singles == 0)) {
+                continue;
+            }
+            result = SaturationResult.CHANGED;
+
+            /*
+             * Setting one of the cells may remove the number from another
+             * one, which then has no possibility left and fails to be set.
+             */
+            for (int number = 1; number <= numbers; number++) {
+                long cells = singles
+                        & states[state + numbers * (number - 1) + row];
+                for (long bits = cells; bits != 0; bits &= bits - 1) {
+                    if (!place(state, row * numbers
+                            + Long.numberOfTrailingZeros(bits), number)) {
+                        return SaturationResult.UNSOLVABLE;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks the units of the changed numbers for numbers without any
+     * position, and sets the numbers with a single position in a unit if the
+     * rule of {@link EnforcedNumber} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return Whether the state was changed or turned out to be unsolvable.
+     */
+    private SaturationResult placeHiddenSingles(int state) {
+        SaturationResult result = SaturationResult.UNCHANGED;
+        long unchecked = uncheckedUnits;
+        uncheckedUnits = 0;
+        for (long bits = unchecked; bits != 0; bits &= bits - 1) {
+            int number = Long.numberOfTrailingZeros(bits) + 1;
+            if (!checkRows(state, number) || !checkColumns(state, number)
+                    || !checkBoxes(state, number)) {
+                return SaturationResult.UNSOLVABLE;
+            }
+        }
+
+        // Setting a cell marks the numbers it changed as unchecked.
+        if (uncheckedUnits != 0) {
+            result = SaturationResult.CHANGED;
+        }
+        return result;
+    }
+
+    /**
+     * Checks the rows for positions of a number, setting the ones with a
+     * single position if the rule of {@link EnforcedNumber} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param number The number to check.
+     * @return {@code false} if a row has no position for the number and it
+     *         is not placed in it.
+     */
+    private boolean checkRows(int state, int number) {
+        int plane = state + numbers * (number - 1);
+        for (int row = 0; row < numbers; row++) {
+            long positions = states[plane + row];
+            if (positions == 0) {
+                if (states[plane + placed + row] == 0) {
+                    return false;
+                }
+            } else if ((enforcedNumbers != null)
+                    && ((positions & (positions - 1)) == 0)) {
+                place(state, row * numbers
+                        + Long.numberOfTrailingZeros(positions), number);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the columns for positions of a number by adding up the rows
+     * bitwise, setting the ones with a single position if the rule of
+     * {@link EnforcedNumber} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param number The number to check.
+     * @return {@code false} if a column has no position for the number and
+     *         it is not placed in it.
+     */
+    private boolean checkColumns(int state, int number) {
+        int plane = state + numbers * (number - 1);
+        long once = 0;
+        long twice = 0;
+        long placedColumns = 0;
+        for (int row = 0; row < numbers; row++) {
+            twice |= once & states[plane + row];
+            once |= states[plane + row];
+            placedColumns |= states[plane + placed + row];
+        }
+        if ((~(once | placedColumns) & columns) != 0) {
+            return false;
+        }
+        if (enforcedNumbers == null) {
+            return true;
+        }
+
+        // Setting a cell may remove the single position of a later column.
+        for (long singles = once & ~twice; singles != 0;
+                singles &= singles - 1) {
+            long column = singles & -singles;
+            for (int row = 0; row < numbers; row++) {
+                if ((states[plane + row] & column) != 0) {
+                    place(state, row * numbers
+                            + Long.numberOfTrailingZeros(column), number);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the boxes for positions of a number by adding up the rows of
+     * every band of boxes bitwise, setting the ones with a single position if
+     * the rule of {@link EnforcedNumber} is applied.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param number The number to check.
+     * @return {@code false} if a box has no position for the number and it
+     *         is not placed in it.
+     */
+    private boolean checkBoxes(int state, int number) {
+        int plane = state + numbers * (number - 1);
+        for (int band = 0; band < numbers; band += boxRows) {
+            long once = 0;
+            long twice = 0;
+            long placedColumns = 0;
+            for (int row = band; row < band + boxRows; row++) {
+                twice |= once & states[plane + row];
+                once |= states[plane + row];
+                placedColumns |= states[plane + placed + row];
+            }
+
+            for (long stack : stacks) {
+                long positions = once & stack;
+                if (positions == 0) {
+                    if ((placedColumns & stack) == 0) {
+                        return false;
+                    }
+                } else if ((enforcedNumbers != null) && ((twice & stack) == 0)
+                        && ((positions & (positions - 1)) == 0)) {
+                    for (int row = band; row < band + boxRows; row++) {
+                        if ((states[plane + row] & positions) != 0) {
+                            place(state, row * numbers
+                                    + Long.numberOfTrailingZeros(positions),
+                                    number);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every changed number which can only be placed in one segment
+     * of a box, row or column from the rest of the crossing structure.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return {@code true} if a possibility was removed.
+     */
+    private boolean removeIntersections(int state) {
+        long unchecked = uncheckedIntersections;
+        uncheckedIntersections = 0;
+        long changed = 0;
+        for (long bits = unchecked; bits != 0; bits &= bits - 1) {
+            int number = Long.numberOfTrailingZeros(bits);
+            int plane = state + numbers * number;
+            int before = countPositions(plane);
+            if (removePlaneIntersections(plane)) {
+                eliminations += before - countPositions(plane);
+                changed |= 1L << number;
+            }
+        }
+        uncheckedUnits |= changed;
+        uncheckedIntersections |= changed;
+        return changed != 0;
+    }
+
+    /**
+     * Counts the positions of a plane.
+     *
+     * @param plane The position of the plane in {@link #states}.
+     * @return The amount of possible positions of the number.
+     */
+    private int countPositions(int plane) {
+        int amount = 0;
+        for (int row = 0; row < numbers; row++) {
+            amount += Long.bitCount(states[plane + row]);
+        }
+        return amount;
+    }
+
+    /**
+     * Removes the positions of a plane which lie outside of the only segment
+     * of a box, row or column containing positions of its structure.
+     *
+     * @param plane The position of the plane in {@link #states}.
+     * @return {@code true} if a position was removed.
+     */
+    private boolean removePlaneIntersections(int plane) {
+        boolean changed = false;
+        for (int band = 0; band < numbers; band += boxRows) {
+            int end = band + boxRows;
+            for (long stack : stacks) {
+
+                // Count the rows of the box with positions.
+                int rows = 0;
+                for (int row = band; row < end; row++) {
+                    if ((states[plane + row] & stack) != 0) {
+                        rows++;
+                    }
+                }
+
+                /*
+                 * If the number is missing in the rest of a row, it is
+                 * removed from the rest of the box (claiming), and the other
+                 * way round (pointing).
+                 */
+                for (int row = band; (row < end) && (rows > 0); row++) {
+                    long positions = states[plane + row];
+                    if ((positions & stack) == 0) {
+                        continue;
+                    }
+                    if (((positions & ~stack) == 0) && (rows > 1)) {
+                        for (int other = band; other < end; other++) {
+                            if (other != row) {
+                                states[plane + other] &= ~stack;
+                            }
+                        }
+                        changed = true;
+                        break;
+                    } else if (((positions & ~stack) != 0) && (rows == 1)) {
+                        states[plane + row] = positions & stack;
+                        changed = true;
+                    }
+                }
+
+                // The same for the columns, adding up the rows bitwise.
+                long inBox = 0;
+                long outside = 0;
+                for (int row = 0; row < numbers; row++) {
+                    if ((row >= band) && (row < end)) {
+                        inBox |= states[plane + row] & stack;
+                    } else {
+                        outside |= states[plane + row] & stack;
+                    }
+                }
+                for (long bits = inBox; bits != 0; bits &= bits - 1) {
+                    long column = bits & -bits;
+                    if (((outside & column) == 0) && (inBox != column)) {
+                        for (int row = band; row < end; row++) {
+                            states[plane + row] &= ~stack | column;
+                        }
+                        changed = true;
+                        break;
+                    } else if (((outside & column) != 0)
+                            && (inBox == column)) {
+                        for (int row = 0; row < numbers; row++) {
+                            if ((row < band) || (row >= end)) {
+                                states[plane + row] &= ~column;
+                            }
+                        }
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Checks whether a state has no unset cells left.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return {@code true} if the state is solved.
+     */
+    private boolean isSolved(int state) {
+        for (int row = 0; row < numbers; row++) {
+            if (states[state + unset + row] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chooses the unset cell with the fewest possibilities, and the first one
+     * in row-major order of those, just like {@link MinRemainingValues}.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @return The chosen cell.
+     */
+    private int selectCell(int state) {
+        int chosen = -1;
+        int fewest = numbers + 1;
+        for (int row = 0; (row < numbers) && (fewest > 1); row++) {
+            long unsetCells = states[state + unset + row];
+            if (unsetCells == 0) {
+                continue;
+            }
+
+            // Add up the planes bitwise to count the possibilities of the row.
+            Arrays.fill(counts, 0);
+            for (int word = state + row; word < state + placed;
+                    word += numbers) {
+                long carry = states[word];
+                for (int bit = 0; (bit < counts.length) && (carry != 0);
+                        bit++) {
+                    long sum = counts[bit] ^ carry;
+                    carry &= counts[bit];
+                    counts[bit] = sum;
+                }
+            }
+
+            for (int amount = 1; amount < fewest; amount++) {
+                long cells = unsetCells;
+                for (int bit = 0; bit < counts.length; bit++) {
+                    cells &= ((amount & (1 << bit)) != 0) ? counts[bit]
+                            : ~counts[bit];
+                }
+                if (cells != 0) {
+                    chosen = row * numbers + Long.numberOfTrailingZeros(cells);
+                    fewest = amount;
+                    break;
+                }
+            }
+        }
+        if (chosen < 0) {
+            throw new IllegalStateException("No cell with possibilities left.");
+        }
+        return chosen;
+    }
+
+    /**
+     * Gets the possibilities of a cell.
+     *
+     * @param state The position of the state in {@link #states}.
+     * @param cell The cell.
+     * @return The possibilities as bit mask, with the bit {@code n - 1} set
+     *         if the number {@code n} is possible.
+     */
+    private long getPossibilities(int state, int cell) {
+        int row = cell / numbers;
+        long bit = 1L << (cell % numbers);
+        long possibilities = 0;
+        for (int number = 0; number < numbers; number++) {
+            if ((states[state + numbers * number + row] & bit) != 0) {
+                possibilities |= 1L << number;
+            }
+        }
+        return possibilities;
+    }
+
+    /**
+     * Creates the board of a solved state.
+     *
+     * @param state The position of the solved state in {@link #states}.
+     * @return The solved board.
+     */
+    private Board createSolution(int state) {
+        int[] cells = new int[numbers * numbers];
+        for (int number = 1; number <= numbers; number++) {
+            int plane = state + placed + numbers * (number - 1);
+            for (int row = 0; row < numbers; row++) {
+                for (long bits = states[plane + row]; bits != 0;
+                        bits &= bits - 1) {
+                    cells[row * numbers + Long.numberOfTrailingZeros(bits)]
+                            = number;
+                }
+            }
+        }
+        return BitMaskBoard.ofSolution(boxRows, boxCols, cells,
+                (int) states[state + last]);
+    }
+
+}
@@ -0,0 +1,67 @@
+package sudoku.solver;
+
+/**
+ * A RuleCounter counts the applications of the rule of a saturator by a
+ * search which applies the rule itself instead of calling the saturator, so
+ * that the statistics of the saturator describe the search nevertheless.
+ * <p>
+ * The counts are kept in plain fields while searching and added to the
+ * statistics at once by {@link #flush()}, so a counter must not be used by
+ * multiple threads at the same time.
+ */
+final class RuleCounter {
+
+    private final SaturatorStatistics statistics;
+    private long calls;
+    private long modifyingCalls;
+    private long eliminations;
+    private long timedCalls;
+    private long timedNanos;
+
+    /**
+     * Creates a new counter for the statistics of a saturator.
+     *
+     * @param statistics The statistics the counts are added to.
+     */
+    RuleCounter(SaturatorStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Counts an application of the rule to the whole board.
+     *
+     * @param modified Whether the application changed the board.
+     * @param eliminationCount The amount of possibilities removed by the
+     *        application, including the ones removed by setting cells.
+     * @param nanos The time of the application in nanoseconds, or a negative
+     *        value if it was not measured.
+     */
+    void count(boolean modified, long eliminationCount, long nanos) {
+        calls++;
+        if (modified) {
+            modifyingCalls++;
+        }
+        eliminations += eliminationCount;
+        if (nanos >= 0) {
+            timedCalls++;
+            timedNanos += nanos;
+        }
+    }
+
+    /**
+     * Adds the counts to the statistics of the saturator and starts counting
+     * from {@code 0} again.
+     */
+    void flush() {
+        statistics.record(calls, modifyingCalls, eliminations);
+        if (timedCalls > 0) {
+            statistics.recordTime(timedCalls, timedNanos);
+        }
+        calls = 0;
+        modifyingCalls = 0;
+        eliminations = 0;
+        timedCalls = 0;
+        timedNanos = 0;
+    }
+
+}
@@ -0,0 +1,65 @@
+package sudoku.solver;
+
+/**
+ * The outcome of applying a solution strategy, which is returned by a
+ * {@link SignallingSaturator} instead of throwing an
+ * {@link UnsolvableSudokuException} inside of the solvers. Dead branches of a
+ * search are very common, so they should not pay for creating an exception.
+ * <p>
+ * The constants are ordered by their precedence when results are combined.
+ */
+public enum SaturationResult {
+
+    /**
+     * The board was not changed.
+     */
+    UNCHANGED,
+
+    /**
+     * The board was changed and may still be solvable.
+     */
+    CHANGED,
+
+    /**
+     * The board turned out to be unsolvable. It may have been changed
+     * partially before this was noticed.
+     */
+    UNSOLVABLE;
+
+    /**
+     * Gets the result of a strategy which did not find a contradiction.
+     *
+     * @param changed Whether the board was changed.
+     * @return {@link #CHANGED} or {@link #UNCHANGED}.
+     */
+    static SaturationResult of(boolean changed) {
+        return changed ? CHANGED : UNCHANGED;
+    }
+
+    /**
+     * Combines this result with the result of further changes of the same
+     * board. The board is unsolvable if one of them is, and it was changed if
+     * one of them changed it.
+     *
+     * @param other The result of the further changes.
+     * @return The combined result.
+     */
+    SaturationResult combine(SaturationResult other) {
+        return (other.ordinal() > ordinal()) ? other : this;
+    }
+
+    /**
+     * Converts this result to the one of
+     * {@link Saturator#saturate(Board)}.
+     *
+     * @return {@code true} if the board was changed.
+     * @throws UnsolvableSudokuException The board is unsolvable.
+     */
+    boolean toModified() throws UnsolvableSudokuException {
+        if (this == UNSOLVABLE) {
+            throw new UnsolvableSudokuException();
+        }
+        return this == CHANGED;
+    }
+
+}
@@ -0,0 +1,381 @@
+package sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A SaturatorScheduler applies the saturators of a solver to a board, the
+ * cheapest ones first. The removed possibilities of every call are counted
+ * and the time of the calls is measured during every
+ * {@value #SAMPLE_INTERVAL}th saturation. The saturators are ordered by their
+ * average time per call again and again while the solver works on a sudoku.
+ * <p>
+ * Whenever a saturator modifies the board, the cheaper saturators are given
+ * the chance to process the change first. So the expensive saturators only
+ * run when all cheaper ones are saturated and the board would be branched
+ * otherwise. This does not change the resulting board, as every order of the
+ * saturators leads to the same saturated board as long as it is solvable.
+ * <p>
+ * The scheduler may be used by multiple threads at the same time.
+ */
+final class SaturatorScheduler {
+
+    /**
+     * The amount of saturations after which the saturators are ordered again.
+     */
+    private static final int RESCHEDULE_INTERVAL = 64;
+
+    /**
+     * Only the calls of every {@value}th saturation are timed, as reading the
+     * clock may take longer than a call of a cheap saturator.
+     */
+    private static final int SAMPLE_INTERVAL = 8;
+
+    /**
+     * Compares saturators by their average time per call. Saturators which
+     * were not called yet have no costs, so they are measured first.
+     */
+    private static final Comparator<Entry> BY_COST = Comparator.comparingDouble(
+            entry -> entry.statistics.getNanosPerCall());
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final List<SaturatorStatistics> statistics
+            = new ArrayList<SaturatorStatistics>();
+    private final AtomicLong saturations = new AtomicLong();
+
+    /**
+     * The registered saturators ordered from the cheapest to the most
+     * expensive one, either all of them or only the incremental ones or only
+     * the others. Each array is replaced as a whole when reordering.
+     */
+    private volatile Entry[] order = new Entry[0];
+    private volatile Entry[] incrementalOrder = new Entry[0];
+    private volatile Entry[] sweepingOrder = new Entry[0];
+
+    private int incrementalCount = 0;
+
+    /**
+     * Adds a saturator behind all saturators added so far.
+     *
+     * @param saturator The saturator to add.
+     */
+    synchronized void add(Saturator saturator) {
+        SaturatorStatistics stats = new SaturatorStatistics(saturator);
+        int level = (saturator instanceof IncrementalSaturator)
+                ? incrementalCount++ : PropagationQueue.EMPTY;
+        entries.add(new Entry(saturator, stats, level));
+        statistics.add(stats);
+        reschedule();
+    }
+
+    /**
+     * Gets the statistics of all saturators in the order they were added.
+     *
+     * @return The unmodifiable list of statistics.
+     */
+    List<SaturatorStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Resets the statistics of all saturators and restores the order they
+     * were added in, so that the order adapts to a new sudoku.
+     */
+    synchronized void reset() {
+        for (SaturatorStatistics stats : statistics) {
+            stats.reset();
+        }
+        saturations.set(0);
+        reschedule();
+    }
+
+    /**
+     * Creates a queue with one level for every incremental saturator, which
+     * can be passed to {@link #saturateIncrementally(Board, PropagationQueue)}.
+     *
+     * @param geometry The geometry of the boards.
+     * @return The new empty queue.
+     */
+    synchronized PropagationQueue createQueue(Geometry geometry) {
+        boolean[] cellLevels = new boolean[incrementalCount];
+        boolean[] unitLevels = new boolean[incrementalCount];
+        for (Entry entry : entries) {
+            if (entry.level != PropagationQueue.EMPTY) {
+                IncrementalSaturator saturator
+                        = (IncrementalSaturator) entry.saturator;
+                cellLevels[entry.level] = saturator.dependsOnCells();
+                unitLevels[entry.level] = saturator.dependsOnUnits();
+            }
+        }
+        return new PropagationQueue(geometry, cellLevels, unitLevels);
+    }
+
+    /**
+     * Checks whether at least one saturator reads the possible positions of
+     * the numbers, so that boards should maintain them.
+     *
+     * @return {@code true} if a saturator is a {@link PositionMaskReader}.
+     */
+    synchronized boolean readsPositionMasks() {
+        for (Entry entry : entries) {
+            if (entry.saturator instanceof PositionMaskReader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Changes the given board by applying all saturators on the whole board,
+     * until none of them modifies it anymore. After every modification the
+     * saturators are applied from the cheapest one again.
+     *
+     * @param board The board that is directly modified by the saturators.
+     * @return {@code false} if the given board turned out to be unsolvable.
+     */
+    boolean saturate(Board board) {
+        boolean timed = countSaturation();
+        Entry[] current = order;
+
+        int next = 0;
+        while (next < current.length) {
+            SaturationResult result = apply(current[next], board, timed);
+            if (result == SaturationResult.UNSOLVABLE) {
+                return false;
+            } else if (result == SaturationResult.CHANGED) {
+                next = 0;
+            } else {
+                next++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Changes the given board by applying the incremental saturators only to
+     * the cells and units in their levels of the queue, until the queue is
+     * empty. The cheapest saturator with queued cells or units is applied
+     * first. Saturators which can not be applied incrementally are applied to
+     * the whole board whenever the queue was emptied, the cheapest first,
+     * until one of them modifies the board or none of them does.
+     *
+     * @param board The board that is directly modified by the saturators.
+     *        Must add all of its changes to the queue.
+     * @param queue The queue created by {@link #createQueue(Geometry)},
+     *        containing the cells and units that changed since the
+     *        saturators looked at them the last time.
+     * @return {@code false} if the given board turned out to be unsolvable.
+     *         The queue may still contain cells and units in this case.
+     */
+    boolean saturateIncrementally(Board board, PropagationQueue queue) {
+        boolean timed = countSaturation();
+        Entry[] incremental = incrementalOrder;
+        Entry[] sweeping = sweepingOrder;
+
+        boolean saturated = false;
+        while (!saturated) {
+            Entry pending = null;
+            for (int i = 0; (i < incremental.length) && (pending == null);
+                    i++) {
+                if (!queue.isEmpty(incremental[i].level)) {
+                    pending = incremental[i];
+                }
+            }
+
+            if (pending != null) {
+                if (!applyIncrementally(pending, board, queue,
+                        pending == incremental[0], timed)) {
+                    return false;
+                }
+            } else {
+                saturated = true; // Assume that no further changes can be done.
+                for (int i = 0; (i < sweeping.length) && saturated; i++) {
+                    SaturationResult result = apply(sweeping[i], board, timed);
+                    if (result == SaturationResult.UNSOLVABLE) {
+                        return false;
+                    } else if (result == SaturationResult.CHANGED) {
+                        saturated = false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies a saturator to the whole board and records the call.
+     *
+     * @param entry The saturator with its statistics.
+     * @param board The board that is directly modified by the saturator.
+     * @param timed Whether the time of the call should be measured.
+     * @return Whether the board was modified or turned out to be unsolvable.
+     */
+    private SaturationResult apply(Entry entry, Board board, boolean timed) {
+        long eliminations = getEliminationCount(board);
+        long start = timed ? System.nanoTime() : 0;
+        SaturationResult result = saturateBoard(entry.saturator, board);
+        if (timed) {
+            entry.statistics.recordTime(1, System.nanoTime() - start);
+        }
+        entry.statistics.record(1,
+                (result == SaturationResult.UNCHANGED) ? 0 : 1,
+                getEliminationCount(board) - eliminations);
+        return result;
+    }
+
+    /**
+     * Applies an incremental saturator to the queued cells and units of its
+     * level, the cells first. Unless it is the cheapest saturator, it stops
+     * after the first modification so that the cheaper saturators can
+     * process it. All calls are recorded together.
+     *
+     * @param entry The incremental saturator with its statistics.
+     * @param board The board that is directly modified by the saturator.
+     * @param queue The queue containing the level of the saturator.
+     * @param cheapest Whether there is no cheaper incremental saturator.
+     * @param timed Whether the time of the calls should be measured.
+     * @return {@code false} if the given board turned out to be unsolvable.
+     */
+    private boolean applyIncrementally(Entry entry, Board board,
+            PropagationQueue queue, boolean cheapest, boolean timed) {
+        IncrementalSaturator saturator = (IncrementalSaturator) entry.saturator;
+        long eliminations = getEliminationCount(board);
+        long start = timed ? System.nanoTime() : 0;
+        long calls = 0;
+        long modifyingCalls = 0;
+        SaturationResult result = SaturationResult.UNCHANGED;
+
+        while (!queue.isEmpty(entry.level)
+                && (cheapest || (modifyingCalls == 0))
+                && (result != SaturationResult.UNSOLVABLE)) {
+            int cell = queue.pollCell(entry.level);
+            if (cell != PropagationQueue.EMPTY) {
+                result = saturator.saturateCell(board, cell);
+            } else {
+                result = saturator.saturateUnit(board,
+                        queue.pollUnit(entry.level));
+            }
+
+            calls++;
+            if (result != SaturationResult.UNCHANGED) {
+                modifyingCalls++;
+            }
+        }
+
+        if (timed) {
+            entry.statistics.recordTime(calls, System.nanoTime() - start);
+        }
+        entry.statistics.record(calls, modifyingCalls,
+                getEliminationCount(board) - eliminations);
+        return result != SaturationResult.UNSOLVABLE;
+    }
+
+    /**
+     * Applies a saturator to the whole board. Saturators of this package
+     * report an unsolvable board by their result, the exception of other
+     * saturators is converted to it.
+     *
+     * @param saturator The saturator.
+     * @param board The board that is directly modified by the saturator.
+     * @return Whether the board was modified or turned out to be unsolvable.
+     */
+    private static SaturationResult saturateBoard(Saturator saturator,
+            Board board) {
+        if (saturator instanceof SignallingSaturator) {
+            return ((SignallingSaturator) saturator).saturateBoard(board);
+        }
+        try {
+            return SaturationResult.of(saturator.saturate(board));
+        } catch (UnsolvableSudokuException e) {
+            return SaturationResult.UNSOLVABLE;
+        }
+    }
+
+    /**
+     * Counts a saturation and orders the saturators again after every
+     * {@link #RESCHEDULE_INTERVAL} saturations.
+     *
+     * @return {@code true} if the calls of this saturation should be timed.
+     */
+    private boolean countSaturation() {
+        long count = saturations.getAndIncrement();
+        if ((count > 0) && (count % RESCHEDULE_INTERVAL == 0)) {
+            synchronized (this) {
+                reschedule();
+            }
+        }
+        return count % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Orders the saturators by their average time per call. Saturators with
+     * equal costs keep the order they were added in.
+     */
+    private void reschedule() {
+        Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(sorted, BY_COST);
+
+        List<Entry> incremental = new ArrayList<Entry>();
+        List<Entry> sweeping = new ArrayList<Entry>();
+        for (Entry entry : sorted) {
+            if (entry.level == PropagationQueue.EMPTY) {
+                sweeping.add(entry);
+            } else {
+                incremental.add(entry);
+            }
+        }
+
+        incrementalOrder = incremental.toArray(new Entry[incremental.size()]);
+        sweepingOrder = sweeping.toArray(new Entry[sweeping.size()]);
+        order = sorted;
+    }
+
+    /**
+     * Gets the amount of removed possibilities of a board.
+     *
+     * @param board The board.
+     * @return The amount of removed possibilities, or {@code 0} if the board
+     *         does not count them.
+     */
+    private static long getEliminationCount(Board board) {
+        if (board instanceof AbstractBoard) {
+            return ((AbstractBoard) board).getEliminationCount();
+        }
+        return 0;
+    }
+
+    /**
+     * A registered saturator together with its statistics and its level in
+     * the propagation queues.
+     */
+    private static final class Entry {
+
+        private final Saturator saturator;
+        private final SaturatorStatistics statistics;
+
+        /**
+         * The level of the saturator in the propagation queues, or
+         * {@link PropagationQueue#EMPTY} if it is not incremental.
+         */
+        private final int level;
+
+        /**
+         * Creates a new entry.
+         *
+         * @param saturator The saturator.
+         * @param statistics The statistics of the saturator.
+         * @param level The level of the saturator in the propagation queues.
+         */
+        Entry(Saturator saturator, SaturatorStatistics statistics, int level) {
+            this.saturator = saturator;
+            this.statistics = statistics;
+            this.level = level;
+        }
+
+    }
+
+}
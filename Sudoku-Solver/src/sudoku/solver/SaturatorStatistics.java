@@ -0,0 +1,157 @@
+package sudoku.solver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a saturator registered at a {@link SudokuBoardSolver},
+ * which describe how expensive and how productive the saturator was.
+ * <p>
+ * A call is either one application to the whole board or, for incremental
+ * saturators, the application to a single cell or unit. To keep the
+ * measurement cheap, only the time of a sample of the calls is measured. The
+ * statistics can be updated by multiple threads at the same time.
+ *
+ * @see SudokuBoardSolver#getSaturatorStatistics()
+ */
+public final class SaturatorStatistics {
+
+    private final Saturator saturator;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder modifyingCalls = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+    private final LongAdder timedCalls = new LongAdder();
+    private final LongAdder timedNanos = new LongAdder();
+
+    /**
+     * Creates empty statistics for a saturator.
+     *
+     * @param saturator The saturator described by the statistics.
+     */
+    SaturatorStatistics(Saturator saturator) {
+        this.saturator = saturator;
+    }
+
+    /**
+     * Gets the saturator described by these statistics.
+     *
+     * @return The saturator.
+     */
+    public Saturator getSaturator() {
+        return saturator;
+    }
+
+    /**
+     * Gets the amount of times the saturator was applied.
+     *
+     * @return The amount of calls.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Gets the amount of times the saturator modified the board.
+     *
+     * @return The amount of calls which modified the board.
+     */
+    public long getModifyingCalls() {
+        return modifyingCalls.sum();
+    }
+
+    /**
+     * Gets the amount of possibilities removed from cells by the saturator,
+     * including the possibilities removed by setting cells. Only the boards of
+     * this package count their removals, so for other boards this is always
+     * {@code 0}.
+     *
+     * @return The amount of removed possibilities.
+     */
+    public long getEliminations() {
+        return eliminations.sum();
+    }
+
+    /**
+     * Gets the total time spent in the saturator, estimated from the time of
+     * the measured calls.
+     *
+     * @return The estimated time in nanoseconds.
+     */
+    public long getNanos() {
+        return Math.round(getNanosPerCall() * getCalls());
+    }
+
+    /**
+     * Gets the average time of the measured calls, which is used as the cost
+     * of the saturator.
+     *
+     * @return The average time in nanoseconds, or {@code 0} if no call was
+     *         measured yet.
+     */
+    public double getNanosPerCall() {
+        long amount = timedCalls.sum();
+        return (amount == 0) ? 0 : (double) timedNanos.sum() / amount;
+    }
+
+    /**
+     * Gets the average amount of possibilities removed per call, which is the
+     * yield of the saturator.
+     *
+     * @return The average amount of removed possibilities, or {@code 0} if
+     *         the saturator was not called yet.
+     */
+    public double getEliminationsPerCall() {
+        long amount = getCalls();
+        return (amount == 0) ? 0 : (double) getEliminations() / amount;
+    }
+
+    /**
+     * Adds the results of a sequence of calls.
+     *
+     * @param callCount The amount of calls.
+     * @param modifyingCallCount The amount of calls which modified the board.
+     * @param eliminationCount The amount of removed possibilities.
+     */
+    void record(long callCount, long modifyingCallCount,
+            long eliminationCount) {
+        calls.add(callCount);
+        modifyingCalls.add(modifyingCallCount);
+        eliminations.add(eliminationCount);
+    }
+
+    /**
+     * Adds the measured time of a sequence of calls, which must also be
+     * passed to {@link #record(long, long, long)}.
+     *
+     * @param callCount The amount of measured calls.
+     * @param nanoCount The time spent in the calls in nanoseconds.
+     */
+    void recordTime(long callCount, long nanoCount) {
+        timedCalls.add(callCount);
+        timedNanos.add(nanoCount);
+    }
+
+    /**
+     * Resets all statistics to {@code 0}.
+     */
+    void reset() {
+        calls.reset();
+        modifyingCalls.reset();
+        eliminations.reset();
+        timedCalls.reset();
+        timedNanos.reset();
+    }
+
+    /**
+     * Returns a summary of the statistics in a single line.
+     *
+     * @return The summary of the statistics.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls (%d modifying), %d eliminations, "
+                + "%.0f ns/call", saturator.getClass().getSimpleName(),
+                getCalls(), getModifyingCalls(), getEliminations(),
+                getNanosPerCall());
+    }
+
+}
@@ -0,0 +1,22 @@
+package sudoku.solver;
+
+/**
+ * A solution strategy which reports an unsolvable board by its result
+ * instead of an exception. Solvers call {@link #saturateBoard(Board)}, while
+ * {@link Saturator#saturate(Board)} keeps throwing for other callers.
+ *
+ * @see SaturationResult
+ */
+public interface SignallingSaturator extends Saturator {
+
+    /**
+     * Applies the strategy to the whole board like
+     * {@link Saturator#saturate(Board)}.
+     *
+     * @param board The Sudoku to solve.
+     * @return Whether the {@code board} was changed or turned out to be
+     *         unsolvable.
+     */
+    SaturationResult saturateBoard(Board board);
+
+}
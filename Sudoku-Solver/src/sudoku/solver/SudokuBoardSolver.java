@@ -1,10 +1,10 @@
 package sudoku.solver;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A SudokuBoardSolver uses the registered saturators and backtracking to solve
@@ -13,16 +13,96 @@ import java.util.List;
 public class SudokuBoardSolver implements SudokuSolver {
 
     /**
-     * The list of all registered solution strategies.
+     * Returned by {@link #nextAlternative(Board, int, int)} if all
+     * alternatives of a branch were returned, and passed to it to get the
+     * first one.
      */
-    private List<Saturator> saturators = new ArrayList<Saturator>();
+    static final int NO_ALTERNATIVE = -1;
+
+    /**
+     * The scheduler applying the registered solution strategies, which also
+     * measures them.
+     */
+    private final SaturatorScheduler scheduler = new SaturatorScheduler();
+
+    /**
+     * The strategy choosing the cell to branch on.
+     */
+    private volatile BranchingStrategy branching = new MinRemainingValues();
+
+    /**
+     * Whether placing a number in a unit is also considered as branch.
+     */
+    private volatile boolean unitBranching = false;
 
     /**
      * {@inheritDoc}
      */
     @Override
     public void addSaturator(Saturator saturator) {
-        saturators.add(saturator);
+        scheduler.add(saturator);
+    }
+
+    /**
+     * Gets the statistics of all registered saturators in the order they were
+     * added. They describe the last call of a method saturating or solving a
+     * sudoku, and are reset when the next one starts.
+     *
+     * @return The unmodifiable list of the statistics of all saturators.
+     */
+    public List<SaturatorStatistics> getSaturatorStatistics() {
+        return scheduler.getStatistics();
+    }
+
+    /**
+     * Sets the strategy which chooses the cell to branch on whenever the
+     * saturators can not modify a board anymore. Without setting one, the
+     * {@link MinRemainingValues} heuristic is used.
+     *
+     * @param strategy The new branching strategy.
+     * @throws IllegalArgumentException If the strategy is {@code null}.
+     */
+    public void setBranchingStrategy(BranchingStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException(
+                    "The branching strategy must not be null.");
+        }
+        branching = strategy;
+    }
+
+    /**
+     * Gets the strategy which chooses the cell to branch on.
+     *
+     * @return The current branching strategy.
+     */
+    public BranchingStrategy getBranchingStrategy() {
+        return branching;
+    }
+
+    /**
+     * Sets whether the solver also considers to branch on the possible
+     * positions of a number in a unit instead of the possible values of a
+     * cell. If a number has fewer possible positions in a row, column or box
+     * than the cell chosen by the branching strategy has possible values, the
+     * number is placed in each of these positions one after another instead.
+     * This can make the search tree a lot narrower, but the solutions may be
+     * found in a different order. By default, only cells are branched on.
+     *
+     * @param enabled {@code true} if units should be considered as well.
+     */
+    public void setUnitBranching(boolean enabled) {
+        unitBranching = enabled;
+    }
+
+    /**
+     * Checks whether the solver also considers to branch on the possible
+     * positions of a number in a unit.
+     *
+     * @return {@code true} if units are considered as well.
+     * @see #setUnitBranching(boolean)
+     */
+    public boolean isUnitBranching() {
+        return unitBranching;
     }
 
     /**
@@ -31,10 +111,9 @@ public class SudokuBoardSolver implements SudokuSolver {
     @Override
     public Board saturate(Board board) {
         Board resultingBoard = board.clone();
+        resetState();
         
-        try {
-            saturateDirect(resultingBoard);
-        } catch (UnsolvableSudokuException e) {
+        if (!saturateDirect(resultingBoard)) {
             return null;
         }
         
@@ -44,24 +123,69 @@ public class SudokuBoardSolver implements SudokuSolver {
     /**
      * Changes the given board by applying all registered saturators 
      * repeatedly on it as long as at least one of the saturators modifies it.
+     * The cheapest saturators are applied first, and the more expensive ones
+     * only if the cheaper ones can not modify the board anymore.
      * 
      * @param board The board that is directly modified by the saturators.
-     * @throws UnsolvableSudokuException The given board is not solvable.
+     * @return {@code false} if the given board turned out to be unsolvable.
      */
-    private void saturateDirect(Board board) throws UnsolvableSudokuException {
-        boolean saturated = false;
-        
-        while (!saturated) {
-            saturated = true; // Assume that no further changes can be done.
-            
-            for (Saturator saturator : saturators) {
-                if (saturator.saturate(board)) {
-                    
-                    // The saturators must also be applied to the changed board.
-                    saturated = false;
-                }
-            }
-        }
+    boolean saturateDirect(Board board) {
+        return scheduler.saturate(board);
+    }
+
+    /**
+     * Changes the given board by applying the registered saturators only to
+     * the cells and units in the queue, until the queue is empty. Every change
+     * of the board adds the affected cells and units to the queue again.
+     * Saturators which can not be applied incrementally are applied to the
+     * whole board whenever the queue was emptied, until none of them modifies
+     * the board anymore. The cheapest saturators are applied first, and the
+     * more expensive ones only if the cheaper ones are saturated.
+     * <p>
+     * Applying the strategies in a different order than
+     * {@link #saturateDirect(Board)} still results in the same board, as long
+     * as the board is solvable.
+     * 
+     * @param board The board that is directly modified by the saturators.
+     *        Must add all of its changes to the queue.
+     * @param queue The queue created by
+     *        {@link #createPropagationQueue(Geometry)}, containing the cells
+     *        and units that changed since they were saturated the last time.
+     * @return {@code false} if the given board turned out to be unsolvable.
+     *         The queue may still contain cells and units in this case.
+     */
+    boolean saturateIncrementally(Board board, PropagationQueue queue) {
+        return scheduler.saturateIncrementally(board, queue);
+    }
+
+    /**
+     * Creates an empty queue which can be passed to
+     * {@link #saturateIncrementally(Board, PropagationQueue)}.
+     *
+     * @param geometry The geometry of the boards to saturate.
+     * @return The new queue.
+     */
+    PropagationQueue createPropagationQueue(Geometry geometry) {
+        return scheduler.createQueue(geometry);
+    }
+
+    /**
+     * Checks whether a registered saturator reads the possible positions of
+     * the numbers in the units, so that boards should maintain them.
+     *
+     * @return {@code true} if the boards should maintain the position masks.
+     */
+    boolean readsPositionMasks() {
+        return scheduler.readsPositionMasks();
+    }
+
+    /**
+     * Resets the statistics of all saturators and everything the branching
+     * strategy learned, so that they only describe the sudoku handled next.
+     */
+    void resetState() {
+        scheduler.reset();
+        branching.reset();
     }
 
     /**
@@ -69,7 +193,10 @@ public class SudokuBoardSolver implements SudokuSolver {
      */
     @Override
     public Board findFirstSolution(Board board) {
-        return solve(board, false).stream().findFirst().orElse(null);
+        List<Board> solutions = new ArrayList<Board>(1);
+        resetState();
+        solve(board, 1, solutions::add);
+        return solutions.isEmpty() ? null : solutions.get(0);
     }
 
     /**
@@ -77,94 +204,281 @@ public class SudokuBoardSolver implements SudokuSolver {
      */
     @Override
     public List<Board> findAllSolutions(Board board) {
-        return solve(board, true);
+        List<Board> solutions = new LinkedList<Board>();
+        resetState();
+        solve(board, Long.MAX_VALUE, solutions::add);
+        return solutions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void findAllSolutions(Board board, Consumer<? super Board> action) {
+        resetState();
+        solve(board, Long.MAX_VALUE, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        }
+        resetState();
+        return (limit == 0) ? 0 : solve(board, limit, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasUniqueSolution(Board board) {
+        return countSolutions(board, 2) == 1;
     }
     
     /**
-     * Generates all boards where one of the possible values is successfully
-     * assigned to the cell with the lowest amount of possible values. 
-     * These boards can be used as candidates for further backtracking steps.
+     * Generates all boards where one of the alternatives of the chosen branch
+     * is successfully assigned. These boards can be used as candidates for
+     * further backtracking steps.
      * 
      * @param board The board all other candidates are based on. Will not be
      *        changed.
-     * @return A list of all candidates, each one with a different value 
-     *         assigned to the cell with the minimum amount of possibilities.
+     * @return A list of all candidates, each one with a different alternative
+     *         of the branch assigned.
      */
-    private List<Board> generateCandidates(Board board) {
+    List<Board> generateCandidates(Board board) {
         List<Board> candidates = new LinkedList<Board>();
-        Structure struct = Structure.ROW; // The coordinate system used here.
+        int numbers = board.getNumbers();
         
-        // Information about the cell with the lowest amount of possible values.
-        int minPossRow = 0;
-        int minPossCol = 0;
-        int[] minPossValues = new int[board.getNumbers() + 1];
+        // Create a board for each alternative of the chosen branch.
+        int branch = selectBranch(board);
+        int alternative = nextAlternative(board, branch, NO_ALTERNATIVE);
+        while (alternative != NO_ALTERNATIVE) {
+            int index = alternative / numbers;
+            Board candidate = board.clone();
+            if (AbstractBoard.trySetCell(candidate, index,
+                    alternative % numbers + 1)) {
+                candidates.add(candidate);
+            } else {
+                // Skip alternatives leading to an invalid sudoku.
+                recordBranchFailure(board, index);
+            }
+            alternative = nextAlternative(board, branch, alternative);
+        }
+        
+        return candidates;
+    }
+    
+    /**
+     * Chooses what to branch on. This is the cell chosen by the branching
+     * strategy, unless units are considered as well and a number has fewer
+     * possible positions in a unit than the cell has possible values.
+     * <p>
+     * The branch is encoded as the index {@code row * numbers + column} of
+     * the cell, or as {@code cellCount + unit * numbers + number - 1} for a
+     * number in a unit.
+     * 
+     * @param board The board to search in. Must not be solved yet.
+     * @return The encoded branch.
+     * @see #nextAlternative(Board, int, int)
+     */
+    int selectBranch(Board board) {
+        int cell = branching.selectCell(board);
+        int numbers = board.getNumbers();
+        if (!unitBranching || (numbers > Long.SIZE)) {
+            return cell;
+        }
         
-        // Find the cell with the minimum amount of possibilities.
-        for (int structNr = 0; structNr < board.getNumbers(); structNr++) {
-            for (int cellNr = 0; cellNr < board.getNumbers(); cellNr++) {
-                int[] current 
-                        = board.getPossibilities(struct, structNr, cellNr);
-                if ((current != null)
-                        && (current.length < minPossValues.length)) {
-                    minPossRow = structNr;
-                    minPossCol = cellNr;
-                    minPossValues = current;
+        /*
+         * A cell with two possibilities could only be beaten by a number with
+         * a single position, which the EnforcedNumber saturator places before
+         * branching anyway, so the units are only looked at for wider cells.
+         */
+        AbstractBoard counts = AbstractBoard.of(board);
+        Geometry geometry = counts.getGeometry();
+        int branch = cell;
+        int fewest = counts.getPossibilityCount(cell);
+        for (int unit = 0; (unit < geometry.getUnitCount()) && (fewest > 2);
+                unit++) {
+            for (int number = 1; number <= numbers; number++) {
+                
+                // Placed numbers do not have any possible positions.
+                int amount = Long.bitCount(
+                        counts.getPositionMask(unit, number));
+                if ((amount > 0) && (amount < fewest)) {
+                    branch = geometry.getCellCount() + unit * numbers
+                            + number - 1;
+                    fewest = amount;
                 }
             }
         }
+        return branch;
+    }
+    
+    /**
+     * Gets the alternative of a branch following the given one. The
+     * alternatives of a cell are its possible values in ascending order, the
+     * alternatives of a number in a unit are its possible positions in the
+     * unit in ascending order. Exactly one alternative of a branch holds in
+     * every solution of the board.
+     * <p>
+     * An alternative is encoded as {@code index * numbers + number - 1},
+     * where {@code index} is the index {@code row * numbers + column} of the
+     * cell which is set to {@code number}.
+     * 
+     * @param board The board the branch was chosen on, in the same state.
+     * @param branch The branch returned by {@link #selectBranch(Board)}.
+     * @param previous The previous alternative, or {@link #NO_ALTERNATIVE}
+     *        to get the first one.
+     * @return The encoded alternative, or {@link #NO_ALTERNATIVE} if there
+     *         is none after {@code previous}.
+     */
+    static int nextAlternative(Board board, int branch, int previous) {
+        int numbers = board.getNumbers();
+        int cellCount = numbers * numbers;
+        if (branch < cellCount) {
+            int number = board.getNextPossibility(Structure.ROW,
+                    branch / numbers, branch % numbers,
+                    (previous == NO_ALTERNATIVE) ? 0 : previous % numbers + 1);
+            return (number == Board.UNSET_CELL)
+                    ? NO_ALTERNATIVE : branch * numbers + number - 1;
+        }
         
-        // Create a board for each possibility the found cell can be set to.
-        for (int possibility : minPossValues) {
-            Board candidate = board.clone();
-            try {
-                candidate.setCell(struct, minPossRow, minPossCol, possibility);
-            } catch (InvalidSudokuException e) {
-                continue; // Ignore possibilities leading to an invalid sudoku.
-            }
-            candidates.add(candidate);
+        AbstractBoard counts = AbstractBoard.of(board);
+        Geometry geometry = counts.getGeometry();
+        int unit = (branch - cellCount) / numbers;
+        int number = (branch - cellCount) % numbers + 1;
+        int from = 0;
+        if (previous != NO_ALTERNATIVE) {
+            int[] minors = geometry.getMinors(previous / numbers);
+            from = minors[geometry.getStructure(unit).ordinal()] + 1;
         }
         
-        return candidates;
+        // Shifts only use the lowest six bits, so the last position is extra.
+        long positions = (from == Long.SIZE) ? 0
+                : counts.getPositionMask(unit, number) & (-1L << from);
+        if (positions == 0) {
+            return NO_ALTERNATIVE;
+        }
+        int minor = Long.numberOfTrailingZeros(positions);
+        return geometry.getCells(unit)[minor] * numbers + number - 1;
+    }
+
+    /**
+     * Informs the branching strategy that assigning a value to a chosen cell
+     * made a board unsolvable.
+     *
+     * @param board The board the cell was chosen on.
+     * @param index The index {@code row * numbers + column} of the cell.
+     */
+    void recordBranchFailure(Board board, int index) {
+        branching.recordFailure(board, index);
     }
     
     /**
      * Tries to solve a given sudoku using backtracking. The saturators are used
      * to speed up the process of sorting out unsolvable boards.
+     * <p>
+     * Every branch on the current path only keeps the board it was chosen on
+     * and the last alternative tried. The board of an alternative is created
+     * when it is explored, so only one board per depth is held instead of one
+     * per alternative.
      * 
      * @param board The sudoku that should be solved. Will not be changed.
-     * @param requestAllSolutions Whether all solutions are needed or one is
-     *        sufficient.
-     * @return A List containing one or, if requested, all solutions of board.
-     *         For unsolvable sudokus an empty list is returned.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
      */
-    private List<Board> solve(Board board, boolean requestAllSolutions) {
-        List<Board> solutions = new LinkedList<Board>();
-        Deque<Board> candidates = new LinkedList<Board>();
-        candidates.push(board.clone());
+    long solve(Board board, long limit, Consumer<? super Board> action) {
+        long solutions = 0;
+        int numbers = board.getNumbers();
+        Deque<BranchCursor> branches = new LinkedList<BranchCursor>();
+        Board currentBoard = board.clone();
+        boolean solvable = saturateDirect(currentBoard);
         
-        while (!candidates.isEmpty()) {
-            Board currentBoard = candidates.pop();
-            try {
-                saturateDirect(currentBoard);
-            } catch (UnsolvableSudokuException e) {
-                continue; // Current board not solvable, try with next one.
+        while (true) {
+            if (solvable) {
+                if (currentBoard.isSolution()) {
+                    solutions++;
+                    if (action != null) {
+                        action.accept(currentBoard);
+                    }
+                    if (solutions >= limit) {
+                        return solutions;
+                    }
+                } else {
+                    branches.push(new BranchCursor(currentBoard,
+                            selectBranch(currentBoard)));
+                }
             }
             
-            if (currentBoard.isSolution()) {
-                solutions.add(currentBoard);
-                if (!requestAllSolutions) {
+            // Create the board of the next alternative of the innermost branch.
+            solvable = false;
+            while (!solvable) {
+                BranchCursor cursor = branches.peek();
+                if (cursor == null) {
                     return solutions;
                 }
-            } else {
-                List<Board> newCandidates = generateCandidates(currentBoard);
-                Collections.reverse(newCandidates);
-                for (Board newCandidate : newCandidates) {
-                    candidates.push(newCandidate);
+                
+                cursor.alternative = nextAlternative(cursor.board,
+                        cursor.branch, cursor.alternative);
+                if (cursor.alternative == NO_ALTERNATIVE) {
+                    branches.pop(); // All alternatives were tried.
+                    continue;
+                }
+                int index = cursor.alternative / numbers;
+                currentBoard = cursor.board.clone();
+                if (!AbstractBoard.trySetCell(currentBoard, index,
+                        cursor.alternative % numbers + 1)) {
+                    // Skip alternatives leading to an invalid sudoku.
+                    recordBranchFailure(cursor.board, index);
+                } else if (!saturateDirect(currentBoard)) {
+                    recordBranchFailure(cursor.board, index);
+                } else {
+                    solvable = true;
                 }
             }
         }
-        
-        return solutions;
+    }
+
+    /**
+     * A branch on the current path of the search, which creates the boards of
+     * its alternatives one at a time.
+     */
+    private static final class BranchCursor {
+
+        /**
+         * The saturated board the branch was chosen on. It is not changed.
+         */
+        private final Board board;
+
+        /**
+         * The branch returned by {@link SudokuBoardSolver#selectBranch(Board)}.
+         */
+        private final int branch;
+
+        /**
+         * The last alternative tried, or {@link #NO_ALTERNATIVE} before the
+         * first one.
+         */
+        private int alternative = NO_ALTERNATIVE;
+
+        /**
+         * Creates a new cursor before the first alternative of a branch.
+         *
+         * @param board The board the branch was chosen on.
+         * @param branch The branch.
+         */
+        BranchCursor(Board board, int branch) {
+            this.board = board;
+            this.branch = branch;
+        }
+
     }
 
 }
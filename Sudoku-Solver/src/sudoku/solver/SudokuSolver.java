@@ -1,6 +1,7 @@
 package sudoku.solver;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * An interface for solving Sudoku puzzles.
@@ -58,5 +59,81 @@ public interface SudokuSolver {
      * @return A list of all solutions of {@code board}.
      */
     List<Board> findAllSolutions(Board board);
+
+    /**
+     * Finds all solutions for a given Sudoku puzzle like
+     * {@link #findAllSolutions(Board)}, but passes every solution to the given
+     * action as soon as it is found instead of collecting them. Thus, the
+     * memory needed does not depend on the number of solutions. The solutions
+     * are passed in the same order as they are contained in the list returned
+     * by {@link #findAllSolutions(Board)}.
+     * <p>
+     * The default implementation collects the solutions with
+     * {@link #findAllSolutions(Board)} first, so solvers should override it
+     * to pass them on while searching.
+     * 
+     * @param board The Sudoku to find the solutions for. Will not be changed.
+     * @param action The action that is called once for every solution of
+     *        {@code board}.
+     */
+    default void findAllSolutions(Board board,
+            Consumer<? super Board> action) {
+        findAllSolutions(board).forEach(action);
+    }
+
+    /**
+     * Counts the solutions of a given Sudoku puzzle, but stops as soon as
+     * {@code limit} solutions were found. The solutions are only counted,
+     * so no solved boards are created for them.
+     * <p>
+     * The default implementation counts the solutions passed on by
+     * {@link #findAllSolutions(Board, Consumer)} and stops it as soon as
+     * {@code limit} solutions were counted. Only the counting stops early
+     * though: the solved boards are still created, and the default
+     * {@link #findAllSolutions(Board, Consumer)} collects all of them in a
+     * list before passing on the first one. Solvers should therefore
+     * override this method.
+     * 
+     * @param board The Sudoku to count the solutions of. Will not be changed.
+     * @param limit The maximum amount of solutions to count.
+     * @return The amount of solutions of {@code board} or {@code limit}, if it
+     *         has at least {@code limit} solutions.
+     * @throws IllegalArgumentException If {@code limit} is negative.
+     */
+    default long countSolutions(Board board, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "The limit must not be negative.");
+        } else if (limit == 0) {
+            return 0;
+        }
+
+        long[] solutions = new long[1];
+        try {
+            findAllSolutions(board, solution -> {
+                if (++solutions[0] == limit) {
+                    throw new CountLimitReachedException();
+                }
+            });
+        } catch (CountLimitReachedException e) {
+            // The limit was reached, the other solutions are not needed.
+        }
+        return solutions[0];
+    }
+
+    /**
+     * Checks whether a given Sudoku puzzle has exactly one solution. The
+     * search is stopped as soon as a second solution is found.
+     * <p>
+     * The default implementation counts up to two solutions with
+     * {@link #countSolutions(Board, long)}, so it only stops early if that
+     * method does.
+     * 
+     * @param board The Sudoku to check. Will not be changed.
+     * @return {@code true} if {@code board} has exactly one solution.
+     */
+    default boolean hasUniqueSolution(Board board) {
+        return countSolutions(board, 2) == 1;
+    }
     
 }
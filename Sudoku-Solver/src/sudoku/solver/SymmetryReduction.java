@@ -0,0 +1,806 @@
+package sudoku.solver;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A SymmetryReduction counts and enumerates the solutions of blank and
+ * nearly blank sudokus, most of which only differ by a symmetry of the
+ * sudoku. Three kinds of symmetries are used, as far as they do not move a
+ * set cell:
+ * <ul>
+ * <li>the numbers which are not set anywhere can be exchanged,</li>
+ * <li>the rows of a band without set cells can be permuted, and the bands
+ * without set cells except for the first one can be permuted as
+ * well,</li>
+ * <li>the same holds for the columns of the stacks.</li>
+ * </ul>
+ * These symmetries form a group, which maps every solution to exactly as
+ * many different solutions as the group has elements, its orbit. Of every
+ * orbit, only the solution in a canonical form is searched, the
+ * representative. In the canonical form, the exchangeable numbers appear in
+ * ascending order in the first box. The first column is ascending within
+ * every band that can be permuted, and these bands are ordered by their
+ * first cell of the column. The first row is ordered like that across the
+ * stacks that can be permuted.
+ * <p>
+ * The canonical forms are enumerated by setting the cells of the first box,
+ * column and row in all possible canonical ways, and the rest of each of
+ * these boards is solved by the given solver. The amount of solutions is
+ * the amount of representatives multiplied with the size of the orbits,
+ * and every representative can be expanded to the solutions of its orbit
+ * on demand. For a blank sudoku with 2 by 3 boxes, the orbits have 34560
+ * elements, so only 816 of its 28200960 solutions are searched.
+ * <p>
+ * Blank sudokus with up to 8 numbers and boxes of two rows or two columns are
+ * counted without searching their solutions at all. Such a sudoku has two
+ * stacks, or two bands which are handled the same way. The second stack
+ * holds exactly the numbers missing in the rows of the first one, so the
+ * solutions are counted from the sets of numbers in the rows of the first
+ * stack. These sets only matter up to relabelling the numbers, which fixes
+ * the first band. The 29136487207403520 solutions of a blank sudoku with 2
+ * by 4 boxes are counted like that in less than a second, while its
+ * representatives are still far too many to be enumerated.
+ */
+public class SymmetryReduction {
+
+    /**
+     * The solver solving the canonical boards.
+     */
+    private final SudokuSolver solver;
+
+    /**
+     * Creates a new reduction solving the canonical boards with the given
+     * solver. Its saturators should be registered beforehand.
+     *
+     * @param solver The solver of the canonical boards.
+     * @throws IllegalArgumentException If the solver is {@code null}.
+     */
+    public SymmetryReduction(SudokuSolver solver) {
+        if (solver == null) {
+            throw new IllegalArgumentException(
+                    "The solver must not be null.");
+        }
+        this.solver = solver;
+    }
+
+    /**
+     * Counts all solutions of a sudoku by counting the representatives and
+     * multiplying them with the size of their orbits. Blank sudokus with two
+     * stacks or bands are counted from the rows of the first stack instead.
+     *
+     * @param board The sudoku to count the solutions of. Will not be
+     *        changed.
+     * @return The amount of solutions of the sudoku.
+     */
+    public BigInteger countSolutions(Board board) {
+        if (StackPair.supports(board)) {
+            return new StackPair(board.getNumbers()).countSolutions();
+        }
+
+        Symmetries symmetries = new Symmetries(board);
+        long[] representatives = new long[1];
+        symmetries.forEachCanonicalBoard(canonical -> {
+            representatives[0] += solver.countSolutions(canonical,
+                    Long.MAX_VALUE);
+        });
+        return symmetries.getOrbitSize()
+                .multiply(BigInteger.valueOf(representatives[0]));
+    }
+
+    /**
+     * Gets the amount of solutions every representative stands for.
+     *
+     * @param board The sudoku. Will not be changed.
+     * @return The size of the orbit of every solution of the sudoku.
+     */
+    public BigInteger getOrbitSize(Board board) {
+        return new Symmetries(board).getOrbitSize();
+    }
+
+    /**
+     * Finds the representatives of all solutions of a sudoku and passes them
+     * to the given action as soon as they are found.
+     *
+     * @param board The sudoku to find the representatives for. Will not be
+     *        changed.
+     * @param action The action that is called once for every representative.
+     */
+    public void findRepresentatives(Board board,
+            Consumer<? super Board> action) {
+        new Symmetries(board).forEachCanonicalBoard(
+                canonical -> solver.findAllSolutions(canonical, action));
+    }
+
+    /**
+     * Passes all solutions in the orbit of a representative to the given
+     * action, including the representative itself.
+     *
+     * @param board The sudoku the representative was found for. Will not be
+     *        changed.
+     * @param representative A solution of the sudoku in its canonical form.
+     *        Will not be changed.
+     * @param action The action that is called once for every solution of the
+     *        orbit.
+     */
+    public void expand(Board board, Board representative,
+            Consumer<? super Board> action) {
+        new Symmetries(board).forEachImage(representative, action);
+    }
+
+    /**
+     * Finds all solutions of a sudoku by expanding every representative as
+     * soon as it is found. The solutions of an orbit are passed one after
+     * another, so they are not in the order of any solver.
+     *
+     * @param board The sudoku to find the solutions for. Will not be
+     *        changed.
+     * @param action The action that is called once for every solution.
+     */
+    public void findAllSolutions(Board board,
+            Consumer<? super Board> action) {
+        Symmetries symmetries = new Symmetries(board);
+        symmetries.forEachCanonicalBoard(canonical -> solver.findAllSolutions(
+                canonical,
+                representative -> symmetries.forEachImage(representative,
+                        action)));
+    }
+
+    /**
+     * Computes the factorial of a number.
+     *
+     * @param n The number, which must not be negative.
+     * @return The factorial {@code n!}.
+     */
+    private static BigInteger factorial(int n) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * Computes a binomial coefficient.
+     *
+     * @param n The size of the set, which must not be negative.
+     * @param k The size of the subsets, between {@code 0} and {@code n}.
+     * @return The amount of subsets with {@code k} elements.
+     */
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /**
+     * Rearranges an array to the lexicographically next permutation.
+     *
+     * @param permutation The array to rearrange.
+     * @return {@code false} if the array was the last permutation, in which
+     *         case it is sorted ascending afterwards.
+     */
+    private static boolean nextPermutation(int[] permutation) {
+        int i = permutation.length - 2;
+        while ((i >= 0) && (permutation[i] >= permutation[i + 1])) {
+            i--;
+        }
+        if (i >= 0) {
+            int j = permutation.length - 1;
+            while (permutation[j] <= permutation[i]) {
+                j--;
+            }
+            swap(permutation, i, j);
+        }
+        for (int low = i + 1, high = permutation.length - 1; low < high;
+                low++, high--) {
+            swap(permutation, low, high);
+        }
+        return i >= 0;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param array The array.
+     * @param i The index of the first element.
+     * @param j The index of the second element.
+     */
+    private static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * Gets the identity permutation of a given length.
+     *
+     * @param length The length.
+     * @return The array {@code 0, 1, ..., length - 1}.
+     */
+    private static int[] identity(int length) {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++) {
+            permutation[i] = i;
+        }
+        return permutation;
+    }
+
+    /**
+     * The symmetries of a sudoku which do not move any of its set cells.
+     */
+    private static final class Symmetries {
+
+        private final Board board;
+        private final int numbers;
+        private final int boxRows;
+        private final int boxCols;
+
+        /**
+         * The numbers which are not set anywhere, in ascending order.
+         */
+        private final int[] freeNumbers;
+
+        /**
+         * The rows of every band without set cells except for the first
+         * band.
+         */
+        private final int[][] freeBands;
+
+        /**
+         * The columns of every stack without set cells except for the first
+         * stack.
+         */
+        private final int[][] freeStacks;
+
+        /**
+         * Collects the symmetries of a sudoku.
+         *
+         * @param board The sudoku. Will not be changed.
+         */
+        Symmetries(Board board) {
+            this.board = board;
+            numbers = board.getNumbers();
+            boxRows = board.getBoxRows();
+            boxCols = board.getBoxColumns();
+
+            boolean[] used = new boolean[numbers + 1];
+            boolean[] usedRows = new boolean[numbers];
+            boolean[] usedCols = new boolean[numbers];
+            for (int row = 0; row < numbers; row++) {
+                for (int col = 0; col < numbers; col++) {
+                    int number = board.getCell(Structure.ROW, row, col);
+                    if (number != Board.UNSET_CELL) {
+                        used[number] = true;
+                        usedRows[row] = true;
+                        usedCols[col] = true;
+                    }
+                }
+            }
+
+            List<Integer> free = new ArrayList<Integer>();
+            for (int number = 1; number <= numbers; number++) {
+                if (!used[number]) {
+                    free.add(number);
+                }
+            }
+            freeNumbers = free.stream().mapToInt(Integer::intValue).toArray();
+            freeBands = findFreeBlocks(usedRows, boxRows);
+            freeStacks = findFreeBlocks(usedCols, boxCols);
+        }
+
+        /**
+         * Finds the blocks of consecutive lines without set cells, except
+         * for the first block.
+         *
+         * @param used Whether every line contains a set cell.
+         * @param size The amount of lines of a block.
+         * @return The lines of every block without set cells.
+         */
+        private int[][] findFreeBlocks(boolean[] used, int size) {
+            List<int[]> blocks = new ArrayList<int[]>();
+            for (int first = size; first < numbers; first += size) {
+                boolean free = true;
+                for (int line = first; line < first + size; line++) {
+                    free &= !used[line];
+                }
+                if (free) {
+                    int[] block = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        block[i] = first + i;
+                    }
+                    blocks.add(block);
+                }
+            }
+            return blocks.toArray(new int[blocks.size()][]);
+        }
+
+        /**
+         * Gets the amount of elements of the group of the symmetries, which
+         * is the size of every orbit.
+         *
+         * @return The size of the orbits.
+         */
+        BigInteger getOrbitSize() {
+            return factorial(freeNumbers.length)
+                    .multiply(factorial(boxRows).pow(freeBands.length))
+                    .multiply(factorial(freeBands.length))
+                    .multiply(factorial(boxCols).pow(freeStacks.length))
+                    .multiply(factorial(freeStacks.length));
+        }
+
+        /**
+         * Passes every board, where the exchangeable numbers are placed in
+         * the first box and the first column and row of the permutable
+         * bands and stacks are set in a canonical way, to the given action.
+         * Every solution of the sudoku in its canonical form is a solution
+         * of exactly one of these boards.
+         *
+         * @param action The action called with every canonical board, which
+         *        must not change it.
+         */
+        void forEachCanonicalBoard(Consumer<Board> action) {
+            int[] firstBox = new int[numbers];
+            int count = 0;
+            for (int row = 0; row < boxRows; row++) {
+                for (int col = 0; col < boxCols; col++) {
+                    if (board.getCell(Structure.ROW, row, col)
+                            == Board.UNSET_CELL) {
+                        firstBox[count] = row * numbers + col;
+                        count++;
+                    }
+                }
+            }
+            int[] boxCells = Arrays.copyOf(firstBox, count);
+
+            placeFreeNumbers(board.clone(), boxCells, 0, 0,
+                    withFirstColumn -> placeLines(withFirstColumn,
+                            freeBands, numbers, 0, 0, 0,
+                            withFirstRow -> placeLines(withFirstRow,
+                                    freeStacks, 1, 0, 0, 0, action)));
+        }
+
+        /**
+         * Places the exchangeable numbers in ascending order in the empty
+         * cells of the first box, in every possible way.
+         *
+         * @param current The board with the numbers placed so far.
+         * @param cells The empty cells of the first box.
+         * @param next The index of the next number to place.
+         * @param from The index of the first cell it may be placed in.
+         * @param action The action called with every board where all of
+         *        them are placed.
+         */
+        private void placeFreeNumbers(Board current, int[] cells, int next,
+                int from, Consumer<Board> action) {
+            if (next == freeNumbers.length) {
+                action.accept(current);
+                return;
+            }
+
+            int remaining = freeNumbers.length - next;
+            for (int i = from; i <= cells.length - remaining; i++) {
+                Board candidate = current.clone();
+                if (AbstractBoard.trySetCell(candidate, cells[i],
+                        freeNumbers[next])) {
+                    placeFreeNumbers(candidate, cells, next + 1, i + 1,
+                            action);
+                }
+            }
+        }
+
+        /**
+         * Sets the first cell of every line of the permutable blocks in
+         * every canonical way. The cells are ascending within a block and
+         * the blocks are ordered by their first cell.
+         *
+         * @param current The board with the cells set so far.
+         * @param blocks The permutable bands or stacks.
+         * @param step The difference of the indices of the first cells of
+         *        two neighbouring lines, which is {@code numbers} for rows
+         *        and {@code 1} for columns.
+         * @param block The index of the block containing the next cell.
+         * @param line The index of the line of the next cell in its block.
+         * @param blockStart The value of the first cell of the previous
+         *        block, or {@code 0}.
+         * @param action The action called with every board where all cells
+         *        are set.
+         */
+        private void placeLines(Board current, int[][] blocks, int step,
+                int block, int line, int blockStart,
+                Consumer<Board> action) {
+            if (block == blocks.length) {
+                action.accept(current);
+                return;
+            }
+
+            int index = blocks[block][line] * step;
+            int lowest = (line == 0) ? blockStart + 1
+                    : current.getCell(Structure.ROW, (index - step) / numbers,
+                            (index - step) % numbers) + 1;
+            int row = index / numbers;
+            int col = index % numbers;
+            for (int number = current.getNextPossibility(Structure.ROW, row,
+                    col, lowest - 1); number != Board.UNSET_CELL;
+                    number = current.getNextPossibility(Structure.ROW, row,
+                            col, number)) {
+                Board candidate = current.clone();
+                if (!AbstractBoard.trySetCell(candidate, index, number)) {
+                    continue;
+                }
+                if (line + 1 < blocks[block].length) {
+                    placeLines(candidate, blocks, step, block, line + 1,
+                            blockStart, action);
+                } else {
+                    placeLines(candidate, blocks, step, block + 1, 0,
+                            candidate.getCell(Structure.ROW,
+                                    blocks[block][0] * step / numbers,
+                                    blocks[block][0] * step % numbers),
+                            action);
+                }
+            }
+        }
+
+        /**
+         * Passes every image of a solution under the symmetries to the given
+         * action.
+         *
+         * @param solution The solution. Will not be changed.
+         * @param action The action called with every image.
+         */
+        void forEachImage(Board solution, Consumer<? super Board> action) {
+            int[] values = identity(numbers + 1);
+            int[] freePermutation = identity(freeNumbers.length);
+            do {
+                for (int i = 0; i < freeNumbers.length; i++) {
+                    values[freeNumbers[i]]
+                            = freeNumbers[freePermutation[i]];
+                }
+                forEachLineMapping(freeBands, rows -> forEachLineMapping(
+                        freeStacks, cols -> action.accept(
+                                createImage(solution, values, rows, cols))));
+            } while (nextPermutation(freePermutation));
+        }
+
+        /**
+         * Passes every mapping of lines which permutes the lines within the
+         * given blocks and the blocks among each other to the given action.
+         *
+         * @param blocks The permutable blocks.
+         * @param action The action called with every mapping from every line
+         *        to the line it is taken from. The array is reused.
+         */
+        private void forEachLineMapping(int[][] blocks,
+                Consumer<int[]> action) {
+            int[] mapping = identity(numbers);
+            int[] blockOrder = identity(blocks.length);
+            do {
+                mapBlocks(blocks, blockOrder, 0, mapping, action);
+            } while (nextPermutation(blockOrder));
+        }
+
+        /**
+         * Permutes the lines of the blocks starting at the given one in every
+         * possible way.
+         *
+         * @param blocks The permutable blocks.
+         * @param blockOrder The block every block is taken from.
+         * @param block The index of the next block to permute.
+         * @param mapping The mapping of the lines.
+         * @param action The action called with every complete mapping.
+         */
+        private void mapBlocks(int[][] blocks, int[] blockOrder, int block,
+                int[] mapping, Consumer<int[]> action) {
+            if (block == blocks.length) {
+                action.accept(mapping);
+                return;
+            }
+
+            int[] lines = identity(blocks[block].length);
+            do {
+                for (int i = 0; i < lines.length; i++) {
+                    mapping[blocks[block][i]]
+                            = blocks[blockOrder[block]][lines[i]];
+                }
+                mapBlocks(blocks, blockOrder, block + 1, mapping, action);
+            } while (nextPermutation(lines));
+        }
+
+        /**
+         * Creates the image of a solution under a symmetry.
+         *
+         * @param solution The solution.
+         * @param values The number every number is exchanged with.
+         * @param rows The row every row is taken from.
+         * @param cols The column every column is taken from.
+         * @return The new solved board.
+         */
+        private Board createImage(Board solution, int[] values, int[] rows,
+                int[] cols) {
+            Board image = new BitMaskBoard(boxRows, boxCols);
+            for (int row = 0; row < numbers; row++) {
+                for (int col = 0; col < numbers; col++) {
+                    AbstractBoard.trySetCell(image, row * numbers + col,
+                            values[solution.getCell(Structure.ROW, rows[row],
+                                    cols[col])]);
+                }
+            }
+            return image;
+        }
+
+    }
+
+    /**
+     * Counts the solutions of a blank sudoku with boxes of two rows, which
+     * has two stacks of {@code numbers / 2} columns. Boxes of two columns are
+     * the transposed case, which has the same amount of solutions.
+     * <p>
+     * Every row contains half of the numbers in the first stack and the
+     * other half in the second one, and the two rows of a band contain
+     * complementary halves in each stack. Given these sets of the rows, the
+     * first stack is valid if each of its columns contains every number, and
+     * the same holds for the second stack, whose rows hold the sets of the
+     * other row of their band. Exchanging the rows of a band does not change
+     * the amount of ways to fill a stack, so the amount of solutions is the
+     * sum of the squared amounts of stacks over all choices of the sets.
+     * <p>
+     * The amount of stacks does not change when the numbers are relabelled,
+     * the sets of a band are exchanged or the bands are permuted either. So
+     * the set of the first row is fixed to the smallest numbers, and the set
+     * of the third row only depends on how many of them it contains, at most
+     * half of them when exchanging the halves as well. The first row of every
+     * further band contains the number {@code 1}, and these bands are chosen
+     * in ascending order. Every choice is weighted with the amount of
+     * choices it stands for.
+     */
+    private static final class StackPair {
+
+        private final int numbers;
+        private final int width;
+        private final int allNumbers;
+
+        /**
+         * The sets of numbers of the rows of the first stack, as bit masks
+         * with bit {@code i} standing for the number {@code i + 1}.
+         */
+        private final int[] rowSets;
+
+        /**
+         * The rows containing every number while counting the cycles.
+         */
+        private final int[] rowsOf;
+
+        /**
+         * All sets with {@link #width} numbers containing the number
+         * {@code 1}.
+         */
+        private final int[] halves;
+
+        /**
+         * The indices of the sets in {@link #halves} chosen for the bands
+         * after the second one.
+         */
+        private final int[] chosen;
+
+        /**
+         * Prepares the counting for a blank sudoku.
+         *
+         * @param numbers The amount of numbers of the sudoku, which is even.
+         */
+        StackPair(int numbers) {
+            this.numbers = numbers;
+            width = numbers / 2;
+            allNumbers = (1 << numbers) - 1;
+            rowSets = new int[numbers];
+            rowsOf = new int[numbers];
+            chosen = new int[width];
+
+            List<Integer> sets = new ArrayList<Integer>();
+            for (int set = 1; set <= allNumbers; set += 2) {
+                if (Integer.bitCount(set) == width) {
+                    sets.add(set);
+                }
+            }
+            halves = sets.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Checks whether the solutions of a sudoku can be counted this way,
+         * which is the case if it is blank, has boxes of two rows or columns
+         * and at most 8 numbers, so that the sets of all rows fit into a
+         * word.
+         *
+         * @param board The sudoku.
+         * @return {@code true} if the sudoku can be counted.
+         */
+        static boolean supports(Board board) {
+            int numbers = board.getNumbers();
+            if (((board.getBoxRows() != 2) && (board.getBoxColumns() != 2))
+                    || (numbers > 8)) {
+                return false;
+            }
+            for (int row = 0; row < numbers; row++) {
+                for (int col = 0; col < numbers; col++) {
+                    if (board.getCell(Structure.ROW, row, col)
+                            != Board.UNSET_CELL) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Counts the solutions of the sudoku.
+         *
+         * @return The amount of solutions.
+         */
+        BigInteger countSolutions() {
+            int first = (1 << width) - 1;
+            setBand(0, first);
+            if (width == 1) {
+                return BigInteger.valueOf(binomial(numbers, width));
+            }
+
+            BigInteger sum = BigInteger.ZERO;
+            for (int shared = 0; 2 * shared <= width; shared++) {
+                // The smallest numbers of the first row and of the others.
+                int second = ((1 << shared) - 1)
+                        | (((1 << (width - shared)) - 1) << width);
+                setBand(1, second);
+                long weight = binomial(width, shared);
+                weight *= weight;
+                if (2 * shared != width) {
+                    weight *= 2; // The halves of the first band exchanged.
+                }
+                sum = sum.add(countBands(2, 0).multiply(
+                        BigInteger.valueOf(weight)));
+            }
+            return sum.multiply(BigInteger.valueOf(binomial(numbers, width)))
+                    .shiftLeft(width - 2);
+        }
+
+        /**
+         * Sets the sets of the rows of a band.
+         *
+         * @param band The index of the band.
+         * @param set The set of the first row of the band.
+         */
+        private void setBand(int band, int set) {
+            rowSets[2 * band] = set;
+            rowSets[2 * band + 1] = allNumbers & ~set;
+        }
+
+        /**
+         * Sums the squared amounts of stacks over all sets of the bands
+         * starting at the given one, where the first row contains the number
+         * {@code 1} and the sets are in ascending order.
+         *
+         * @param band The index of the first band to choose the sets for.
+         * @param from The index of the first set in {@link #halves} which
+         *        may be chosen for the band.
+         * @return The weighted sum for the sets of the previous bands.
+         */
+        private BigInteger countBands(int band, int from) {
+            if (band == width) {
+                long stacks = countColumns(width);
+                return BigInteger.valueOf(stacks)
+                        .multiply(BigInteger.valueOf(stacks))
+                        .multiply(countOrders());
+            }
+
+            BigInteger sum = BigInteger.ZERO;
+            for (int i = from; i < halves.length; i++) {
+                chosen[band] = i;
+                setBand(band, halves[i]);
+                sum = sum.add(countBands(band + 1, i));
+            }
+            return sum;
+        }
+
+        /**
+         * Counts the orders of the sets chosen for the bands after the second
+         * one, which all lead to the same amount of stacks.
+         *
+         * @return The amount of different orders of the chosen sets.
+         */
+        private BigInteger countOrders() {
+            BigInteger orders = factorial(width - 2);
+            int run = 1;
+            for (int band = 3; band < width; band++) {
+                run = (chosen[band] == chosen[band - 1]) ? run + 1 : 1;
+                orders = orders.divide(BigInteger.valueOf(run));
+            }
+            return orders;
+        }
+
+        /**
+         * Counts the ways to fill the given amount of columns of the stack,
+         * so that each column contains every number and each row contains the
+         * numbers left in its set.
+         *
+         * @param columns The amount of columns, which is the amount of
+         *        numbers left in every set.
+         * @return The amount of ways to fill the columns.
+         */
+        private long countColumns(int columns) {
+            if (columns == 1) {
+                return 1; // Every number is left in exactly one row.
+            } else if (columns == 2) {
+                return 1L << countCycles();
+            }
+            // The columns are exchangeable, so the first row is ordered.
+            return columns * countColumn(0, 0, columns);
+        }
+
+        /**
+         * Chooses the numbers of the first column left for the rows starting
+         * at the given one in every possible way, and counts the ways to fill
+         * the other columns for each of them. The first row always gets its
+         * smallest number left.
+         *
+         * @param row The next row to choose a number for.
+         * @param used The numbers chosen for the previous rows.
+         * @param columns The amount of columns left including this one.
+         * @return The amount of ways to fill the columns.
+         */
+        private long countColumn(int row, int used, int columns) {
+            if (row == numbers) {
+                return countColumns(columns - 1);
+            }
+
+            long count = 0;
+            int candidates = (row == 0) ? Integer.lowestOneBit(rowSets[row])
+                    : rowSets[row] & ~used;
+            for (int left = candidates; left != 0; left &= left - 1) {
+                int number = left & -left;
+                rowSets[row] ^= number;
+                count += countColumn(row + 1, used | number, columns);
+                rowSets[row] ^= number;
+            }
+            return count;
+        }
+
+        /**
+         * Counts the cycles formed by the rows and numbers if every set
+         * contains two numbers, where each row is connected to its numbers.
+         * Each cycle can be split into two columns in two ways.
+         *
+         * @return The amount of cycles.
+         */
+        private int countCycles() {
+            Arrays.fill(rowsOf, 0);
+            for (int row = 0; row < numbers; row++) {
+                for (int left = rowSets[row]; left != 0; left &= left - 1) {
+                    rowsOf[Integer.numberOfTrailingZeros(left)] |= 1 << row;
+                }
+            }
+
+            int cycles = 0;
+            int visited = 0;
+            for (int start = 0; start < numbers; start++) {
+                if ((visited & (1 << start)) != 0) {
+                    continue;
+                }
+                cycles++;
+                int row = start;
+                int number = Integer.lowestOneBit(rowSets[row]);
+                do {
+                    visited |= 1 << row;
+                    row = Integer.numberOfTrailingZeros(
+                            rowsOf[Integer.numberOfTrailingZeros(number)]
+                                    & ~(1 << row));
+                    number = rowSets[row] & ~number;
+                } while (row != start);
+            }
+            return cycles;
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package sudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * A Trail records the previous values of all words of a board array that are
+ * overwritten, so that the board can later be reverted to an earlier state
+ * without keeping copies of the whole board.
+ * <p>
+ * The entries are stored in two growing primitive arrays, so recording a
+ * change does not create any objects once the trail reached its maximum size.
+ */
+final class Trail {
+
+    /**
+     * The initial amount of entries the trail can hold.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Records the previous value of a position.
+     *
+     * @param position The position that is overwritten.
+     * @param value The value of the position before it is overwritten.
+     */
+    void record(int position, long value) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        positions[size] = position;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Gets the current amount of entries, which can be used as mark to revert
+     * all changes recorded after this call.
+     *
+     * @return The amount of recorded entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position of an entry.
+     *
+     * @param entry The index of the entry, which is lower than
+     *        {@link #size()}.
+     * @return The position of the entry.
+     */
+    int getPosition(int entry) {
+        return positions[entry];
+    }
+
+    /**
+     * Gets the previous value of an entry.
+     *
+     * @param entry The index of the entry, which is lower than
+     *        {@link #size()}.
+     * @return The value of the entry.
+     */
+    long getValue(int entry) {
+        return values[entry];
+    }
+
+    /**
+     * Removes the latest entry. Its position and value have to be read before
+     * using {@link #lastPosition()} and {@link #lastValue()}.
+     */
+    void pop() {
+        size--;
+    }
+
+    /**
+     * Gets the position of the latest entry.
+     *
+     * @return The position of the latest entry.
+     */
+    int lastPosition() {
+        return positions[size - 1];
+    }
+
+    /**
+     * Gets the previous value of the latest entry.
+     *
+     * @return The value of the latest entry.
+     */
+    long lastValue() {
+        return values[size - 1];
+    }
+
+}
@@ -0,0 +1,360 @@
+package sudoku.solver;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A TrailingSudokuSolver uses the registered saturators and backtracking to
+ * solve a sudoku just like the {@link SudokuBoardSolver}, but it works on a
+ * single board. Instead of cloning the board for every candidate, all changes
+ * are recorded on a {@link Trail} and reverted when backtracking, so the
+ * search itself does not create any objects except for the found solutions,
+ * which are not even created if they are only counted. The saturators are only
+ * applied to the cells and units changed since the last saturation. If one of
+ * them reads the possible positions of the numbers in the units or units are
+ * branched on, the working board maintains them. The working board also sorts
+ * its cells into buckets by their amount of possibilities, so that the
+ * branching strategy does not have to look at every cell. Together with the
+ * counted unset cells, the work per search step therefore depends on the
+ * changed cells and not on the size of the board, which keeps large sudokus
+ * up to 64 by 64 cells fast.
+ * <p>
+ * The branches and their alternatives are tried in the same order as by the
+ * {@link SudokuBoardSolver}, so both solvers find the same solutions in the
+ * same order.
+ * <p>
+ * Classic sudokus with boxes of 3 by 3 cells are searched by a
+ * {@link BitSlicedSearch} instead, which works on bit planes of the whole
+ * board. It is only used if it behaves exactly like the working board: if
+ * all registered saturators are {@link EnforcedCell}, {@link EnforcedNumber}
+ * or {@link EnforcedIntersection}, the {@link MinRemainingValues} heuristic
+ * chooses the cells and units are not branched on. It adds every pass of a
+ * rule over the board to the statistics of the saturator as one call. It can
+ * be switched off with {@link #setClassicFastPath(boolean)}.
+ * <p>
+ * Under the same conditions, other sudokus with up to 64 numbers can be
+ * searched by a {@link RowSlicedSearch}, which keeps one word per row of
+ * every number. It pays off for sudokus with boxes of 4 by 4 or 5 by 5 cells
+ * which need a lot of search steps, but not for larger ones, where the work
+ * per search step grows with the size of the board instead of the changed
+ * cells. It updates the statistics of the saturators like the classic one.
+ * It has to be switched on with {@link #setWideFastPath(boolean)}.
+ * <p>
+ * The search stops early if the current thread is interrupted, so that it
+ * can be cancelled. Only the solutions found so far are passed on in this
+ * case, and the thread stays interrupted.
+ */
+public class TrailingSudokuSolver extends SudokuBoardSolver {
+
+    /**
+     * Whether classic sudokus may be searched by a {@link BitSlicedSearch}.
+     */
+    private volatile boolean classicFastPath = true;
+
+    /**
+     * Whether other sudokus may be searched by a {@link RowSlicedSearch}.
+     */
+    private volatile boolean wideFastPath = false;
+
+    /**
+     * Sets whether classic sudokus with boxes of 3 by 3 cells may be searched
+     * on bit planes instead of the working board, as long as the search
+     * behaves the same. By default, they are.
+     *
+     * @param enabled {@code true} if the bit planes may be used.
+     */
+    public void setClassicFastPath(boolean enabled) {
+        classicFastPath = enabled;
+    }
+
+    /**
+     * Checks whether classic sudokus may be searched on bit planes.
+     *
+     * @return {@code true} if the bit planes may be used.
+     * @see #setClassicFastPath(boolean)
+     */
+    public boolean isClassicFastPath() {
+        return classicFastPath;
+    }
+
+    /**
+     * Sets whether sudokus other than classic ones, with up to 64 numbers,
+     * may be searched on bit planes with one word per row instead of the
+     * working board, as long as the search behaves the same. By default, they
+     * are not.
+     *
+     * @param enabled {@code true} if the bit planes may be used.
+     */
+    public void setWideFastPath(boolean enabled) {
+        wideFastPath = enabled;
+    }
+
+    /**
+     * Checks whether sudokus other than classic ones may be searched on bit
+     * planes.
+     *
+     * @return {@code true} if the bit planes may be used.
+     * @see #setWideFastPath(boolean)
+     */
+    public boolean isWideFastPath() {
+        return wideFastPath;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The saturators are applied incrementally as well, so after the first
+     * pass over the board only the cells and units changed in the meantime
+     * are looked at again instead of the whole board.
+     */
+    @Override
+    public Board saturate(Board board) {
+        BitMaskBoard resultingBoard = BitMaskBoard.copyOf(board);
+        PropagationQueue queue
+                = createPropagationQueue(resultingBoard.getGeometry());
+        resetState();
+        if (readsPositionMasks()) {
+            resultingBoard.startPositionMasks();
+        }
+        resultingBoard.setPropagationQueue(queue);
+        queue.addAll(); // Nothing of the initial board is saturated yet.
+
+        boolean solvable = saturateIncrementally(resultingBoard, queue);
+        resultingBoard.setPropagationQueue(null);
+        return solvable ? resultingBoard : null;
+    }
+
+    /**
+     * Tries to solve a given sudoku using backtracking on a single working
+     * board. The saturators are used to speed up the process of sorting out
+     * unsolvable boards.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    @Override
+    long solve(Board board, long limit, Consumer<? super Board> action) {
+        return solve(board, limit, action, null);
+    }
+
+    /**
+     * Tries to solve a given sudoku like
+     * {@link #solve(Board, long, Consumer)}, but lets the caller decide
+     * whether a solution counts before it is passed on. This allows to share
+     * a limit between several searches without creating the boards of
+     * solutions which are only counted.
+     *
+     * @param board The sudoku that should be solved. Will not be changed.
+     * @param limit The maximum amount of solutions to search for.
+     * @param action The action every solution is passed to as soon as it is
+     *        found, or {@code null} if the solutions only should be counted.
+     * @param reservation Asked before every solution is counted, or
+     *        {@code null} if all solutions count. The search stops without
+     *        counting the solution as soon as it returns {@code false}.
+     * @return The amount of found solutions, which is at most {@code limit}.
+     */
+    long solve(Board board, long limit, Consumer<? super Board> action,
+            BooleanSupplier reservation) {
+        BitSlicedSearch classicSearch = createClassicSearch(board);
+        if (classicSearch != null) {
+            return classicSearch.solve(board, limit, action, reservation);
+        }
+        RowSlicedSearch wideSearch = createWideSearch(board);
+        if (wideSearch != null) {
+            return wideSearch.solve(board, limit, action, reservation);
+        }
+
+        long solutions = 0;
+        BitMaskBoard workingBoard = BitMaskBoard.copyOf(board);
+        PropagationQueue queue
+                = createPropagationQueue(workingBoard.getGeometry());
+        workingBoard.startTrail();
+        workingBoard.startCountBuckets();
+        if (readsPositionMasks() || isUnitBranching()) {
+            workingBoard.startPositionMasks();
+        }
+        workingBoard.setPropagationQueue(queue);
+        queue.addAll(); // Nothing of the initial board is saturated yet.
+
+        /*
+         * The branch points on the current path. Each one stores the branch,
+         * the trail mark before any alternative was assigned and the
+         * alternative tried last. Every branch point sets one cell, so there
+         * can not be more branch points than cells.
+         */
+        int numbers = board.getNumbers();
+        int cellCount = numbers * numbers;
+        int[] branches = new int[cellCount];
+        int[] branchMarks = new int[cellCount];
+        int[] branchAlternatives = new int[cellCount];
+        int depth = 0;
+
+        boolean consistent = propagate(workingBoard, queue);
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return solutions; // The search was cancelled.
+            } else if (consistent) {
+                if (workingBoard.isSolution()) {
+                    if ((reservation != null)
+                            && !reservation.getAsBoolean()) {
+                        return solutions;
+                    }
+                    solutions++;
+                    if (action != null) {
+                        action.accept(workingBoard.clone());
+                    }
+                    if (solutions == limit) {
+                        return solutions;
+                    }
+                } else {
+                    branches[depth] = selectBranch(workingBoard);
+                    branchMarks[depth] = workingBoard.getTrailMark();
+                    branchAlternatives[depth] = NO_ALTERNATIVE;
+                    depth++;
+                }
+            }
+
+            // Try the next alternative of the innermost branch point left.
+            consistent = false;
+            while (!consistent) {
+                if (depth == 0) {
+                    return solutions;
+                }
+
+                workingBoard.rollback(branchMarks[depth - 1]);
+                int alternative = nextAlternative(workingBoard,
+                        branches[depth - 1], branchAlternatives[depth - 1]);
+
+                if (alternative == NO_ALTERNATIVE) {
+                    depth--; // All alternatives were tried, backtrack further.
+                } else {
+                    branchAlternatives[depth - 1] = alternative;
+                    int index = alternative / numbers;
+                    consistent = assign(workingBoard, queue, index,
+                            alternative % numbers + 1);
+                    if (!consistent) {
+                        recordBranchFailure(workingBoard, index);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a search on bit planes for a classic sudoku, which applies the
+     * same rules as the registered saturators and chooses the same cells.
+     *
+     * @param board The sudoku that should be solved.
+     * @return The search, or {@code null} if the sudoku is not a classic one
+     *         or the search would differ from the one on the working board.
+     */
+    private BitSlicedSearch createClassicSearch(Board board) {
+        if (!classicFastPath || !BitSlicedSearch.supports(board)
+                || !isSearchableOnPlanes()) {
+            return null;
+        }
+        return new BitSlicedSearch(getStatistics(EnforcedCell.class),
+                getStatistics(EnforcedNumber.class),
+                getStatistics(EnforcedIntersection.class));
+    }
+
+    /**
+     * Creates a search on bit planes with one word per row for a sudoku which
+     * is not searched by {@link #createClassicSearch(Board)}, which applies
+     * the same rules as the registered saturators and chooses the same cells.
+     *
+     * @param board The sudoku that should be solved.
+     * @return The search, or {@code null} if the sudoku has more than 64
+     *         numbers or the search would differ from the one on the working
+     *         board.
+     */
+    private RowSlicedSearch createWideSearch(Board board) {
+        if (!wideFastPath || !RowSlicedSearch.supports(board)
+                || !isSearchableOnPlanes()) {
+            return null;
+        }
+        return new RowSlicedSearch(board.getBoxRows(), board.getBoxColumns(),
+                getStatistics(EnforcedCell.class),
+                getStatistics(EnforcedNumber.class),
+                getStatistics(EnforcedIntersection.class));
+    }
+
+    /**
+     * Checks whether a search on bit planes would behave exactly like the one
+     * on the working board, which is the case if all registered saturators
+     * are {@link EnforcedCell}, {@link EnforcedNumber} or
+     * {@link EnforcedIntersection}, the {@link MinRemainingValues} heuristic
+     * chooses the cells and units are not branched on.
+     *
+     * @return {@code true} if the bit planes may be searched instead.
+     */
+    private boolean isSearchableOnPlanes() {
+        if (isUnitBranching() || (getBranchingStrategy().getClass()
+                != MinRemainingValues.class)) {
+            return false;
+        }
+        for (SaturatorStatistics statistics : getSaturatorStatistics()) {
+            Class<?> type = statistics.getSaturator().getClass();
+            if ((type != EnforcedCell.class) && (type != EnforcedNumber.class)
+                    && (type != EnforcedIntersection.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the statistics of the first registered saturator of the given
+     * class.
+     *
+     * @param type The exact class of the saturator.
+     * @return The statistics, or {@code null} if no such saturator is
+     *         registered.
+     */
+    private SaturatorStatistics getStatistics(Class<?> type) {
+        for (SaturatorStatistics statistics : getSaturatorStatistics()) {
+            if (statistics.getSaturator().getClass() == type) {
+                return statistics;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets a cell of the working board and saturates it afterwards.
+     *
+     * @param board The working board.
+     * @param queue The queue receiving the changes of the working board.
+     * @param index The absolute index of the cell.
+     * @param value The value the cell should be set to.
+     * @return {@code false} if the board turned out to be unsolvable.
+     */
+    private boolean assign(BitMaskBoard board, PropagationQueue queue,
+            int index, int value) {
+        if (!board.trySetCell(index, value)) {
+            queue.clear(); // The changes are reverted by the next rollback.
+            return false;
+        }
+        return propagate(board, queue);
+    }
+
+    /**
+     * Applies all registered saturators on the changed cells and units of the
+     * working board.
+     *
+     * @param board The working board.
+     * @param queue The queue receiving the changes of the working board.
+     * @return {@code false} if the board turned out to be unsolvable.
+     */
+    private boolean propagate(Board board, PropagationQueue queue) {
+        if (!saturateIncrementally(board, queue)) {
+            queue.clear(); // The changes are reverted by the next rollback.
+            return false;
+        }
+        return true;
+    }
+
+}